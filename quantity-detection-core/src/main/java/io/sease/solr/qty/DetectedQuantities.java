@@ -0,0 +1,98 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.Pair;
+import io.sease.solr.qty.domain.QuantityOccurrence;
+import io.sease.solr.qty.domain.Unit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.sease.solr.qty.domain.QuantityOccurrence.newQuantityOccurrence;
+
+/**
+ * A query builder which simply records the detected quantities, converted in the unit reference variant.
+ * The recorded quantities can be later replayed on another builder; since they don't depend on the query string
+ * but only on the detected (and converted) amounts, they are also a good key for caching the built queries.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class DetectedQuantities extends EquivalentQuantityBuilder<DetectedQuantities> {
+    private final List<Pair<Unit, Number>> quantities = new ArrayList<>();
+
+    @Override
+    protected void onQuantityDetected(final Unit unit, final QuantityOccurrence occurrence) {
+        quantities.add(new Pair<>(unit, occurrence.amount()));
+    }
+
+    @Override
+    public DetectedQuantities product() {
+        return this;
+    }
+
+    /**
+     * Returns true if no quantity has been detected.
+     *
+     * @return true if no quantity has been detected.
+     */
+    public boolean isEmpty() {
+        return quantities.isEmpty();
+    }
+
+    /**
+     * Returns the number of detected quantities.
+     *
+     * @return the number of detected quantities.
+     */
+    int size() {
+        return quantities.size();
+    }
+
+    /**
+     * Notifies the given builder about the recorded quantities, in the same order they have been detected.
+     *
+     * @param builder the target builder.
+     * @param <T> the product type of the target builder.
+     * @return the product of the target builder.
+     */
+    public <T> T replay(final EquivalentQuantityBuilder<T> builder) {
+        quantities.forEach(quantity ->
+                builder.onQuantityDetected(
+                        quantity.x,
+                        newQuantityOccurrence(quantity.y, quantity.x.name(), quantity.x.fieldNames())));
+        return builder.product();
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof DetectedQuantities) || ((DetectedQuantities) obj).quantities.size() != quantities.size()) {
+            return false;
+        }
+
+        final List<Pair<Unit, Number>> others = ((DetectedQuantities) obj).quantities;
+        for (int i = 0; i < quantities.size(); i++) {
+            if (quantities.get(i).x != others.get(i).x
+                    || Float.compare(quantities.get(i).y.floatValue(), others.get(i).y.floatValue()) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (final Pair<Unit, Number> quantity : quantities) {
+            hash = 31 * hash + quantity.x.name().hashCode();
+            hash = 31 * hash + Float.hashCode(quantity.y.floatValue());
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder();
+        quantities.forEach(quantity -> builder.append(quantity.y).append(quantity.x.name()).append(" "));
+        return builder.toString().trim();
+    }
+}
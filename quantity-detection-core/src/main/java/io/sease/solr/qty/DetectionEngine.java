@@ -0,0 +1,375 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.IntPair;
+import io.sease.solr.qty.domain.QuantityOccurrence;
+import io.sease.solr.qty.domain.Unit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static io.sease.solr.qty.QuantityMatcher.hasDigits;
+import static io.sease.solr.qty.QuantityMatcher.indexesOf;
+import static io.sease.solr.qty.QuantityMatcher.startIndexOfAmount;
+import static io.sease.solr.qty.domain.QuantityOccurrence.newQuantityOccurrence;
+import static java.util.Collections.emptyList;
+import static java.util.Collections.emptyMap;
+
+/**
+ * Detects the quantities within a query string, notifying a {@link QueryBuilder} about each of them.
+ * The engine doesn't depend on Solr or Lucene, so the same detection can run outside Solr (e.g. for precomputing
+ * the boost queries before sending a request).
+ *
+ * The detection is guarded by the limits declared in the {@link DetectionSettings}: when one of them is exceeded
+ * the detection is abandoned and a fresh builder, which didn't receive any notification, is returned. In other
+ * words, the query is passed through as if it didn't contain any quantity.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class DetectionEngine {
+    private final UnitDictionary dictionary;
+    private final DetectionSettings settings;
+    private final DetectionMonitor monitor;
+    private final HotQuantities hotQuantities;
+    private final Pattern numbers;
+
+    /**
+     * Signals that the detection on the current query exceeded one of the configured limits.
+     * It is a control flow exception, so it doesn't fill the stack trace.
+     *
+     * @author agazzarini
+     * @since 1.0
+     */
+    private static class DetectionLimitExceeded extends RuntimeException {
+        final DetectionMonitor.Limit limit;
+
+        DetectionLimitExceeded(final DetectionMonitor.Limit limit, final String message) {
+            super(message, null, false, false);
+            this.limit = limit;
+        }
+    }
+
+    /**
+     * Keeps track of the resources (i.e. time and detected quantities) used by the detection on a query.
+     *
+     * @author agazzarini
+     * @since 1.0
+     */
+    private class DetectionBudget {
+        private final long start = System.nanoTime();
+        private int quantities;
+
+        /**
+         * Checks the time spent so far against the configured budget.
+         *
+         * @throws DetectionLimitExceeded in case the time budget has been exhausted.
+         */
+        void checkTime() {
+            if (settings.detectionBudget > 0 && System.nanoTime() - start > settings.detectionBudget) {
+                throw new DetectionLimitExceeded(
+                        DetectionMonitor.Limit.TIME_BUDGET,
+                        "time budget of " + settings.detectionBudget + " ns exceeded");
+            }
+        }
+
+        /**
+         * Counts a new detected quantity, and checks the time spent so far.
+         *
+         * @throws DetectionLimitExceeded in case too many quantities have been detected or the time budget has been exhausted.
+         */
+        void quantityDetected() {
+            if (settings.maxQuantities > 0 && ++quantities > settings.maxQuantities) {
+                throw new DetectionLimitExceeded(
+                        DetectionMonitor.Limit.QUANTITIES,
+                        "more than " + settings.maxQuantities + " quantities detected");
+            }
+            checkTime();
+        }
+    }
+
+    /**
+     * Builds a new {@link DetectionEngine} with the given data.
+     *
+     * @param dictionary the units dictionary.
+     * @param settings the detection settings.
+     * @param monitor the monitor which is notified about the notable detection events.
+     * @param hotQuantities the collector of the detected quantities.
+     */
+    public DetectionEngine(
+            final UnitDictionary dictionary,
+            final DetectionSettings settings,
+            final DetectionMonitor monitor,
+            final HotQuantities hotQuantities) {
+        this.dictionary = dictionary;
+        this.settings = settings;
+        this.monitor = monitor;
+        this.hotQuantities = hotQuantities;
+        this.numbers = Pattern.compile("-?\\d+" + Pattern.quote(String.valueOf(settings.decimalSeparator)) + "?\\d*\\s");
+    }
+
+    /**
+     * Builds a new {@link DetectionEngine} with the default settings.
+     *
+     * @param dictionary the units dictionary.
+     */
+    public DetectionEngine(final UnitDictionary dictionary) {
+        this(dictionary, DetectionSettings.DEFAULT, DetectionMonitor.NULL_MONITOR, new HotQuantities());
+    }
+
+    /**
+     * Returns the units dictionary used by this engine.
+     *
+     * @return the units dictionary used by this engine.
+     */
+    public UnitDictionary dictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Runs the detection process on the given query string, notifying the builder created by the given factory.
+     * The factory receives the (normalized) query buffer the detection offsets refer to or, if the query string
+     * doesn't contain any digit (so there's nothing to detect), the untouched query string.
+     *
+     * @param qstr the incoming query string.
+     * @param builderFactory the factory of the query builder that will be notified about the detected quantities.
+     * @param <B> the query builder type.
+     * @return the query builder, after it has been notified about all detected quantities.
+     */
+    public <B extends QueryBuilder<?>> B detect(final String qstr, final Function<StringBuilder, B> builderFactory) {
+        return detect(qstr, builderFactory, (IncrementalDetection) null);
+    }
+
+    /**
+     * Runs the detection process on the given query string, like {@link #detect(String, Function)}, without recording
+     * the detected quantities in the {@link HotQuantities} (e.g. the detections of the quantities used for warming,
+     * which would otherwise feed themselves).
+     *
+     * @param qstr the incoming query string.
+     * @param builderFactory the factory of the query builder that will be notified about the detected quantities.
+     * @param <B> the query builder type.
+     * @return the query builder, after it has been notified about all detected quantities.
+     */
+    public <B extends QueryBuilder<?>> B detectWithoutRecording(final String qstr, final Function<StringBuilder, B> builderFactory) {
+        return run(qstr, builderFactory, null, false);
+    }
+
+    /**
+     * Runs the detection process on the given query string, reusing the occurrences detected on the previous query
+     * of the same sequence (e.g. the previous keystroke of an as-you-type client), and notifying the builder created
+     * by the given factory. The result is the same of a detection from scratch.
+     *
+     * @param qstr the incoming query string.
+     * @param builderFactory the factory of the query builder that will be notified about the detected quantities.
+     * @param state the state of the detection executed on the previous query, which is updated with this detection.
+     * @param <B> the query builder type.
+     * @return the query builder, after it has been notified about all detected quantities.
+     */
+    public <B extends QueryBuilder<?>> B detect(
+            final String qstr,
+            final Function<StringBuilder, B> builderFactory,
+            final IncrementalDetection state) {
+        if (state == null) {
+            return run(qstr, builderFactory, null, true);
+        }
+
+        synchronized (state) {
+            return run(qstr, builderFactory, state, true);
+        }
+    }
+
+    /**
+     * Runs the detection process on the given query string, within the configured limits.
+     *
+     * @param qstr the incoming query string.
+     * @param builderFactory the factory of the query builder that will be notified about the detected quantities.
+     * @param state the state of the previous detection, null if the detection doesn't reuse a previous one.
+     * @param record true if the detected quantities must be recorded in the {@link HotQuantities}.
+     * @param <B> the query builder type.
+     * @return the query builder, after it has been notified about all detected quantities.
+     */
+    private <B extends QueryBuilder<?>> B run(
+            final String qstr,
+            final Function<StringBuilder, B> builderFactory,
+            final IncrementalDetection state,
+            final boolean record) {
+        // Fast path: a quantity always has an amount, so without digits there's nothing to detect (nor to normalize)
+        if (!hasDigits(qstr)) {
+            monitor.fastPath();
+            if (state != null) {
+                state.update(dictionary, normalize(qstr).toString(), emptyMap());
+            }
+            return builderFactory.apply(new StringBuilder(qstr));
+        }
+
+        final StringBuilder query = normalize(qstr);
+        final B builder = builderFactory.apply(query);
+
+        if (settings.maxQueryLength > 0 && qstr.length() > settings.maxQueryLength) {
+            monitor.limitExceeded(
+                    DetectionMonitor.Limit.QUERY_LENGTH,
+                    "query longer than " + settings.maxQueryLength + " chars",
+                    qstr);
+            if (state != null) {
+                state.reset();
+            }
+            return builder;
+        }
+
+        try {
+            return detect(query, builder, new DetectionBudget(), state, record);
+        } catch (final DetectionLimitExceeded exception) {
+            if (state != null) {
+                state.reset();
+            }
+            monitor.limitExceeded(exception.limit, exception.getMessage(), qstr);
+            return builderFactory.apply(normalize(qstr));
+        }
+    }
+
+    /**
+     * Replays a detection which has been previously executed (possibly elsewhere) on the given query string,
+     * notifying the builder created by the given factory. No detection is executed.
+     *
+     * @param qstr the incoming query string.
+     * @param transcript the transcript of the detection executed on the same query string.
+     * @param builderFactory the factory of the query builder that will be notified about the detected quantities.
+     * @param <B> the query builder type.
+     * @return the query builder, after it has been notified about all recorded quantities.
+     */
+    public <B extends QueryBuilder<?>> B replay(
+            final String qstr,
+            final DetectionTranscript transcript,
+            final Function<StringBuilder, B> builderFactory) {
+        return transcript.replay(builderFactory.apply(normalize(qstr)), dictionary.equivalenceTable());
+    }
+
+    /**
+     * Runs the detection process on the given (normalized) query buffer.
+     *
+     * @param query the normalized query buffer.
+     * @param builder the query builder that will be notified about the detected quantities.
+     * @param budget the detection budget.
+     * @param state the state of the previous detection, null if the detection doesn't reuse a previous one.
+     * @param record true if the detected quantities must be recorded in the {@link HotQuantities}.
+     * @param <B> the query builder type.
+     * @return the query builder, after it has been notified about all detected quantities.
+     * @throws DetectionLimitExceeded in case one of the configured limits has been exceeded.
+     */
+    private <B extends QueryBuilder<?>> B detect(
+            final StringBuilder query,
+            final B builder,
+            final DetectionBudget budget,
+            final IncrementalDetection state,
+            final boolean record) {
+        final boolean assumptionsEnabled = dictionary.assumptionTable().isEnabled();
+        final QueryBuilder<String> helper = new QuantityRemover(query, false);
+        final int reusablePrefix = state != null ? state.reusablePrefix(query, dictionary) : 0;
+        final Map<String, List<QuantityOccurrence>> detected = state != null ? new HashMap<>() : null;
+
+        dictionary.variants()
+          .forEach((variant, fieldNames) -> {
+              budget.checkTime();
+              final Unit unit = dictionary.unit(fieldNames);
+              final List<QuantityOccurrence> occurrences = occurrences(query, variant, fieldNames, reusablePrefix, state);
+              if (detected != null && !occurrences.isEmpty()) {
+                  detected.put(variant, occurrences);
+              }
+
+              occurrences.forEach(occurrence -> {
+                  budget.quantityDetected();
+                  if (assumptionsEnabled) {
+                      helper.newQuantityDetected(dictionary.equivalenceTable(), unit, occurrence);
+                  }
+
+                  // Occurrences reused from the previous detection of the session have been already recorded
+                  if (record && occurrence.indexOfUnit() + variant.length() >= reusablePrefix) {
+                      hotQuantities.record(unit.name(), occurrence.amount().floatValue(), occurrence.unit());
+                  }
+                  builder.newQuantityDetected(dictionary.equivalenceTable(), unit, occurrence);
+              });
+          });
+
+        if (state != null) {
+            state.update(dictionary, query.toString(), detected);
+        }
+
+        if (assumptionsEnabled) {
+            final String queryWithoutQuantities = helper.product() + " ";
+            final Matcher matcher = numbers.matcher(queryWithoutQuantities);
+            while (matcher.find()) {
+                budget.quantityDetected();
+
+                // The match always ends with a single whitespace, which is not part of the amount
+                final float amount = F.parseFloat(queryWithoutQuantities, matcher.start(), matcher.end() - 1, settings.decimalSeparator);
+                final String unitOrVariantName = dictionary.assumptionTable().unitName(amount);
+                builder.newHeuristicQuantityDetected(
+                        dictionary.equivalenceTable(),
+                        dictionary.unitByIdentifier(unitOrVariantName),
+                        newQuantityOccurrence(
+                                amount,
+                                unitOrVariantName,
+                                emptyList(),
+                                -1,
+                                matcher.start(),
+                                matcher.end() - 1 - matcher.start()));
+            }
+        }
+        return builder;
+    }
+
+    /**
+     * Returns the occurrences of the given variant within the given query buffer.
+     * The occurrences of the previous detection which lie entirely (including the char which follows the unit)
+     * within the reusable prefix are unchanged, so the buffer is scanned only after them.
+     *
+     * @param query the normalized query buffer.
+     * @param variant the unit variant.
+     * @param fieldNames the target fields of the variant unit.
+     * @param reusablePrefix the length of the prefix shared with the query of the previous detection.
+     * @param state the state of the previous detection, null if the detection doesn't reuse a previous one.
+     * @return the occurrences of the given variant within the given query buffer.
+     */
+    private List<QuantityOccurrence> occurrences(
+            final StringBuilder query,
+            final String variant,
+            final List<String> fieldNames,
+            final int reusablePrefix,
+            final IncrementalDetection state) {
+        final List<QuantityOccurrence> occurrences = new ArrayList<>();
+        if (reusablePrefix > 0) {
+            state.occurrences(variant)
+                    .stream()
+                    .filter(occurrence -> occurrence.indexOfUnit() + variant.length() < reusablePrefix)
+                    .forEach(occurrences::add);
+        }
+
+        indexesOf(query, variant, Math.max(0, reusablePrefix - variant.length()))
+                .stream()
+                .map(unitOffset -> new IntPair(unitOffset, startIndexOfAmount(query, unitOffset)))
+                .filter(IntPair::isValid)
+                .map(offsets -> newQuantityOccurrence(
+                        F.parseFloat(query, offsets.y(), offsets.x(), settings.decimalSeparator),
+                        variant,
+                        fieldNames,
+                        offsets.x(),
+                        offsets.y(),
+                        -1))
+                .forEach(occurrences::add);
+        return occurrences;
+    }
+
+    /**
+     * Returns the normalized (i.e. lowercased, trimmed and surrounded by whitespaces) buffer of the given query.
+     *
+     * @param qstr the query string.
+     * @return the normalized buffer of the given query.
+     */
+    private static StringBuilder normalize(final String qstr) {
+        return new StringBuilder(" ").append(qstr.toLowerCase().trim()).append(" ");
+    }
+}
@@ -0,0 +1,40 @@
+package io.sease.solr.qty;
+
+/**
+ * Receives the notable events of a {@link DetectionEngine} (e.g. for collecting metrics or logging).
+ * All callbacks do nothing by default.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public interface DetectionMonitor {
+    /**
+     * The limits which guard the detection on a single query.
+     *
+     * @author agazzarini
+     * @since 1.0
+     */
+    enum Limit {
+        QUERY_LENGTH, QUANTITIES, TIME_BUDGET
+    }
+
+    DetectionMonitor NULL_MONITOR = new DetectionMonitor() {};
+
+    /**
+     * The detection has been skipped because the query doesn't contain any digit.
+     */
+    default void fastPath() {
+        // Nothing to be done here
+    }
+
+    /**
+     * The detection has been abandoned, and the query passed through, because it exceeded the given limit.
+     *
+     * @param limit the exceeded limit.
+     * @param reason a description of the exceeded limit.
+     * @param qstr the query string.
+     */
+    default void limitExceeded(final Limit limit, final String reason, final String qstr) {
+        // Nothing to be done here
+    }
+}
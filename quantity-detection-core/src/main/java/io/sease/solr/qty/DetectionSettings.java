@@ -0,0 +1,47 @@
+package io.sease.solr.qty;
+
+/**
+ * The settings of a {@link DetectionEngine}: the limits which guard the detection on a single query and the
+ * decimal separator of the amounts.
+ * A limit equal or less than 0 is disabled.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class DetectionSettings {
+    public final static int DEFAULT_MAX_QUERY_LENGTH = 1024;
+    public final static int DEFAULT_MAX_QUANTITIES = 64;
+    public final static long DEFAULT_DETECTION_BUDGET = 0;
+    public final static char DEFAULT_DECIMAL_SEPARATOR = '.';
+
+    public final static DetectionSettings DEFAULT =
+            new DetectionSettings(
+                    DEFAULT_MAX_QUERY_LENGTH,
+                    DEFAULT_MAX_QUANTITIES,
+                    DEFAULT_DETECTION_BUDGET,
+                    DEFAULT_DECIMAL_SEPARATOR);
+
+    final int maxQueryLength;
+    final int maxQuantities;
+    final long detectionBudget;
+    final char decimalSeparator;
+
+    /**
+     * Builds a new {@link DetectionSettings} with the given values.
+     *
+     * @param maxQueryLength the maximum length of the queries which are scanned.
+     * @param maxQuantities the maximum number of quantities detected in a query.
+     * @param detectionBudget the maximum time (in nanoseconds) spent in the detection on a query.
+     * @param decimalSeparator the decimal separator of the amounts.
+     */
+    public DetectionSettings(
+            final int maxQueryLength,
+            final int maxQuantities,
+            final long detectionBudget,
+            final char decimalSeparator) {
+        this.maxQueryLength = maxQueryLength;
+        this.maxQuantities = maxQuantities;
+        this.detectionBudget = detectionBudget;
+        this.decimalSeparator = decimalSeparator;
+    }
+}
@@ -0,0 +1,168 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.EquivalenceTable;
+import io.sease.solr.qty.domain.QuantityOccurrence;
+import io.sease.solr.qty.domain.Unit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static io.sease.solr.qty.domain.QuantityOccurrence.newQuantityOccurrence;
+import static java.util.Collections.emptyList;
+
+/**
+ * A query builder which records, as they are, the detection events of a query string.
+ * Unlike {@link DetectedQuantities}, which records the converted amounts, a transcript keeps the raw occurrences
+ * (with their offsets), so it can be replayed on any builder (e.g. a builder which removes the quantities from the
+ * query) exactly as if the detection had been executed again.
+ *
+ * A transcript has a compact string form, which references the units by their position in the dictionary: this
+ * allows to run the detection once (e.g. on a SolrCloud coordinator) and to replay it elsewhere, as long as the
+ * same units configuration is used.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class DetectionTranscript implements QueryBuilder<DetectionTranscript> {
+    private final static char EVENT_SEPARATOR = '\u001E';
+    private final static char FIELD_SEPARATOR = '\u001F';
+
+    /**
+     * A recorded detection event.
+     *
+     * @author agazzarini
+     * @since 1.0
+     */
+    private static class Event {
+        final boolean heuristic;
+        final Unit unit;
+        final QuantityOccurrence occurrence;
+
+        /**
+         * Builds a new {@link Event} with the given data.
+         *
+         * @param heuristic true if the unit of the quantity has been assumed.
+         * @param unit the unit.
+         * @param occurrence the (raw) quantity occurrence.
+         */
+        Event(final boolean heuristic, final Unit unit, final QuantityOccurrence occurrence) {
+            this.heuristic = heuristic;
+            this.unit = unit;
+            this.occurrence = occurrence;
+        }
+    }
+
+    private final List<Event> events = new ArrayList<>();
+
+    @Override
+    public void newQuantityDetected(final EquivalenceTable equivalenceTable, final Unit unit, final QuantityOccurrence occurrence) {
+        events.add(new Event(false, unit, occurrence));
+    }
+
+    @Override
+    public void newHeuristicQuantityDetected(final EquivalenceTable equivalenceTable, final Unit unit, final QuantityOccurrence occurrence) {
+        events.add(new Event(true, unit, occurrence));
+    }
+
+    @Override
+    public DetectionTranscript product() {
+        return this;
+    }
+
+    /**
+     * Returns true if no quantity has been detected.
+     *
+     * @return true if no quantity has been detected.
+     */
+    public boolean isEmpty() {
+        return events.isEmpty();
+    }
+
+    /**
+     * Notifies the given builder about the recorded events, in the same order they have been detected.
+     *
+     * @param builder the target builder, created on the same (normalized) query buffer of the detection.
+     * @param equivalenceTable the equivalence table.
+     * @param <B> the query builder type.
+     * @return the same builder, after it has been notified about all recorded events.
+     */
+    public <B extends QueryBuilder<?>> B replay(final B builder, final EquivalenceTable equivalenceTable) {
+        events.forEach(event -> {
+            if (event.heuristic) {
+                builder.newHeuristicQuantityDetected(equivalenceTable, event.unit, event.occurrence);
+            } else {
+                builder.newQuantityDetected(equivalenceTable, event.unit, event.occurrence);
+            }
+        });
+        return builder;
+    }
+
+    /**
+     * Returns the compact string form of this transcript.
+     *
+     * @param dictionary the units dictionary used in the detection.
+     * @return the compact string form of this transcript.
+     */
+    public String encode(final UnitDictionary dictionary) {
+        final StringBuilder builder = new StringBuilder();
+        events.forEach(event ->
+                builder.append(event.heuristic ? 'H' : 'D')
+                        .append(FIELD_SEPARATOR).append(dictionary.units().indexOf(event.unit))
+                        .append(FIELD_SEPARATOR).append(event.occurrence.unit())
+                        .append(FIELD_SEPARATOR).append(event.occurrence.amount().floatValue())
+                        .append(FIELD_SEPARATOR).append(event.occurrence.indexOfUnit())
+                        .append(FIELD_SEPARATOR).append(event.occurrence.startOffset())
+                        .append(FIELD_SEPARATOR).append(event.occurrence.amountLength())
+                        .append(EVENT_SEPARATOR));
+        return builder.toString();
+    }
+
+    /**
+     * Rebuilds a transcript from its compact string form.
+     *
+     * @param encoded the compact string form of the transcript.
+     * @param dictionary the units dictionary used in the detection.
+     * @return the decoded transcript.
+     * @throws IllegalArgumentException in case the given string is not a valid transcript for the given dictionary.
+     */
+    public static DetectionTranscript decode(final String encoded, final UnitDictionary dictionary) {
+        final DetectionTranscript transcript = new DetectionTranscript();
+        int start = 0;
+        int end;
+        while ((end = encoded.indexOf(EVENT_SEPARATOR, start)) != -1) {
+            final String [] fields = encoded.substring(start, end).split(String.valueOf(FIELD_SEPARATOR));
+            if (fields.length != 7) {
+                throw new IllegalArgumentException("Invalid detection transcript: " + encoded);
+            }
+
+            try {
+                final boolean heuristic = "H".equals(fields[0]);
+                final int unitIndex = Integer.parseInt(fields[1]);
+                if (unitIndex >= dictionary.units().size()) {
+                    throw new IllegalArgumentException("Unknown unit in detection transcript: " + unitIndex);
+                }
+
+                final Unit unit = unitIndex < 0 ? Unit.NULL_UNIT : dictionary.units().get(unitIndex);
+                transcript.events.add(
+                        new Event(
+                                heuristic,
+                                unit,
+                                newQuantityOccurrence(
+                                        Float.parseFloat(fields[3]),
+                                        fields[2],
+                                        heuristic ? emptyList() : unit.fieldNames(),
+                                        Integer.parseInt(fields[4]),
+                                        Integer.parseInt(fields[5]),
+                                        Integer.parseInt(fields[6]))));
+            } catch (final NumberFormatException exception) {
+                throw new IllegalArgumentException("Invalid detection transcript: " + encoded, exception);
+            }
+            start = end + 1;
+        }
+
+        if (start != encoded.length()) {
+            throw new IllegalArgumentException("Invalid detection transcript: " + encoded);
+        }
+        return transcript;
+    }
+}
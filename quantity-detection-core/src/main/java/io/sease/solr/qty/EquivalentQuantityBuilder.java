@@ -0,0 +1,55 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.EquivalenceTable;
+import io.sease.solr.qty.domain.QuantityOccurrence;
+import io.sease.solr.qty.domain.Unit;
+
+import static io.sease.solr.qty.domain.QuantityOccurrence.newQuantityOccurrence;
+
+/**
+ * Supertype layer for builders which work on converted amounts: detected quantities are converted,
+ * using the equivalence table, in the reference variant of the unit before being notified to the concrete builder.
+ *
+ * @param <T> the product type.
+ * @author agazzarini
+ * @since 1.0
+ */
+public abstract class EquivalentQuantityBuilder<T> implements QueryBuilder<T> {
+    @Override
+    public void newQuantityDetected(
+            final EquivalenceTable equivalenceTable,
+            final Unit unit,
+            final QuantityOccurrence occurrence) {
+        onQuantityDetected(equivalenceTable, unit, occurrence);
+    }
+
+    @Override
+    public void newHeuristicQuantityDetected(
+            final EquivalenceTable equivalenceTable,
+            final Unit unit,
+            final QuantityOccurrence occurrence) {
+        onQuantityDetected(equivalenceTable, unit, occurrence);
+    }
+
+    private void onQuantityDetected(
+            final EquivalenceTable equivalenceTable,
+            final Unit unit,
+            final QuantityOccurrence detected) {
+        unit.getVariantByName(detected.unit())
+                .ifPresent(variant ->
+                        onQuantityDetected(
+                                unit,
+                                newQuantityOccurrence(
+                                        equivalenceTable.equivalent(variant.refName(), detected.amount()),
+                                        unit.name(),
+                                        unit.fieldNames())));
+    }
+
+    /**
+     * A new quantity, already converted in the unit reference variant, has been detected.
+     *
+     * @param unit the unit associated with the detected quantity.
+     * @param occurrence the (converted) quantity occurrence.
+     */
+    protected abstract void onQuantityDetected(Unit unit, QuantityOccurrence occurrence);
+}
@@ -0,0 +1,146 @@
+package io.sease.solr.qty;
+
+/**
+ * Utilities collection.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public abstract class F {
+    private final static int MAX_LONG_DIGITS = 18;
+    private final static long MAX_EXACT_MANTISSA = 1L << 24;
+    private final static float [] POWERS_OF_TEN = {
+            1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f
+    };
+
+    /**
+     * Parses the decimal number which occupies the given range of a char sequence.
+     * Leading and trailing whitespaces are ignored; the number is made by an optional sign, at least one digit and
+     * at most one decimal separator.
+     *
+     * Differently from {@link Float#parseFloat(String)}, the number is read directly from the input sequence,
+     * without creating any intermediate string. The result must be rounded only once, so the fast path is limited to
+     * integers (a single long to float conversion) and to decimals whose digits (without the separator) are lower than
+     * 2^24 with at most 10 decimal digits: both operands of the float division are exact, so its (correctly rounded)
+     * result is the same of {@link Float#parseFloat(String)}. The other numbers fall back to
+     * {@link Float#parseFloat(String)}.
+     *
+     * @param value the char sequence (e.g. the query buffer).
+     * @param start the start offset of the number (inclusive).
+     * @param end the end offset of the number (exclusive).
+     * @param decimalSeparator the decimal separator.
+     * @return the parsed number.
+     * @throws NumberFormatException in case the given range doesn't contain a valid number.
+     */
+    public static float parseFloat(final CharSequence value, final int start, final int end, final char decimalSeparator) {
+        int from = start;
+        int to = end;
+        while (from < to && Character.isWhitespace(value.charAt(from))) from++;
+        while (to > from && Character.isWhitespace(value.charAt(to - 1))) to--;
+
+        final int numberStart = from;
+        final boolean negative = from < to && value.charAt(from) == '-';
+        if (from < to && (negative || value.charAt(from) == '+')) {
+            from++;
+        }
+
+        long mantissa = 0;
+        int significantDigits = 0;
+        int decimals = -1;
+        boolean atLeastOneDigitHasBeenMet = false;
+        for (int i = from; i < to; i++) {
+            final char ch = value.charAt(i);
+            if (ch >= '0' && ch <= '9') {
+                atLeastOneDigitHasBeenMet = true;
+                if (mantissa != 0 || ch != '0') {
+                    significantDigits++;
+                }
+                mantissa = mantissa * 10 + (ch - '0');
+                if (decimals != -1) {
+                    decimals++;
+                }
+            } else if (ch == decimalSeparator && decimals == -1) {
+                decimals = 0;
+            } else {
+                throw new NumberFormatException("Invalid number: " + value.subSequence(start, end));
+            }
+        }
+
+        if (!atLeastOneDigitHasBeenMet) {
+            throw new NumberFormatException("Invalid number: " + value.subSequence(start, end));
+        }
+
+        final float result;
+        if (significantDigits > MAX_LONG_DIGITS) {
+            return slowParseFloat(value, numberStart, to, decimalSeparator);
+        } else if (decimals <= 0) {
+            result = (float) mantissa;
+        } else if (mantissa < MAX_EXACT_MANTISSA && decimals < POWERS_OF_TEN.length) {
+            result = (float) mantissa / POWERS_OF_TEN[decimals];
+        } else {
+            return slowParseFloat(value, numberStart, to, decimalSeparator);
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Parses the decimal number which occupies the given range of a char sequence, using {@link Float#parseFloat(String)}.
+     *
+     * @param value the char sequence.
+     * @param start the start offset of the number (inclusive).
+     * @param end the end offset of the number (exclusive).
+     * @param decimalSeparator the decimal separator.
+     * @return the parsed number.
+     */
+    private static float slowParseFloat(final CharSequence value, final int start, final int end, final char decimalSeparator) {
+        return Float.parseFloat(value.subSequence(start, end).toString().replace(decimalSeparator, '.'));
+    }
+
+    /**
+     * Check the input value and if it doesn't have any decimals, returns it as a plain int.
+     *
+     * @param value the input value.
+     * @return (possibily) the input value as a plain int or float (in case it has decimals).
+     */
+    public static Number narrow(final Number value) {
+        return narrow(value.floatValue());
+    }
+
+    /**
+     * Check the input value and if it doesn't have any decimals, returns it as a plain int.
+     *
+     * @param value the input value.
+     * @return (possibily) the input value as a plain int or float (in case it has decimals).
+     */
+    public static Number narrow(final float value) {
+        if (value % 1 == 0) return (int)value; else return value;
+    }
+
+    /**
+     * Appends the given number to the given buffer.
+     * Integer and float values are appended through the corresponding primitive overloads, so no intermediate
+     * string is created; the textual representation is the same of {@link String#valueOf(Object)}.
+     *
+     * @param buffer the target buffer.
+     * @param value the number.
+     * @return the target buffer.
+     */
+    public static StringBuilder append(final StringBuilder buffer, final Number value) {
+        if (value instanceof Integer) {
+            return buffer.append(value.intValue());
+        } else if (value instanceof Float) {
+            return buffer.append(value.floatValue());
+        }
+        return buffer.append(value);
+    }
+
+    /**
+     * Returns a comparable number ({@link Number} itself doesn't implement {@link Comparable}.
+     *
+     * @param value the input value.
+     * @return a comparable number ({@link Number}
+     */
+    public static Comparable<? extends Number> narrowAsComparable(final Number value) {
+        return Float.valueOf(value.floatValue());
+    }
+}
@@ -0,0 +1,343 @@
+package io.sease.solr.qty;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Records how many times each quantity (i.e. an amount and a unit variant, e.g. 33 cl) has been detected, grouped
+ * by unit, and returns the most detected ones.
+ *
+ * Each unit has a space-saving sketch, made by at most {@link #MAX_QUANTITIES_PER_UNIT} counters: once they are
+ * all in use, a new quantity takes the place of the least detected one (inheriting its count, as the space-saving
+ * algorithm requires), so quantities which become hot after the warm-up still make their way to the top.
+ * Every {@link #DECAY_PERIOD} detections of a unit, its counts are halved, so old detections weigh less and less.
+ * Once the (estimated) memory used by the counters reaches the optional memory ceiling, no counters are added:
+ * units with at least one counter keep replacing their least detected quantity.
+ *
+ * Quantities are recorded as primitive amounts plus the (shared) unit variant instances of the dictionary, without
+ * creating any intermediate object: the textual form of a quantity (e.g. "33 cl") is built only by {@link #top(int)}.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class HotQuantities {
+    final static int MAX_QUANTITIES_PER_UNIT = 1000;
+    final static int DECAY_PERIOD = 10 * MAX_QUANTITIES_PER_UNIT;
+
+    /**
+     * The estimated heap used by a counter, on a 64 bit JVM: the amount, the variant reference, the count, its
+     * position in the heap and (at a load factor of 0.5) two slots of the hash table.
+     */
+    final static long QUANTITY_RAM_BYTES_USED = 36;
+
+    /**
+     * The space-saving sketch of a unit.
+     * Counters live in parallel arrays; a min-heap (on counts) finds the least detected quantity, and an open
+     * addressing hash table (with linear probing) finds the counter of a quantity.
+     *
+     * @author agazzarini
+     * @since 1.0
+     */
+    private class UnitSketch {
+        private float [] amounts = new float[0];
+        private String [] variants = new String[0];
+        private long [] counts = new long[0];
+        private int [] heap = new int[0];
+        private int [] heapIndex = new int[0];
+        private int [] table = new int[4];
+        private int size;
+        private int sinceLastDecay;
+
+        /**
+         * Records a new detection of the given quantity.
+         *
+         * @param amount the amount.
+         * @param variant the unit variant.
+         */
+        synchronized void record(final float amount, final String variant) {
+            if (++sinceLastDecay >= decayPeriod) {
+                decay();
+            }
+
+            final int counter = find(amount, variant);
+            if (counter != -1) {
+                counts[counter]++;
+                siftDown(heapIndex[counter]);
+            } else if (size < capacity && reserve()) {
+                add(amount, variant);
+            } else if (size > 0) {
+                // Space-saving: the new quantity replaces the least detected one, and inherits its count
+                final int replaced = heap[0];
+                remove(replaced);
+                amounts[replaced] = amount;
+                variants[replaced] = variant;
+                counts[replaced]++;
+                insert(replaced);
+                siftDown(0);
+            }
+        }
+
+        /**
+         * Returns the most detected quantities of this unit.
+         *
+         * @param howMany the number of quantities to return.
+         * @return the most detected quantities of this unit.
+         */
+        synchronized List<String> top(final int howMany) {
+            final Integer [] counters = new Integer[size];
+            for (int i = 0; i < size; i++) counters[i] = i;
+            Arrays.sort(counters, (a, b) -> Long.compare(counts[b], counts[a]));
+
+            final List<String> top = new ArrayList<>();
+            for (int i = 0; i < size && top.size() < howMany && counts[counters[i]] > 0; i++) {
+                top.add(F.narrow(amounts[counters[i]]) + " " + variants[counters[i]]);
+            }
+            return top;
+        }
+
+        /**
+         * Adds a counter for the given quantity.
+         *
+         * @param amount the amount.
+         * @param variant the unit variant.
+         */
+        private void add(final float amount, final String variant) {
+            if (size == amounts.length) {
+                final int length = Math.min(capacity, Math.max(8, size * 2));
+                amounts = Arrays.copyOf(amounts, length);
+                variants = Arrays.copyOf(variants, length);
+                counts = Arrays.copyOf(counts, length);
+                heap = Arrays.copyOf(heap, length);
+                heapIndex = Arrays.copyOf(heapIndex, length);
+            }
+            if ((size + 1) * 2 > table.length) {
+                rehash(table.length * 2);
+            }
+
+            final int counter = size++;
+            amounts[counter] = amount;
+            variants[counter] = variant;
+            counts[counter] = 1;
+            insert(counter);
+            heap[counter] = counter;
+            heapIndex[counter] = counter;
+            siftUp(counter);
+        }
+
+        /**
+         * Halves all counts. The heap order is preserved, since halving is monotonic.
+         */
+        private void decay() {
+            for (int i = 0; i < size; i++) {
+                counts[i] >>>= 1;
+            }
+            sinceLastDecay = 0;
+        }
+
+        /**
+         * Returns the counter of the given quantity.
+         *
+         * @param amount the amount.
+         * @param variant the unit variant.
+         * @return the counter of the given quantity, -1 if the quantity is not recorded.
+         */
+        private int find(final float amount, final String variant) {
+            final int mask = table.length - 1;
+            for (int slot = hash(amount, variant) & mask; table[slot] != 0; slot = (slot + 1) & mask) {
+                final int counter = table[slot] - 1;
+                if (Float.floatToIntBits(amounts[counter]) == Float.floatToIntBits(amount)
+                        && variants[counter].equals(variant)) {
+                    return counter;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Inserts the given counter in the hash table.
+         *
+         * @param counter the counter.
+         */
+        private void insert(final int counter) {
+            final int mask = table.length - 1;
+            int slot = hash(amounts[counter], variants[counter]) & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = counter + 1;
+        }
+
+        /**
+         * Removes the given counter from the hash table, shifting back the entries of the same probe sequence.
+         *
+         * @param counter the counter.
+         */
+        private void remove(final int counter) {
+            final int mask = table.length - 1;
+            int slot = hash(amounts[counter], variants[counter]) & mask;
+            while (table[slot] != counter + 1) slot = (slot + 1) & mask;
+
+            table[slot] = 0;
+            for (int next = (slot + 1) & mask; table[next] != 0; next = (next + 1) & mask) {
+                final int home = hash(amounts[table[next] - 1], variants[table[next] - 1]) & mask;
+                final boolean reachable = slot <= next
+                        ? slot < home && home <= next
+                        : slot < home || home <= next;
+                if (!reachable) {
+                    table[slot] = table[next];
+                    table[next] = 0;
+                    slot = next;
+                }
+            }
+        }
+
+        /**
+         * Rebuilds the hash table with the given length.
+         *
+         * @param length the new length of the hash table (a power of two).
+         */
+        private void rehash(final int length) {
+            table = new int[length];
+            for (int i = 0; i < size; i++) {
+                insert(i);
+            }
+        }
+
+        private void siftUp(final int index) {
+            int child = index;
+            while (child > 0) {
+                final int parent = (child - 1) >>> 1;
+                if (counts[heap[parent]] <= counts[heap[child]]) {
+                    break;
+                }
+                swap(parent, child);
+                child = parent;
+            }
+        }
+
+        private void siftDown(final int index) {
+            int parent = index;
+            while (true) {
+                final int left = 2 * parent + 1;
+                if (left >= size) {
+                    break;
+                }
+
+                final int right = left + 1;
+                final int child = right < size && counts[heap[right]] < counts[heap[left]] ? right : left;
+                if (counts[heap[parent]] <= counts[heap[child]]) {
+                    break;
+                }
+                swap(parent, child);
+                parent = child;
+            }
+        }
+
+        private void swap(final int i, final int j) {
+            final int counter = heap[i];
+            heap[i] = heap[j];
+            heap[j] = counter;
+            heapIndex[heap[i]] = i;
+            heapIndex[heap[j]] = j;
+        }
+    }
+
+    private final Map<String, UnitSketch> sketches = new ConcurrentHashMap<>();
+    private final AtomicLong ramBytesUsed = new AtomicLong();
+    private final long maxRamBytes;
+    private final int capacity;
+    private final int decayPeriod;
+
+    /**
+     * Builds a new {@link HotQuantities} without a memory ceiling.
+     */
+    public HotQuantities() {
+        this(Long.MAX_VALUE);
+    }
+
+    /**
+     * Builds a new {@link HotQuantities} with the given memory ceiling.
+     *
+     * @param maxRamBytes the maximum (estimated) memory used by the recorded quantities, in bytes.
+     */
+    public HotQuantities(final long maxRamBytes) {
+        this(maxRamBytes, MAX_QUANTITIES_PER_UNIT, DECAY_PERIOD);
+    }
+
+    /**
+     * Builds a new {@link HotQuantities} with the given data.
+     *
+     * @param maxRamBytes the maximum (estimated) memory used by the recorded quantities, in bytes.
+     * @param capacity the maximum number of quantities recorded for each unit.
+     * @param decayPeriod the number of detections of a unit after which its counts are halved.
+     */
+    HotQuantities(final long maxRamBytes, final int capacity, final int decayPeriod) {
+        this.maxRamBytes = maxRamBytes;
+        this.capacity = capacity;
+        this.decayPeriod = decayPeriod;
+    }
+
+    /**
+     * Records a new detection of the given quantity.
+     *
+     * @param unitName the unit name.
+     * @param amount the detected amount.
+     * @param variant the detected unit variant.
+     */
+    void record(final String unitName, final float amount, final String variant) {
+        UnitSketch sketch = sketches.get(unitName);
+        if (sketch == null) {
+            sketch = sketches.computeIfAbsent(unitName, name -> new UnitSketch());
+        }
+        sketch.record(amount, variant);
+    }
+
+    /**
+     * Returns the (estimated) memory used by the recorded quantities, in bytes.
+     *
+     * @return the (estimated) memory used by the recorded quantities, in bytes.
+     */
+    public long ramBytesUsed() {
+        return ramBytesUsed.get();
+    }
+
+    /**
+     * Returns the most detected quantities of each unit.
+     *
+     * @param howMany the number of quantities to return for each unit.
+     * @return the most detected quantities of each unit.
+     */
+    public List<String> top(final int howMany) {
+        final List<String> top = new ArrayList<>();
+        sketches.values().forEach(sketch -> top.addAll(sketch.top(howMany)));
+        return top;
+    }
+
+    /**
+     * Reserves the memory of a new counter, within the memory ceiling.
+     *
+     * @return true if the memory has been reserved, false if the memory ceiling has been reached.
+     */
+    private boolean reserve() {
+        for (long used = ramBytesUsed.get(); used + QUANTITY_RAM_BYTES_USED <= maxRamBytes; used = ramBytesUsed.get()) {
+            if (ramBytesUsed.compareAndSet(used, used + QUANTITY_RAM_BYTES_USED)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the hash of the given quantity.
+     *
+     * @param amount the amount.
+     * @param variant the unit variant.
+     * @return the hash of the given quantity.
+     */
+    private static int hash(final float amount, final String variant) {
+        final int hash = 31 * Float.floatToIntBits(amount) + variant.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,90 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.QuantityOccurrence;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The state of the detection executed on the previous query of a sequence of queries which (mostly) extend each
+ * other, like the requests sent, for each keystroke, by an as-you-type (autocomplete) client.
+ *
+ * The occurrences detected on the previous query are reused, by the next detection, as long as they lie entirely
+ * (including the char which follows the unit) within the prefix shared by the two queries; the scan for new
+ * occurrences starts near the end of that prefix. In this way the cost of each detection depends on the number of
+ * chars which have been added (or changed), not on the length of the whole query.
+ *
+ * An instance is not meant to be shared by unrelated sequences of queries: a detection on an unrelated query is
+ * always correct, but it doesn't reuse anything. The {@link DetectionEngine} serializes the detections which use
+ * the same instance.
+ *
+ * @author agazzarini
+ * @since 1.0
+ * @see DetectionEngine#detect(String, java.util.function.Function, IncrementalDetection)
+ */
+public final class IncrementalDetection {
+    private UnitDictionary dictionary;
+    private String query = "";
+    private Map<String, List<QuantityOccurrence>> occurrences = Collections.emptyMap();
+
+    /**
+     * Discards the state of the previous detection.
+     */
+    public void reset() {
+        update(null, "", Collections.emptyMap());
+    }
+
+    /**
+     * Returns the (normalized) query of the previous detection.
+     *
+     * @return the (normalized) query of the previous detection, an empty string if there's no previous detection.
+     */
+    public String query() {
+        return query;
+    }
+
+    /**
+     * Returns the length of the prefix that the given (normalized) query shares with the query of the previous
+     * detection.
+     *
+     * @param query the normalized query buffer.
+     * @param dictionary the units dictionary of the current detection.
+     * @return the length of the shared prefix, 0 if the previous detection used a different dictionary.
+     */
+    int reusablePrefix(final CharSequence query, final UnitDictionary dictionary) {
+        if (this.dictionary != dictionary) {
+            return 0;
+        }
+
+        final int length = Math.min(query.length(), this.query.length());
+        int i = 0;
+        while (i < length && query.charAt(i) == this.query.charAt(i)) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the occurrences of the given variant detected on the previous query.
+     *
+     * @param variant the unit variant.
+     * @return the occurrences of the given variant detected on the previous query.
+     */
+    List<QuantityOccurrence> occurrences(final String variant) {
+        return occurrences.getOrDefault(variant, Collections.emptyList());
+    }
+
+    /**
+     * Replaces the state of the previous detection.
+     *
+     * @param dictionary the units dictionary used by the detection.
+     * @param query the (normalized) query.
+     * @param occurrences the detected occurrences, by variant.
+     */
+    void update(final UnitDictionary dictionary, final String query, final Map<String, List<QuantityOccurrence>> occurrences) {
+        this.dictionary = dictionary;
+        this.query = query;
+        this.occurrences = occurrences;
+    }
+}
@@ -0,0 +1,223 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.Unit;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * A read-only lookup table between unit forms (names, variants and their synonyms) and units, which lives in a
+ * {@link ByteBuffer} (typically a memory mapped snapshot file) instead of the heap. Several cores (and several JVMs)
+ * which map the same file share a single copy of the table in the OS page cache.
+ *
+ * The table is an open addressing hash table: a power of two number of slots, each one pointing to an entry
+ * made by the index of the unit and by the (UTF-16) characters of the form. The hash function is
+ * {@link String#hashCode()}, which is the same on every JVM. Lookups compare the form characters in place, without
+ * decoding the entries; only the iteration over the table creates the form strings.
+ *
+ * <pre>
+ * forms count (int) | slots count (int) | slots (int[], entry offset or -1) | entries (unit index (int), length (int), chars)
+ * </pre>
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+final class MappedUnitForms {
+    private final static int EMPTY_SLOT = -1;
+    private final static int HEADER_LENGTH = 8;
+
+    private final ByteBuffer table;
+    private final List<Unit> units;
+    private final int size;
+    private final int mask;
+    private final int entries;
+
+    /**
+     * Builds a new view of the table stored in the given buffer.
+     *
+     * @param table the buffer which contains (only) the table.
+     * @param units the units of the dictionary, which are referred by position.
+     * @throws IllegalArgumentException in case the buffer doesn't contain a valid table.
+     */
+    MappedUnitForms(final ByteBuffer table, final List<Unit> units) {
+        this.table = table.slice();
+        this.units = units;
+        this.size = this.table.getInt(0);
+        final int slots = this.table.getInt(4);
+        if (size < 0 || slots <= 0 || Integer.bitCount(slots) != 1 || HEADER_LENGTH + 4L * slots > this.table.limit()) {
+            throw new IllegalArgumentException("Invalid unit forms table");
+        }
+        this.mask = slots - 1;
+        this.entries = HEADER_LENGTH + 4 * slots;
+    }
+
+    /**
+     * Writes the table of the given lookup (form to unit) map.
+     *
+     * @param out the target stream.
+     * @param forms the lookup map between unit forms and units.
+     * @param units the units of the dictionary, which are referred by position.
+     * @throws IOException in case of I/O failure.
+     */
+    static void write(final DataOutputStream out, final Map<String, Unit> forms, final List<Unit> units) throws IOException {
+        final int slots = Integer.highestOneBit(Math.max(1, forms.size()) * 2 - 1) << 1;
+        final int [] offsets = new int[slots];
+        Arrays.fill(offsets, EMPTY_SLOT);
+
+        int offset = HEADER_LENGTH + 4 * slots;
+        for (final String form : forms.keySet()) {
+            int slot = hash(form) & (slots - 1);
+            while (offsets[slot] != EMPTY_SLOT) {
+                slot = (slot + 1) & (slots - 1);
+            }
+            offsets[slot] = offset;
+            offset += 8 + 2 * form.length();
+        }
+
+        out.writeInt(forms.size());
+        out.writeInt(slots);
+        for (final int slotOffset : offsets) {
+            out.writeInt(slotOffset);
+        }
+
+        // The entries are written in the same (iteration) order used for computing their offsets
+        for (final Map.Entry<String, Unit> entry : forms.entrySet()) {
+            out.writeInt(units.indexOf(entry.getValue()));
+            out.writeInt(entry.getKey().length());
+            out.writeChars(entry.getKey());
+        }
+    }
+
+    /**
+     * Returns the unit identified by the given form.
+     *
+     * @param form the unit form.
+     * @return the unit identified by the given form, null if the form doesn't belong to any unit.
+     */
+    Unit unit(final String form) {
+        for (int slot = hash(form) & mask; ; slot = (slot + 1) & mask) {
+            final int offset = table.getInt(HEADER_LENGTH + 4 * slot);
+            if (offset == EMPTY_SLOT) {
+                return null;
+            }
+            if (matches(offset, form)) {
+                return units.get(table.getInt(offset));
+            }
+        }
+    }
+
+    /**
+     * Returns a read-only {@link Map} view of this table, pairing each form with a value of its unit.
+     *
+     * @param value the function which computes, for each unit, the value of the map.
+     * @param <V> the value type.
+     * @return a read-only {@link Map} view of this table.
+     */
+    <V> Map<String, V> view(final Function<Unit, V> value) {
+        return new AbstractMap<String, V>() {
+            @Override
+            public V get(final Object key) {
+                final Unit unit = key instanceof String ? unit((String) key) : null;
+                return unit != null ? value.apply(unit) : null;
+            }
+
+            @Override
+            public boolean containsKey(final Object key) {
+                return key instanceof String && unit((String) key) != null;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Set<Entry<String, V>> entrySet() {
+                return new AbstractSet<Entry<String, V>>() {
+                    @Override
+                    public Iterator<Entry<String, V>> iterator() {
+                        return new Iterator<Entry<String, V>>() {
+                            private int offset = entries;
+                            private int remaining = size;
+
+                            @Override
+                            public boolean hasNext() {
+                                return remaining > 0;
+                            }
+
+                            @Override
+                            public Entry<String, V> next() {
+                                if (remaining-- == 0) {
+                                    throw new NoSuchElementException();
+                                }
+
+                                final Unit unit = units.get(table.getInt(offset));
+                                final char [] form = new char[table.getInt(offset + 4)];
+                                for (int i = 0; i < form.length; i++) {
+                                    form[i] = table.getChar(offset + 8 + 2 * i);
+                                }
+                                offset += 8 + 2 * form.length;
+                                return new SimpleImmutableEntry<>(new String(form), value.apply(unit));
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * Returns the size, in bytes, of this table.
+     *
+     * @return the size, in bytes, of this table.
+     */
+    int bytes() {
+        return table.limit();
+    }
+
+    /**
+     * Returns true if the entry at the given offset holds the given form.
+     *
+     * @param offset the entry offset.
+     * @param form the unit form.
+     * @return true if the entry at the given offset holds the given form.
+     */
+    private boolean matches(final int offset, final String form) {
+        if (table.getInt(offset + 4) != form.length()) {
+            return false;
+        }
+
+        for (int i = 0; i < form.length(); i++) {
+            if (table.getChar(offset + 8 + 2 * i) != form.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Spreads the bits of the (stable) string hash code, as {@link java.util.HashMap} does.
+     *
+     * @param form the unit form.
+     * @return the hash of the given form.
+     */
+    private static int hash(final String form) {
+        final int hash = form.hashCode();
+        return hash ^ (hash >>> 16);
+    }
+}
@@ -0,0 +1,136 @@
+package io.sease.solr.qty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalInt;
+
+import static java.util.Collections.emptyList;
+
+/**
+ * Low level routines for locating units and amounts within a (normalized) query buffer.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public abstract class QuantityMatcher {
+    /**
+     * Internal method for detecting the start offset of the (potential) detected quantity.
+     *
+     * @param q the input query buffer.
+     * @param unitIndex the start offset of the unit.
+     * @return the start offset of the (potential) detected quantity, -1 in case the detection is not a quantity.
+     */
+    public static OptionalInt startIndexOfAmount(final StringBuilder q, final int unitIndex) {
+        if (unitIndex <= 0) {
+            return OptionalInt.empty();
+        }
+
+        boolean atLeastOneDigitHasBeenMet = false;
+        int i = unitIndex - 1;
+        for (; i >= 0; i--) {
+            final char ch = q.charAt(i);
+            if (Character.isLetter(ch)) {
+                return OptionalInt.empty();
+            }
+
+            if (Character.isDigit(ch)) {
+                atLeastOneDigitHasBeenMet = true;
+            }
+
+            if (Character.isWhitespace(ch) && atLeastOneDigitHasBeenMet) {
+                    return OptionalInt.of(i + 1);
+            }
+
+            if (i == 0 && atLeastOneDigitHasBeenMet) {
+                return OptionalInt.of(i);
+            }
+        }
+        return i != -1 ? OptionalInt.of(i) : OptionalInt.empty();
+    }
+
+    /**
+     * Returns a list containing the start indexes of all the occurrences of a variant within the given query.
+     *
+     * @param query the input query string.
+     * @param variant the variant.
+     * @return a list containing the all start indexes of the given variant within the query.
+     */
+    public static List<Integer> indexesOf(final StringBuilder query, final String variant) {
+        return indexesOf(query, variant, 0);
+    }
+
+    /**
+     * Returns a list containing the start indexes of the occurrences of a variant, within the given query, which
+     * start at or after the given offset.
+     *
+     * @param query the input query string.
+     * @param variant the variant.
+     * @param fromIndex the offset the search starts from.
+     * @return a list containing the start indexes of the given variant, at or after the given offset.
+     */
+    public static List<Integer> indexesOf(final StringBuilder query, final String variant, final int fromIndex) {
+        if (query.length() <= 2) {
+            return emptyList();
+        }
+
+        if (query.charAt(0) != ' ') {
+            query.insert(0, ' ');
+        }
+
+        if (query.charAt(query.length() - 1) != ' ') {
+            query.append(" ");
+        }
+
+        final List<Integer> indexes = new ArrayList<>();
+        int indexOf = fromIndex - 1;
+        while ( (indexOf = query.indexOf(variant, indexOf + 1)) != -1) {
+            if ((indexOf == 0 || !Character.isLetter(query.charAt(indexOf - 1)))
+                    && !Character.isLetterOrDigit(query.charAt(indexOf + variant.length()))) {
+                indexes.add(indexOf);
+            }
+        }
+        return indexes;
+    }
+
+    /**
+     * Returns true if the given query string contains at least one digit.
+     *
+     * @param qstr the query string.
+     * @return true if the given query string contains at least one digit.
+     */
+    public static boolean hasDigits(final String qstr) {
+        for (int i = 0; i < qstr.length(); i++) {
+            if (Character.isDigit(qstr.charAt(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the end offset of the amount which starts at the given offset: an optional minus sign, at least one
+     * digit and at most one decimal separator.
+     *
+     * @param value the input value.
+     * @param start the start offset of the amount.
+     * @param decimalSeparator the decimal separator.
+     * @return the end offset of the amount, or the start offset if the value doesn't have an amount there.
+     */
+    public static int endIndexOfAmount(final CharSequence value, final int start, final char decimalSeparator) {
+        final int length = value.length();
+        int i = start < length && value.charAt(start) == '-' ? start + 1 : start;
+        boolean atLeastOneDigitHasBeenMet = false;
+        boolean decimalSeparatorHasBeenMet = false;
+        for (; i < length; i++) {
+            final char ch = value.charAt(i);
+            if (Character.isDigit(ch)) {
+                atLeastOneDigitHasBeenMet = true;
+            } else if (ch == decimalSeparator && !decimalSeparatorHasBeenMet) {
+                decimalSeparatorHasBeenMet = true;
+            } else {
+                break;
+            }
+        }
+        return atLeastOneDigitHasBeenMet ? i : start;
+    }
+}
@@ -0,0 +1,57 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.EquivalenceTable;
+import io.sease.solr.qty.domain.QuantityOccurrence;
+import io.sease.solr.qty.domain.Unit;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * A query builder which removes all the detected quantities from the query string.
+ * The product is the remaining query string, trimmed; it is empty if the query contained only quantities.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantityRemover implements QueryBuilder<String> {
+    private final Set<QuantityOccurrence> occurrences = new TreeSet<>();
+    private final StringBuilder buffer;
+    private final boolean removeOrphanAmounts;
+
+    /**
+     * Builds a new {@link QuantityRemover} on the given query.
+     *
+     * @param query the (normalized) query buffer.
+     * @param removeOrphanAmounts true if also the orphan amounts (i.e. amounts whose unit has been assumed) have to be removed.
+     */
+    public QuantityRemover(final StringBuilder query, final boolean removeOrphanAmounts) {
+        this.buffer = new StringBuilder(query);
+        this.removeOrphanAmounts = removeOrphanAmounts;
+    }
+
+    @Override
+    public void newQuantityDetected(
+            final EquivalenceTable equivalenceTable,
+            final Unit unit,
+            final QuantityOccurrence occurrence) {
+        occurrences.add(occurrence);
+    }
+
+    @Override
+    public void newHeuristicQuantityDetected(
+            final EquivalenceTable equivalenceTable,
+            final Unit unit,
+            final QuantityOccurrence occurrence) {
+        if (removeOrphanAmounts) {
+            occurrences.add(occurrence);
+        }
+    }
+
+    @Override
+    public String product() {
+        occurrences.forEach(occurrence ->
+                buffer.delete(occurrence.startOffset(), occurrence.endOffset()));
+        return buffer.toString().trim();
+    }
+}
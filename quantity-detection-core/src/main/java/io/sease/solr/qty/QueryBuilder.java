@@ -0,0 +1,44 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.EquivalenceTable;
+import io.sease.solr.qty.domain.QuantityOccurrence;
+import io.sease.solr.qty.domain.Unit;
+
+/**
+ * Query builder.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public interface QueryBuilder<T> {
+    /**
+     * A new quantity (i.e. amount + unit) has been detected.
+     * When this event occurs, the builder is notified through this callback
+     * with a {@link QuantityOccurrence} instance which contains all information
+     * (i.e. amount, unit, offsets) about the detected quantity.
+     *
+     * @param equivalenceTable the equivalence table.
+     * @param unit the unit associated with the detected quantity.
+     * @param occurrence the occurrence encapsulating the quantity detection.
+     */
+    void newQuantityDetected(final EquivalenceTable equivalenceTable, final Unit unit, final QuantityOccurrence occurrence);
+
+    /**
+     * A new quantity (i.e. amount + unit) has been detected.
+     * When this event occurs, the builder is notified through this callback
+     * with a {@link QuantityOccurrence} instance which contains all information
+     * (i.e. amount, unit, offsets) about the detected quantity.
+     *
+     * @param equivalenceTable the equivalence table.
+     * @param unit the unit associated with the detected quantity.
+     * @param occurrence the occurrence encapsulating the quantity detection.
+     */
+    void newHeuristicQuantityDetected(final EquivalenceTable equivalenceTable, final Unit unit, final QuantityOccurrence occurrence);
+
+    /**
+     * Returns the built query, that is, the product of this builder.
+     *
+     * @return the built query, that is, the product of this builder.
+     */
+    T product();
+}
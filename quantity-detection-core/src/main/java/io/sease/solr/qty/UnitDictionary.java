@@ -0,0 +1,295 @@
+package io.sease.solr.qty;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import io.sease.solr.qty.domain.AssumptionTable;
+import io.sease.solr.qty.domain.EquivalenceTable;
+import io.sease.solr.qty.domain.Unit;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap.SimpleEntry;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toMap;
+
+/**
+ * The compiled form of a quantity detection configuration (i.e. the units.json file): the configured units,
+ * the lookup table between unit forms (names, variants and their synonyms) and target fields, the equivalence table
+ * and the assumption table.
+ *
+ * A dictionary is immutable once it has been loaded, so it can be safely shared between several detectors.
+ * The lookup table between unit forms and units of a dictionary restored from a snapshot can be a view of the
+ * (memory mapped) snapshot file (see {@link UnitDictionarySnapshot}). Note that this saves only the hash table
+ * of that lookup (i.e. its entries): the form strings are still in the heap, since they belong to the unit
+ * variants and they are the keys of the variants map, which is iterated on each detection.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class UnitDictionary {
+    private final static JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final List<Unit> units;
+    private final Map<String, List<String>> variantsMap;
+    private final Map<String, Unit> formsMap;
+    private final EquivalenceTable equivalenceTable;
+    private final AssumptionTable assumptionTable;
+    private final MappedUnitForms mappedForms;
+    private volatile String fingerprint;
+
+    /**
+     * Builds a new {@link UnitDictionary} with the given (already read) configuration.
+     *
+     * @param units the configured units.
+     * @param equivalenceTable the equivalence table.
+     * @param assumptionTable the assumption table.
+     * @see UnitDictionaryReader
+     */
+    UnitDictionary(final List<Unit> units, final EquivalenceTable equivalenceTable, final AssumptionTable assumptionTable) {
+        this.units = unmodifiableList(units);
+        variantsMap = variants(units);
+        formsMap = unmodifiableMap(variantsMap.entrySet().stream()
+                .collect(toMap(Map.Entry::getKey, entry -> unit(entry.getValue()))));
+        this.equivalenceTable = equivalenceTable;
+        this.assumptionTable = assumptionTable;
+        this.mappedForms = null;
+    }
+
+    /**
+     * Builds a new {@link UnitDictionary} whose lookup table between unit forms and units is a view of the given
+     * (off-heap) table. The variants (forms to target fields) map, which is iterated on each detection, is built
+     * in the heap from the units, so its keys are the form strings the unit variants already hold: iterating the
+     * mapped table would decode each form, again, on every detection.
+     *
+     * @param units the configured units.
+     * @param mappedForms the lookup table between unit forms and units.
+     * @param equivalenceTable the equivalence table.
+     * @param assumptionTable the assumption table.
+     * @see UnitDictionarySnapshot
+     */
+    UnitDictionary(
+            final List<Unit> units,
+            final MappedUnitForms mappedForms,
+            final EquivalenceTable equivalenceTable,
+            final AssumptionTable assumptionTable) {
+        this.units = unmodifiableList(units);
+        this.variantsMap = variants(units);
+        this.formsMap = mappedForms.view(unit -> unit);
+        this.equivalenceTable = equivalenceTable;
+        this.assumptionTable = assumptionTable;
+        this.mappedForms = mappedForms;
+    }
+
+    /**
+     * Builds the lookup table between the forms (names, variants and synonyms) of the given units and their target
+     * fields.
+     *
+     * @param units the configured units.
+     * @return the lookup table between unit forms and the target fields.
+     */
+    private static Map<String, List<String>> variants(final List<Unit> units) {
+        return unmodifiableMap(units.stream()
+                .flatMap(unit -> {
+                    final Set<String> forms = new HashSet<>();
+                    forms.add(unit.name());
+                    unit.variants()
+                            .forEach(variant -> {
+                                forms.add(variant.refName());
+                                forms.addAll(variant.forms());
+                            });
+                    return forms.stream().map(form -> new SimpleEntry<>(form, unit.fieldNames()));})
+                .collect(toMap(SimpleEntry::getKey, SimpleEntry::getValue)));
+    }
+
+    /**
+     * Reads and compiles the configuration provided by the given stream.
+     *
+     * @param configuration the quantity detection configuration stream.
+     * @return the compiled dictionary.
+     * @throws IOException in case of I/O failure.
+     */
+    public static UnitDictionary load(final InputStream configuration) throws IOException {
+        return load(JSON_FACTORY.createParser(configuration));
+    }
+
+    /**
+     * Reads and compiles the configuration provided by the given parser, in a single (streaming) pass.
+     * The parser is closed once the configuration has been read.
+     *
+     * @param configuration the quantity detection configuration parser.
+     * @return the compiled dictionary.
+     * @throws IOException in case of I/O failure or if the configuration is not valid.
+     */
+    public static UnitDictionary load(final JsonParser configuration) throws IOException {
+        try (final JsonParser parser = configuration) {
+            return UnitDictionaryReader.read(parser);
+        }
+    }
+
+    /**
+     * Returns the configured units.
+     *
+     * @return the configured units.
+     */
+    public List<Unit> units() {
+        return units;
+    }
+
+    /**
+     * Returns the lookup table between unit forms (names, variants and synonyms) and the target fields.
+     *
+     * @return the lookup table between unit forms and the target fields.
+     */
+    public Map<String, List<String>> variants() {
+        return variantsMap;
+    }
+
+    /**
+     * Returns true if the (hash table of the) lookup between unit forms and units of this dictionary lives outside
+     * the heap, i.e. in a memory mapped snapshot. The form strings are in the heap anyway.
+     *
+     * @return true if the lookup table between unit forms and units of this dictionary lives outside the heap.
+     */
+    public boolean isMapped() {
+        return mappedForms != null;
+    }
+
+    /**
+     * Returns the size, in bytes, of the (off-heap) forms lookup table of this dictionary.
+     *
+     * @return the size of the off-heap forms lookup table of this dictionary, 0 if the table lives in the heap.
+     */
+    public long mappedBytes() {
+        return mappedForms != null ? mappedForms.bytes() : 0;
+    }
+
+    /**
+     * Returns a digest of the units of this dictionary (names, target fields and forms), which identifies the
+     * dictionary across JVMs: two dictionaries have the same fingerprint if and only if (barring digest collisions)
+     * they reference the same units by the same positions, like the compact form of a {@link DetectionTranscript} does.
+     *
+     * @return the hex SHA-256 digest of the units of this dictionary.
+     */
+    public String fingerprint() {
+        if (fingerprint == null) {
+            final StringBuilder content = new StringBuilder();
+            units.forEach(unit -> content.append(unit.name()).append('\u001F').append(unit.fieldNames()).append('\u001E'));
+            new TreeMap<>(formsMap).forEach((form, unit) ->
+                    content.append(form).append('\u001F').append(units.indexOf(unit)).append('\u001E'));
+            fingerprint = digest(content.toString());
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Returns the (hex) SHA-256 digest of the given string.
+     *
+     * @param value the string.
+     * @return the (hex) SHA-256 digest of the given string.
+     */
+    static String digest(final String value) {
+        try {
+            final byte [] hash = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            final StringBuilder hex = new StringBuilder(hash.length * 2);
+            for (final byte b : hash) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (final NoSuchAlgorithmException exception) {
+            // Every JVM is required to support SHA-256
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Returns the equivalence table.
+     *
+     * @return the equivalence table.
+     */
+    public EquivalenceTable equivalenceTable() {
+        return equivalenceTable;
+    }
+
+    /**
+     * Returns the assumption table.
+     *
+     * @return the assumption table.
+     */
+    public AssumptionTable assumptionTable() {
+        return assumptionTable;
+    }
+
+    /**
+     * Finds, in the configuration, the unit associated with the given field names.
+     *
+     * @param fieldNames the field name.
+     * @return the unit associated with the given field name.
+     */
+    public Unit unit(final List<String> fieldNames) {
+        return units.stream()
+                .filter(unit -> unit.fieldNames().equals(fieldNames))
+                .findFirst()
+                .get();
+    }
+
+    /**
+     * Returns the unit identified by the given form (i.e. name, variant or variant synonym).
+     *
+     * @param form the unit form.
+     * @return the unit identified by the given form, empty if the form doesn't belong to any configured unit.
+     */
+    public Optional<Unit> unitByForm(final String form) {
+        return ofNullable(formsMap.get(form));
+    }
+
+    /**
+     * Converts the given amount, expressed with the given form, in the reference variant of the given unit.
+     *
+     * @param unit the unit.
+     * @param form the unit form (i.e. name, variant or variant synonym) the amount is expressed with.
+     * @param amount the amount.
+     * @return the converted amount, empty if the form doesn't belong to the given unit.
+     */
+    public Optional<Number> equivalent(final Unit unit, final String form, final Number amount) {
+        return unit.getVariantByName(form)
+                .map(variant -> equivalenceTable.equivalent(variant.refName(), amount));
+    }
+
+    /**
+     * Finds, in the configuration, the unit associated with the given name.
+     *
+     * @param name the unit name.
+     * @return the unit associated with the given name.
+     */
+    public Unit unitByName(final String name) {
+        return units.stream()
+                .filter(unit -> unit.name().equals(name))
+                .findFirst()
+                .orElse(Unit.NULL_UNIT);
+    }
+
+    /**
+     * Finds, in the configuration, the unit associated with the given identifier (name or variant).
+     *
+     * @param name the unit name.
+     * @return the unit associated with the given identifier.
+     */
+    public Unit unitByIdentifier(final String name) {
+        return units.stream()
+                .filter(unit -> unit.isIdentifiedBy(name))
+                .findFirst()
+                .orElse(Unit.NULL_UNIT);
+    }
+}
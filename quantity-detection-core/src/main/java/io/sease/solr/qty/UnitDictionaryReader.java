@@ -0,0 +1,360 @@
+package io.sease.solr.qty;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.sease.solr.qty.domain.AssumptionTable;
+import io.sease.solr.qty.domain.EquivalenceTable;
+import io.sease.solr.qty.domain.Unit;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import static java.util.Arrays.stream;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A streaming reader of the quantity detection configuration (i.e. the units.json file).
+ * The configuration is compiled directly from the parser tokens, without building the intermediate JSON tree, so
+ * large (e.g. generated) configurations are loaded with a single pass and without the corresponding garbage.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+final class UnitDictionaryReader {
+    private final static String DEFAULT_GAP_MODE = "PIVOT";
+
+    private final JsonParser parser;
+
+    private final List<Unit> units = new ArrayList<>();
+    private final Map<String, Number> equivalences = new HashMap<>();
+    private final Map<String, List<AssumptionTable.Range>> assumptions = new LinkedHashMap<>();
+    private String assumedUnit;
+
+    /**
+     * Builds a new reader on top of the given parser.
+     *
+     * @param parser the JSON parser, positioned before the configuration object.
+     */
+    private UnitDictionaryReader(final JsonParser parser) {
+        this.parser = parser;
+    }
+
+    /**
+     * Reads and compiles the configuration provided by the given parser.
+     *
+     * @param parser the JSON parser, positioned before the configuration object.
+     * @return the compiled dictionary.
+     * @throws IOException in case of I/O failure or if the configuration is not valid.
+     */
+    static UnitDictionary read(final JsonParser parser) throws IOException {
+        return new UnitDictionaryReader(parser).read();
+    }
+
+    /**
+     * Reads the whole configuration.
+     *
+     * @return the compiled dictionary.
+     * @throws IOException in case of I/O failure or if the configuration is not valid.
+     */
+    private UnitDictionary read() throws IOException {
+        expect(parser.nextToken(), JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            parser.nextToken();
+            switch (name) {
+                case "units":
+                    readUnits();
+                    break;
+                case "equivalence.table":
+                    readEquivalences();
+                    break;
+                case "assumption.table":
+                    readAssumptions();
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        final AssumptionTable assumptionTable = new AssumptionTable(
+                assumedUnit != null
+                        ? units.stream().filter(unit -> unit.name().equals(assumedUnit)).findFirst().orElse(Unit.NULL_UNIT)
+                        : Unit.NULL_UNIT);
+        assumptions.forEach((unitName, ranges) -> ranges.forEach(range -> assumptionTable.addRule(unitName, range)));
+        return new UnitDictionary(units, new EquivalenceTable(equivalences), assumptionTable);
+    }
+
+    /**
+     * Reads the "units" section, where each entry pairs the (comma separated) target field names with a unit.
+     *
+     * @throws IOException in case of I/O failure or if the configuration is not valid.
+     */
+    private void readUnits() throws IOException {
+        expect(parser.getCurrentToken(), JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String fieldNames = parser.getCurrentName();
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            units.add(readUnit(fieldNames));
+        }
+    }
+
+    /**
+     * Reads the definition of a unit.
+     * Since the unit name can follow the other attributes, those are collected and applied once the unit has been
+     * created.
+     *
+     * @param fieldNames the (comma separated) target field names.
+     * @return the unit.
+     * @throws IOException in case of I/O failure or if the configuration is not valid.
+     */
+    private Unit readUnit(final String fieldNames) throws IOException {
+        final List<String> targetFields = stream(fieldNames.split(","))
+                .map(String::trim)
+                .filter(fieldName -> !fieldName.isEmpty())
+                .collect(toList());
+        final List<Consumer<Unit>> attributes = new ArrayList<>();
+        String unitName = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            switch (name) {
+                case "unit":
+                    unitName = parser.getValueAsString();
+                    break;
+                case "boost":
+                    if (token == JsonToken.START_OBJECT) {
+                        readBoosts(targetFields, attributes);
+                    } else {
+                        final float boost = parser.getFloatValue();
+                        attributes.add(unit -> unit.setDefaultBoost(boost));
+                    }
+                    break;
+                case "gap":
+                    expect(token, JsonToken.START_OBJECT);
+                    readGaps(targetFields, attributes);
+                    break;
+                case "variants":
+                    expect(token, JsonToken.START_OBJECT);
+                    readVariants(attributes);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+
+        if (unitName == null) {
+            throw new JsonParseException("Missing unit name for " + fieldNames, parser.getCurrentLocation());
+        }
+
+        final Unit unit = new Unit(fieldNames, unitName);
+        attributes.forEach(attribute -> attribute.accept(unit));
+        return unit;
+    }
+
+    /**
+     * Reads the boost object of a unit: a default value and (optionally) a value for each target field.
+     *
+     * @param fieldNames the target field names.
+     * @param attributes the unit attributes collector.
+     * @throws IOException in case of I/O failure or if the configuration is not valid.
+     */
+    private void readBoosts(final List<String> fieldNames, final List<Consumer<Unit>> attributes) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            if ("value".equals(name)) {
+                final float boost = parser.getFloatValue();
+                attributes.add(unit -> unit.setDefaultBoost(boost));
+            } else if (token == JsonToken.START_OBJECT && fieldNames.contains(name)) {
+                Float boost = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String attribute = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("value".equals(attribute)) {
+                        boost = parser.getFloatValue();
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+
+                if (boost != null) {
+                    final float value = boost;
+                    attributes.add(unit -> unit.addBoost(name, value));
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Reads the gap object of a unit: the default gap and (optionally) a gap for each target field.
+     *
+     * @param fieldNames the target field names.
+     * @param attributes the unit attributes collector.
+     * @throws IOException in case of I/O failure or if the configuration is not valid.
+     */
+    private void readGaps(final List<String> fieldNames, final List<Consumer<Unit>> attributes) throws IOException {
+        final GapDefinition defaultGap = new GapDefinition();
+        final Map<String, GapDefinition> overrides = new LinkedHashMap<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            final JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT && fieldNames.contains(name)) {
+                final GapDefinition override = new GapDefinition();
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    final String attribute = parser.getCurrentName();
+                    parser.nextToken();
+                    override.read(attribute);
+                }
+                overrides.put(name, override);
+            } else {
+                defaultGap.read(name);
+            }
+        }
+
+        attributes.add(unit -> {
+            unit.setGap(defaultGap.value, defaultGap.mode, defaultGap.matches, defaultGap.percentile, defaultGap.buckets);
+            overrides.forEach((fieldName, gap) ->
+                    unit.addGap(fieldName, gap.value, gap.mode, gap.matches, gap.percentile, gap.buckets));
+        });
+    }
+
+    /**
+     * Reads the variants object of a unit, which pairs each variant with its synonyms.
+     *
+     * @param attributes the unit attributes collector.
+     * @throws IOException in case of I/O failure or if the configuration is not valid.
+     */
+    private void readVariants(final List<Consumer<Unit>> attributes) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String variant = parser.getCurrentName();
+            expect(parser.nextToken(), JsonToken.START_ARRAY);
+            final List<String> synonyms = new ArrayList<>();
+            while (parser.nextToken() != JsonToken.END_ARRAY) {
+                synonyms.add(parser.getValueAsString());
+            }
+            attributes.add(unit -> unit.addVariant(variant, synonyms));
+        }
+    }
+
+    /**
+     * Reads the equivalence table, which pairs each reference unit with the conversion factors of its variants.
+     *
+     * @throws IOException in case of I/O failure or if the configuration is not valid.
+     */
+    private void readEquivalences() throws IOException {
+        expect(parser.getCurrentToken(), JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            equivalences.put(parser.getCurrentName(), 1);
+            expect(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String variant = parser.getCurrentName();
+                parser.nextToken();
+                equivalences.put(variant, parser.getFloatValue());
+            }
+        }
+    }
+
+    /**
+     * Reads the assumption table: the default unit and the ranges associated with each unit.
+     *
+     * @throws IOException in case of I/O failure or if the configuration is not valid.
+     */
+    private void readAssumptions() throws IOException {
+        expect(parser.getCurrentToken(), JsonToken.START_OBJECT);
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String name = parser.getCurrentName();
+            parser.nextToken();
+            if ("default".equals(name)) {
+                assumedUnit = parser.getValueAsString();
+                continue;
+            }
+
+            expect(parser.getCurrentToken(), JsonToken.START_ARRAY);
+            final List<AssumptionTable.Range> ranges = assumptions.computeIfAbsent(name, key -> new ArrayList<>());
+            while (parser.nextToken() == JsonToken.START_ARRAY) {
+                parser.nextToken();
+                final float lowestBound = bound(Float.MIN_VALUE);
+                parser.nextToken();
+                final float highestBound = bound(Float.MAX_VALUE);
+                expect(parser.nextToken(), JsonToken.END_ARRAY);
+                ranges.add(new AssumptionTable.Range(lowestBound, highestBound));
+            }
+        }
+    }
+
+    /**
+     * Returns the range bound at the current token, where "*" stands for an unbounded side.
+     *
+     * @param unbounded the value of the unbounded side.
+     * @return the range bound at the current token.
+     * @throws IOException in case of I/O failure or if the configuration is not valid.
+     */
+    private float bound(final float unbounded) throws IOException {
+        final String value = parser.getValueAsString();
+        return "*".equals(value) ? unbounded : Float.parseFloat(value);
+    }
+
+    /**
+     * Checks the given token.
+     *
+     * @param token the actual token.
+     * @param expected the expected token.
+     * @throws JsonParseException if the actual token doesn't match the expected one.
+     */
+    private void expect(final JsonToken token, final JsonToken expected) throws JsonParseException {
+        if (token != expected) {
+            throw new JsonParseException("Expected " + expected + " but found " + token, parser.getCurrentLocation());
+        }
+    }
+
+    /**
+     * The attributes of a gap, as they are read from the configuration.
+     *
+     * @author agazzarini
+     * @since 1.0
+     */
+    private class GapDefinition {
+        Float value;
+        String mode = DEFAULT_GAP_MODE;
+        Integer matches;
+        Float percentile;
+        boolean buckets;
+
+        /**
+         * Reads the value of the given gap attribute, at the current token.
+         *
+         * @param attribute the attribute name.
+         * @throws IOException in case of I/O failure or if the configuration is not valid.
+         */
+        void read(final String attribute) throws IOException {
+            final boolean isNull = parser.getCurrentToken() == JsonToken.VALUE_NULL;
+            switch (attribute) {
+                case "value":
+                    value = isNull ? null : parser.getFloatValue();
+                    break;
+                case "mode":
+                    mode = isNull ? DEFAULT_GAP_MODE : parser.getValueAsString(DEFAULT_GAP_MODE);
+                    break;
+                case "matches":
+                    matches = isNull ? null : parser.getIntValue();
+                    break;
+                case "percentile":
+                    percentile = isNull ? null : parser.getFloatValue();
+                    break;
+                case "buckets":
+                    buckets = parser.getValueAsBoolean(false);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+    }
+}
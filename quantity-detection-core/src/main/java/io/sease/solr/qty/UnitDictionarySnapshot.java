@@ -0,0 +1,382 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.AssumptionTable;
+import io.sease.solr.qty.domain.EquivalenceTable;
+import io.sease.solr.qty.domain.Unit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * A compact binary snapshot of a compiled {@link UnitDictionary}, which is stored next to the source configuration
+ * (e.g. units.json.snapshot) and restored, on the next loads, without parsing the JSON configuration.
+ *
+ * The snapshot records the checksum of the source configuration it has been compiled from: a snapshot whose checksum
+ * doesn't match the current source is stale and it is ignored, as well as a corrupted snapshot (the payload has its
+ * own checksum). In both cases the caller is supposed to compile the JSON configuration and to write a new snapshot.
+ *
+ * The payload ends with the lookup table between unit forms and units (see {@link MappedUnitForms}): a snapshot can be
+ * restored either in the heap or with its forms lookup table left in the (memory mapped) file.
+ *
+ * <pre>
+ * magic (int) | version (int) | source checksum (long) | payload length (int) | payload | payload checksum (long)
+ * </pre>
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public final class UnitDictionarySnapshot {
+    public final static String SNAPSHOT_SUFFIX = ".snapshot";
+
+    private final static int MAGIC = 0x51545953; // QTYS
+    private final static int VERSION = 2;
+    private final static int HEADER_LENGTH = 4 + 4 + 8 + 4;
+    private final static int TRAILER_LENGTH = 8;
+
+    /**
+     * The field name used for reading the default gap and boost of a unit (no field can have an empty name).
+     */
+    private final static String DEFAULT_FIELD = "";
+
+    private UnitDictionarySnapshot() {}
+
+    /**
+     * Returns the checksum of the given source configuration.
+     *
+     * @param source the source configuration (e.g. the content of units.json).
+     * @return the checksum of the given source configuration.
+     */
+    public static long checksum(final byte [] source) {
+        final CRC32 crc = new CRC32();
+        crc.update(source, 0, source.length);
+        return crc.getValue();
+    }
+
+    /**
+     * Writes a snapshot of the given dictionary in the given file.
+     * The snapshot is written in a temporary file which then replaces the target file, so concurrent readers never
+     * see a partially written snapshot.
+     *
+     * @param dictionary the compiled dictionary.
+     * @param sourceChecksum the checksum of the source configuration the dictionary has been compiled from.
+     * @param snapshot the snapshot file.
+     * @throws IOException in case of I/O failure.
+     */
+    public static void write(final UnitDictionary dictionary, final long sourceChecksum, final Path snapshot) throws IOException {
+        final Path temporary = Files.createTempFile(snapshot.toAbsolutePath().getParent(), snapshot.getFileName().toString(), ".tmp");
+        try {
+            try (final OutputStream out = Files.newOutputStream(temporary)) {
+                write(dictionary, sourceChecksum, out);
+            }
+
+            try {
+                Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (final AtomicMoveNotSupportedException exception) {
+                Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Writes a snapshot of the given dictionary in the given stream.
+     *
+     * @param dictionary the compiled dictionary.
+     * @param sourceChecksum the checksum of the source configuration the dictionary has been compiled from.
+     * @param out the target stream.
+     * @throws IOException in case of I/O failure.
+     */
+    public static void write(final UnitDictionary dictionary, final long sourceChecksum, final OutputStream out) throws IOException {
+        final ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        final DataOutputStream data = new DataOutputStream(payload);
+        data.writeInt(dictionary.units().size());
+        for (final Unit unit : dictionary.units()) {
+            writeUnit(data, unit);
+        }
+
+        final Map<String, Number> equivalences = dictionary.equivalenceTable().rules();
+        data.writeInt(equivalences.size());
+        for (final Map.Entry<String, Number> rule : equivalences.entrySet()) {
+            writeString(data, rule.getKey());
+            data.writeFloat(rule.getValue().floatValue());
+        }
+
+        final AssumptionTable assumptions = dictionary.assumptionTable();
+        writeString(data, assumptions.defaultUnit().name());
+        data.writeInt(assumptions.rules().size());
+        for (final Map.Entry<AssumptionTable.Range, String> rule : assumptions.rules().entrySet()) {
+            data.writeFloat(rule.getKey().lowestBound());
+            data.writeFloat(rule.getKey().highestBound());
+            writeString(data, rule.getValue());
+        }
+
+        final Map<String, Unit> forms = new LinkedHashMap<>();
+        dictionary.variants().keySet().forEach(form -> forms.put(form, dictionary.unitByForm(form).get()));
+        MappedUnitForms.write(data, forms, dictionary.units());
+        data.flush();
+
+        final byte [] bytes = payload.toByteArray();
+        final DataOutputStream snapshot = new DataOutputStream(out);
+        snapshot.writeInt(MAGIC);
+        snapshot.writeInt(VERSION);
+        snapshot.writeLong(sourceChecksum);
+        snapshot.writeInt(bytes.length);
+        snapshot.write(bytes);
+        snapshot.writeLong(checksum(bytes));
+        snapshot.flush();
+    }
+
+    /**
+     * Restores, in the heap, the dictionary stored in the given (memory mapped) snapshot file.
+     *
+     * @param snapshot the snapshot file.
+     * @param sourceChecksum the checksum of the current source configuration.
+     * @return the restored dictionary, empty if the snapshot doesn't exist, is stale or is not valid.
+     * @throws IOException in case of I/O failure.
+     */
+    public static Optional<UnitDictionary> read(final Path snapshot, final long sourceChecksum) throws IOException {
+        return read(snapshot, sourceChecksum, false);
+    }
+
+    /**
+     * Restores the dictionary stored in the given (memory mapped) snapshot file.
+     * If the dictionary is mapped, its forms lookup table is a view of the mapped file, which remains mapped as long as
+     * the dictionary is reachable.
+     *
+     * @param snapshot the snapshot file.
+     * @param sourceChecksum the checksum of the current source configuration.
+     * @param mapped true if the forms lookup table of the dictionary has to be left in the mapped file.
+     * @return the restored dictionary, empty if the snapshot doesn't exist, is stale or is not valid.
+     * @throws IOException in case of I/O failure.
+     */
+    public static Optional<UnitDictionary> read(final Path snapshot, final long sourceChecksum, final boolean mapped) throws IOException {
+        try (final FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()), sourceChecksum, mapped);
+        } catch (final NoSuchFileException exception) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Restores, in the heap, the dictionary stored in the given snapshot buffer.
+     *
+     * @param snapshot the snapshot buffer.
+     * @param sourceChecksum the checksum of the current source configuration.
+     * @return the restored dictionary, empty if the snapshot is stale or is not valid.
+     */
+    public static Optional<UnitDictionary> read(final ByteBuffer snapshot, final long sourceChecksum) {
+        return read(snapshot, sourceChecksum, false);
+    }
+
+    /**
+     * Restores the dictionary stored in the given snapshot buffer.
+     *
+     * @param snapshot the snapshot buffer.
+     * @param sourceChecksum the checksum of the current source configuration.
+     * @param mapped true if the forms lookup table of the dictionary has to be a view of the given buffer.
+     * @return the restored dictionary, empty if the snapshot is stale or is not valid.
+     */
+    public static Optional<UnitDictionary> read(final ByteBuffer snapshot, final long sourceChecksum, final boolean mapped) {
+        if (snapshot.remaining() < HEADER_LENGTH + TRAILER_LENGTH
+                || snapshot.getInt() != MAGIC
+                || snapshot.getInt() != VERSION
+                || snapshot.getLong() != sourceChecksum) {
+            return Optional.empty();
+        }
+
+        final int length = snapshot.getInt();
+        if (length < 0 || length != snapshot.remaining() - TRAILER_LENGTH) {
+            return Optional.empty();
+        }
+
+        final ByteBuffer payload = snapshot.slice();
+        payload.limit(length);
+        final CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        snapshot.position(snapshot.position() + length);
+        if (crc.getValue() != snapshot.getLong()) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(readDictionary(payload, mapped));
+        } catch (final BufferUnderflowException | IllegalArgumentException | NegativeArraySizeException exception) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Reads the dictionary stored in the given (already validated) payload.
+     *
+     * @param payload the snapshot payload.
+     * @param mapped true if the forms lookup table of the dictionary has to be a view of the payload.
+     * @return the dictionary stored in the given payload.
+     */
+    private static UnitDictionary readDictionary(final ByteBuffer payload, final boolean mapped) {
+        final int unitsCount = payload.getInt();
+        final List<Unit> units = new ArrayList<>(unitsCount);
+        for (int i = 0; i < unitsCount; i++) {
+            units.add(readUnit(payload));
+        }
+
+        final int equivalencesCount = payload.getInt();
+        final Map<String, Number> equivalences = new HashMap<>();
+        for (int i = 0; i < equivalencesCount; i++) {
+            equivalences.put(readString(payload), payload.getFloat());
+        }
+
+        final String assumedUnit = readString(payload);
+        final AssumptionTable assumptionTable = new AssumptionTable(
+                units.stream().filter(unit -> unit.name().equals(assumedUnit)).findFirst().orElse(Unit.NULL_UNIT));
+        final int assumptionsCount = payload.getInt();
+        for (int i = 0; i < assumptionsCount; i++) {
+            final AssumptionTable.Range range = new AssumptionTable.Range(payload.getFloat(), payload.getFloat());
+            assumptionTable.addRule(readString(payload), range);
+        }
+
+        return mapped
+                ? new UnitDictionary(units, new MappedUnitForms(payload, units), new EquivalenceTable(equivalences), assumptionTable)
+                : new UnitDictionary(units, new EquivalenceTable(equivalences), assumptionTable);
+    }
+
+    /**
+     * Writes the given unit: the default gap and boost, followed by the overrides of each field.
+     *
+     * @param out the target stream.
+     * @param unit the unit.
+     * @throws IOException in case of I/O failure.
+     */
+    private static void writeUnit(final DataOutputStream out, final Unit unit) throws IOException {
+        writeString(out, String.join(",", unit.fieldNames()));
+        writeString(out, unit.name());
+
+        final Optional<Float> defaultBoost = unit.boost(DEFAULT_FIELD);
+        final Unit.Gap defaultGap = unit.gap(DEFAULT_FIELD).y.orElse(null);
+        writeFloat(out, defaultBoost.orElse(null));
+        writeGap(out, defaultGap);
+        for (final String fieldName : unit.fieldNames()) {
+            final Optional<Float> boost = unit.boost(fieldName);
+            final Unit.Gap gap = unit.gap(fieldName).y.orElse(null);
+            writeFloat(out, boost.equals(defaultBoost) ? null : boost.orElse(null));
+            writeGap(out, gap == defaultGap ? null : gap);
+        }
+
+        out.writeInt(unit.variants().size());
+        for (final Unit.Variant variant : unit.variants()) {
+            writeString(out, variant.refName());
+            out.writeInt(variant.forms().size());
+            for (final String form : variant.forms()) {
+                writeString(out, form);
+            }
+        }
+    }
+
+    /**
+     * Reads a unit.
+     *
+     * @param in the snapshot payload.
+     * @return the unit.
+     */
+    private static Unit readUnit(final ByteBuffer in) {
+        final Unit unit = new Unit(readString(in), readString(in));
+
+        final Float defaultBoost = readFloat(in);
+        if (defaultBoost != null) {
+            unit.setDefaultBoost(defaultBoost);
+        }
+        if (in.get() != 0) {
+            unit.setGap(readFloat(in), readString(in), readInteger(in), readFloat(in), in.get() != 0);
+        }
+
+        for (final String fieldName : unit.fieldNames()) {
+            final Float boost = readFloat(in);
+            if (boost != null) {
+                unit.addBoost(fieldName, boost);
+            }
+            if (in.get() != 0) {
+                unit.addGap(fieldName, readFloat(in), readString(in), readInteger(in), readFloat(in), in.get() != 0);
+            }
+        }
+
+        final int variantsCount = in.getInt();
+        for (int i = 0; i < variantsCount; i++) {
+            final String refName = readString(in);
+            final int formsCount = in.getInt();
+            final List<String> forms = new ArrayList<>(formsCount);
+            for (int j = 0; j < formsCount; j++) {
+                forms.add(readString(in));
+            }
+            unit.addVariant(refName, forms);
+        }
+        return unit;
+    }
+
+    /**
+     * Writes the given (optional) gap.
+     *
+     * @param out the target stream.
+     * @param gap the gap, null if there's no gap.
+     * @throws IOException in case of I/O failure.
+     */
+    private static void writeGap(final DataOutputStream out, final Unit.Gap gap) throws IOException {
+        out.writeBoolean(gap != null);
+        if (gap != null) {
+            writeFloat(out, gap.value() != null ? gap.value().floatValue() : null);
+            writeString(out, gap.mode().name());
+            out.writeBoolean(gap.matches() != null);
+            if (gap.matches() != null) {
+                out.writeInt(gap.matches());
+            }
+            writeFloat(out, gap.percentile());
+            out.writeBoolean(gap.declaresBuckets());
+        }
+    }
+
+    private static void writeFloat(final DataOutputStream out, final Float value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeFloat(value);
+        }
+    }
+
+    private static Float readFloat(final ByteBuffer in) {
+        return in.get() != 0 ? in.getFloat() : null;
+    }
+
+    private static Integer readInteger(final ByteBuffer in) {
+        return in.get() != 0 ? in.getInt() : null;
+    }
+
+    private static void writeString(final DataOutputStream out, final String value) throws IOException {
+        final byte [] bytes = value.getBytes(UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(final ByteBuffer in) {
+        final byte [] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -1,5 +1,6 @@
 package io.sease.solr.qty.domain;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -34,6 +35,24 @@ public class AssumptionTable {
             this.hashcode = Float.valueOf(lowestBound).hashCode() + Float.valueOf(highestBound).hashCode();
         }
 
+        /**
+         * Returns the lowest bound of this range.
+         *
+         * @return the lowest bound of this range.
+         */
+        public float lowestBound() {
+            return lowestBound;
+        }
+
+        /**
+         * Returns the highest bound of this range.
+         *
+         * @return the highest bound of this range.
+         */
+        public float highestBound() {
+            return highestBound;
+        }
+
         /**
          * Returns true if the given number is falling within the interval represented by this range.
          *
@@ -78,6 +97,33 @@ public class AssumptionTable {
         return !(table.isEmpty() && defaultUnit == Unit.NULL_UNIT);
     }
 
+    /**
+     * Returns the number of rules in this table.
+     *
+     * @return the number of rules in this table.
+     */
+    public int size() {
+        return table.size();
+    }
+
+    /**
+     * Returns the (unmodifiable) rules of this table, pairing a range with a unit name.
+     *
+     * @return the rules of this table.
+     */
+    public Map<Range, String> rules() {
+        return Collections.unmodifiableMap(table);
+    }
+
+    /**
+     * Returns the unit used for "orphan" amounts if no other rule is found.
+     *
+     * @return the default unit of this table, {@link Unit#NULL_UNIT} if there's no default unit.
+     */
+    public Unit defaultUnit() {
+        return defaultUnit;
+    }
+
     /**
      * Adds a new rule to this table.
      * A rule basically associates a unit with a range.
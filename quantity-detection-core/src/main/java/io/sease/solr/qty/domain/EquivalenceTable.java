@@ -35,4 +35,22 @@ public class EquivalenceTable {
         final float factor = table.getOrDefault(unitName, 1).floatValue();
         return F.narrow(factor > 0 ? amount.floatValue() / factor : amount.floatValue() * factor);
     }
+
+    /**
+     * Returns the number of equivalence rules in this table.
+     *
+     * @return the number of equivalence rules in this table.
+     */
+    public int size() {
+        return table.size();
+    }
+
+    /**
+     * Returns the (unmodifiable) rules of this table, pairing a unit (name) with its conversion factor.
+     *
+     * @return the rules of this table.
+     */
+    public Map<String, Number> rules() {
+        return table;
+    }
 }
@@ -33,6 +33,16 @@ package io.sease.solr.qty.domain;
  *     </li>
  * </ul>
  *
+ * <h3>Adaptive gaps</h3>
+ * A gap, regardless its mode, can be declared adaptive by adding a "matches" (a target number of matching values)
+ * or a "percentile" (a target percentage of the documents which have a value) attribute:
+ *
+ * <p>"gap": { "value": 10, "mode": "PIVOT", "matches": 50 }</p>
+ *
+ * In that case, when the index statistics are available, the gap value is computed at query time from the value
+ * distribution of the target field, so that the generated range matches (approximately) the target number of values.
+ * The configured value is used as a fallback when statistics are not available.
+ *
  * @author agazzarini
  * @since 1.0
  */
@@ -16,7 +16,7 @@ public class Pair<X,Y> {
      * @param x the first member.
      * @param y the second member.
      */
-    Pair(final X x, final Y y) {
+    public Pair(final X x, final Y y) {
         this.x = x;
         this.y = y;
     }
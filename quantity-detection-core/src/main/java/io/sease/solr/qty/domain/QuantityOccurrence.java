@@ -48,12 +48,32 @@ public class QuantityOccurrence implements Comparable<QuantityOccurrence> {
      * @param indexOfUnit the start index of the unit within the (query) string.
      */
     private QuantityOccurrence(final Number amount, final String unit, final List<String> fieldNames, final int indexOfAmount, final int indexOfUnit) {
+        this(amount, unit, fieldNames, indexOfAmount, indexOfUnit, -1);
+    }
+
+    /**
+     * Builds a new {@link QuantityOccurrence} with the given data.
+     *
+     * @param amount the amount.
+     * @param unit the unit.
+     * @param fieldNames the field names in the Solr schema.
+     * @param indexOfAmount the start index of the amount within the (query) string.
+     * @param indexOfUnit the start index of the unit within the (query) string.
+     * @param amountLength the length of the amount within the (query) string.
+     */
+    private QuantityOccurrence(
+            final Number amount,
+            final String unit,
+            final List<String> fieldNames,
+            final int indexOfAmount,
+            final int indexOfUnit,
+            final int amountLength) {
         this.amount = amount;
         this.unit = unit;
         this.fieldNames = fieldNames;
         this.indexOfAmount = indexOfAmount;
         this.indexOfUnit = indexOfUnit;
-        amountLength = -1;
+        this.amountLength = this.indexOfUnit == -1 ? amountLength : -1;
     }
 
     /**
@@ -75,6 +95,27 @@ public class QuantityOccurrence implements Comparable<QuantityOccurrence> {
         return new QuantityOccurrence(amount, unit, fieldNames, indexOfAmount, indexOfUnit);
     }
 
+    /**
+     * Creates a new {@link QuantityOccurrence} with an already parsed amount.
+     *
+     * @param amount the occurrence amount.
+     * @param unit the associated unit.
+     * @param fieldNames the field names in the schema.
+     * @param indexOfUnit the start offset of the unit (within the input query), -1 if the unit has been assumed.
+     * @param indexOfAmount the start offset of the amount (within the input query).
+     * @param amountLength the length of the amount (within the input query).
+     * @return a new {@link QuantityOccurrence} instance.
+     */
+    public static QuantityOccurrence newQuantityOccurrence(
+            final float amount,
+            final String unit,
+            final List<String> fieldNames,
+            final int indexOfUnit,
+            final int indexOfAmount,
+            final int amountLength) {
+        return new QuantityOccurrence(amount, unit, fieldNames, indexOfAmount, indexOfUnit, amountLength);
+    }
+
     /**
      * Creates a new {@link QuantityOccurrence} with no offsets.
      *
@@ -150,6 +191,24 @@ public class QuantityOccurrence implements Comparable<QuantityOccurrence> {
         return indexOfUnit != -1 ? indexOfUnit + unit.length() : indexOfAmount + amountLength + 1;
     }
 
+    /**
+     * Returns the start offset of the unit, -1 if the unit has been assumed.
+     *
+     * @return the start offset of the unit, -1 if the unit has been assumed.
+     */
+    public int indexOfUnit() {
+        return indexOfUnit;
+    }
+
+    /**
+     * Returns the length of the amount, -1 if the occurrence has a unit.
+     *
+     * @return the length of the amount, -1 if the occurrence has a unit.
+     */
+    public int amountLength() {
+        return amountLength;
+    }
+
     /**
      * Returns the unit (name) associated with this occurrence.
      *
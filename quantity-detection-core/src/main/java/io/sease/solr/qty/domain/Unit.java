@@ -0,0 +1,529 @@
+package io.sease.solr.qty.domain;
+
+import java.util.*;
+
+import static io.sease.solr.qty.F.narrow;
+import static java.util.Arrays.stream;
+import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A unit.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class Unit {
+
+    public final static Unit NULL_UNIT = new Unit("", "");
+
+    public final static String BUCKET_FIELD_SUFFIX = "_bucket";
+
+    /**
+     * A unit variant.
+     *
+     * @author agazzarini
+     * @since 1.0
+     */
+    public class Variant implements Comparable<Variant>{
+        final String refName;
+        final List<String> syn;
+
+        /**
+         * Builds a new variant with the given data.
+         *
+         * @param refName the variant reference name.
+         * @param syn the list of synonyms / forms for this variant.
+         */
+        Variant(final String refName, final List<String> syn) {
+            this.refName = refName;
+            this.syn = syn;
+        }
+
+        /**
+         * Returns the reference name of this variant.
+         *
+         * @return the reference name of this variant.
+         */
+        public String refName() {
+            return refName;
+        }
+
+        /**
+         * Returns the alternative forms for this variant.
+         *
+         * @return the alternative forms for this variant.
+         */
+        public List<String> forms() {
+            return syn;
+        }
+
+        @Override
+        public int hashCode() {
+            return refName.hashCode();
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            return obj instanceof Variant && ((Variant)obj).refName.equals(refName);
+        }
+
+        @Override
+        public int compareTo(final Variant v) {
+            return refName.compareTo(v.refName);
+        }
+    }
+
+    /**
+     * Gap configuration for range queries associated with this unit.
+     *
+     * @author agazzarini
+     * @since 1.0
+     */
+    public class Gap {
+        final Number value;
+        final GapMode mode;
+        final Integer matches;
+        final Float percentile;
+        final boolean buckets;
+
+        /**
+         * Builds a new defaultGap configuration with the given data.
+         *
+         * @param value the defaultGap value.
+         * @param mode the defaultGap mode.
+         * @see GapMode
+         */
+        Gap(final Number value, final GapMode mode) {
+            this(value, mode, null, null);
+        }
+
+        /**
+         * Builds a new (optionally adaptive) defaultGap configuration with the given data.
+         *
+         * @param value the defaultGap value.
+         * @param mode the defaultGap mode.
+         * @param matches the target number of matching values, null if the gap is not adaptive.
+         * @param percentile the target percentage of matching values, null if the gap is not adaptive.
+         * @see GapMode
+         */
+        Gap(final Number value, final GapMode mode, final Integer matches, final Float percentile) {
+            this(value, mode, matches, percentile, false);
+        }
+
+        /**
+         * Builds a new (optionally adaptive and / or bucketed) defaultGap configuration with the given data.
+         *
+         * @param value the defaultGap value.
+         * @param mode the defaultGap mode.
+         * @param matches the target number of matching values, null if the gap is not adaptive.
+         * @param percentile the target percentage of matching values, null if the gap is not adaptive.
+         * @param buckets true if the target field has a companion bucket field, quantized with this gap value.
+         * @see GapMode
+         */
+        Gap(final Number value, final GapMode mode, final Integer matches, final Float percentile, final boolean buckets) {
+            this.value = value;
+            this.mode = mode;
+            this.matches = matches;
+            this.percentile = percentile;
+            this.buckets = buckets;
+        }
+
+        /**
+         * Returns the value of this defaultGap instance.
+         *
+         * @return the value of this defaultGap instance.
+         */
+        public Number value() {
+            return value;
+        }
+
+        /**
+         * Returns the mode of this defaultGap instance.
+         *
+         * @return the mode of this defaultGap instance.
+         */
+        public GapMode mode() {
+            return mode;
+        }
+
+        /**
+         * Returns the target number of matching values of this (adaptive) gap.
+         *
+         * @return the target number of matching values, null if this gap doesn't declare it.
+         */
+        public Integer matches() {
+            return matches;
+        }
+
+        /**
+         * Returns the target percentage of matching values of this (adaptive) gap.
+         *
+         * @return the target percentage of matching values, null if this gap doesn't declare it.
+         */
+        public Float percentile() {
+            return percentile;
+        }
+
+        /**
+         * Returns true if this gap has been declared with a companion bucket field.
+         * Differently from {@link #isBucketed()}, this is the declared attribute, regardless of the gap kind.
+         *
+         * @return true if this gap has been declared with a companion bucket field.
+         */
+        public boolean declaresBuckets() {
+            return buckets;
+        }
+
+        /**
+         * Returns true if the value of this gap has to be sized, at query time, on the index value distribution.
+         *
+         * @return true if the value of this gap has to be sized on the index value distribution.
+         */
+        public boolean isAdaptive() {
+            return matches != null || percentile != null;
+        }
+
+        /**
+         * Returns the number of values the range generated with this (adaptive) gap should match.
+         *
+         * @param docCount the number of documents which have a value for the target field.
+         * @return the number of values the range generated with this (adaptive) gap should match.
+         */
+        public long targetMatches(final long docCount) {
+            return matches != null
+                    ? matches
+                    : (long) Math.ceil(docCount * percentile / 100d);
+        }
+
+        /**
+         * Returns a copy of this gap with the given value.
+         *
+         * @param value the new gap value.
+         * @return a copy of this gap with the given value.
+         */
+        public Gap withValue(final Number value) {
+            return new Gap(value, mode, matches, percentile, buckets);
+        }
+
+        /**
+         * Returns a fixed (i.e. not adaptive) copy of this gap with the given value.
+         * The copy is never bucketed, because the buckets of the target field have been quantized, at index time,
+         * with the configured value.
+         *
+         * @param value the new gap value.
+         * @return a fixed copy of this gap with the given value.
+         */
+        public Gap resized(final Number value) {
+            return new Gap(value, mode);
+        }
+
+        /**
+         * Returns true if the values of the target field are quantized, with this gap value, in a companion
+         * bucket field (see {@link #bucketFieldName(String)}), so ranges can be replaced by bucket lookups.
+         * Adaptive gaps and gaps without a value are never bucketed, because their size is not fixed.
+         *
+         * @return true if the values of the target field are quantized in a companion bucket field.
+         */
+        public boolean isBucketed() {
+            return buckets && value != null && value.doubleValue() > 0 && !isAdaptive();
+        }
+
+        /**
+         * Returns the bucket the given amount belongs to.
+         * Note that this gap is supposed to be bucketed.
+         *
+         * @param amount the amount.
+         * @return the bucket the given amount belongs to.
+         */
+        public long bucket(final Number amount) {
+            return (long) Math.floor(amount.doubleValue() / value.doubleValue());
+        }
+
+        /**
+         * Returns the buckets which cover the range generated, with this gap, for the given amount.
+         * The buckets cover (at least) the whole range, so they are a coarser approximation of it.
+         *
+         * @param amount the detected amount.
+         * @return the buckets which cover the range generated for the given amount, empty if this gap is not
+         *          bucketed or if the range is unbounded.
+         */
+        public List<Long> buckets(final Number amount) {
+            final Optional<Number> upperBound = upperBound(amount);
+            if (!isBucketed() || !upperBound.isPresent()) {
+                return Collections.emptyList();
+            }
+
+            final long last = bucket(upperBound.get());
+            final List<Long> result = new ArrayList<>();
+            for (long bucket = bucket(lowerBound(amount)); bucket <= last; bucket++) {
+                result.add(bucket);
+            }
+            return result;
+        }
+
+        /**
+         * Returns the lower bound of the range query generated, with this gap, for the given amount.
+         *
+         * @param amount the detected amount.
+         * @return the lower bound of the range query generated, with this gap, for the given amount.
+         */
+        public Number lowerBound(final Number amount) {
+            switch (mode) {
+                case MAX:
+                    return value != null && amount.floatValue() >= value.floatValue()
+                            ? narrow(amount.floatValue() - value.floatValue())
+                            : 0;
+                case MIN:
+                    return narrow(amount);
+                default:
+                    return amount.floatValue() >= value.floatValue()
+                            ? narrow(amount.floatValue() - value.floatValue())
+                            : 0;
+            }
+        }
+
+        /**
+         * Returns the upper bound of the range query generated, with this gap, for the given amount.
+         * An empty result means the range is unbounded on the right side.
+         *
+         * @param amount the detected amount.
+         * @return the upper bound of the range query generated, with this gap, for the given amount.
+         */
+        public Optional<Number> upperBound(final Number amount) {
+            switch (mode) {
+                case MAX:
+                    return Optional.of(narrow(amount));
+                case MIN:
+                    return value != null
+                            ? Optional.of(narrow(amount.floatValue() + value.floatValue()))
+                            : Optional.empty();
+                default:
+                    return Optional.of(narrow(amount.floatValue() + value.floatValue()));
+            }
+        }
+    }
+
+    private final List<String> fieldNames;
+    private final String name;
+    private Float defaultBoost;
+    private final Map<String, Float> boostOverrideMap = new HashMap<>();
+
+
+    private Set<Variant> variants = new HashSet<>();
+    private Gap defaultGap;
+    private final Map<String, Gap> gapOverrideMap = new HashMap<>();
+    private final Variant itself;
+
+    /**
+     * Builds a new unit with the given data.
+     *
+     * @param fieldNameDef the (schema) field name (s) associated with this unit.
+     * @param name the unit name.
+     */
+    public Unit(final String fieldNameDef, final String name) {
+        this.fieldNames =
+                stream(fieldNameDef.split(","))
+                    .filter(fname -> fname != null && fname.trim().length() > 0)
+                    .map(String::trim)
+                    .collect(toList());
+        this.name = name;
+        this.itself = new Variant(name, Collections.emptyList());
+    }
+
+    public void setDefaultBoost(final float value) {
+        this.defaultBoost = value == 1f  || value == 0f ? null : value;
+    }
+
+    /**
+     * Adds the given boost this fieldname / unit pair.
+     *
+     * @param fieldName the field name.
+     * @param value the boost value.
+     */
+    public void addBoost(final String fieldName, final float value) {
+        if (value > 0f && value != 1f) {
+            boostOverrideMap.put(fieldName, value);
+        }
+    }
+
+    public boolean isIdentifiedBy(final String id) {
+        return id.equals(name)
+                || variants
+                        .stream()
+                        .anyMatch(variant -> variant.refName.equals(id) || variant.syn.contains(id));
+    }
+
+    /**
+     * Associates a new default defaultGap with this unit.
+     *
+     * @param value the defaultGap value.
+     * @param mode the defaultGap mode.
+     */
+    public void setGap(final Number value, final String mode) {
+        setGap(value, mode, null, null);
+    }
+
+    /**
+     * Associates a new default (optionally adaptive) defaultGap with this unit.
+     *
+     * @param value the defaultGap value.
+     * @param mode the defaultGap mode.
+     * @param matches the target number of matching values, null if the gap is not adaptive.
+     * @param percentile the target percentage of matching values, null if the gap is not adaptive.
+     */
+    public void setGap(final Number value, final String mode, final Integer matches, final Float percentile) {
+        setGap(value, mode, matches, percentile, false);
+    }
+
+    /**
+     * Associates a new default (optionally adaptive and / or bucketed) defaultGap with this unit.
+     *
+     * @param value the defaultGap value.
+     * @param mode the defaultGap mode.
+     * @param matches the target number of matching values, null if the gap is not adaptive.
+     * @param percentile the target percentage of matching values, null if the gap is not adaptive.
+     * @param buckets true if the target fields have a companion bucket field, quantized with the gap value.
+     */
+    public void setGap(
+            final Number value,
+            final String mode,
+            final Integer matches,
+            final Float percentile,
+            final boolean buckets) {
+        this.defaultGap = new Gap(value, GapMode.valueOf(mode), matches, percentile, buckets);
+    }
+
+    /**
+     * Associates a new defaultGap with this a specific fieldname belonging to this unit.
+     *
+     * @param fieldName the field name.
+     * @param value the defaultGap value.
+     * @param mode the defaultGap mode.
+     */
+    public void addGap(final String fieldName, final Number value, final String mode) {
+        addGap(fieldName, value, mode, null, null);
+    }
+
+    /**
+     * Associates a new (optionally adaptive) defaultGap with this a specific fieldname belonging to this unit.
+     *
+     * @param fieldName the field name.
+     * @param value the defaultGap value.
+     * @param mode the defaultGap mode.
+     * @param matches the target number of matching values, null if the gap is not adaptive.
+     * @param percentile the target percentage of matching values, null if the gap is not adaptive.
+     */
+    public void addGap(
+            final String fieldName,
+            final Number value,
+            final String mode,
+            final Integer matches,
+            final Float percentile) {
+        addGap(fieldName, value, mode, matches, percentile, false);
+    }
+
+    /**
+     * Associates a new (optionally adaptive and / or bucketed) defaultGap with this a specific fieldname belonging
+     * to this unit.
+     *
+     * @param fieldName the field name.
+     * @param value the defaultGap value.
+     * @param mode the defaultGap mode.
+     * @param matches the target number of matching values, null if the gap is not adaptive.
+     * @param percentile the target percentage of matching values, null if the gap is not adaptive.
+     * @param buckets true if the field has a companion bucket field, quantized with the gap value.
+     */
+    public void addGap(
+            final String fieldName,
+            final Number value,
+            final String mode,
+            final Integer matches,
+            final Float percentile,
+            final boolean buckets) {
+        gapOverrideMap.put(fieldName, new Gap(value, GapMode.valueOf(mode), matches, percentile, buckets));
+    }
+
+    /**
+     * Returns the defaultGap associated with this unit.
+     * Note that an Optional is returned, meaning that a defaultGap couldn't have been defined for this unit.
+     *
+     * @param fieldName the field name, owner of the defaultGap we are looking for
+     * @return the defaultGap associated with this unit.
+     */
+    public Pair<String, Optional<Gap>> gap(final String fieldName) {
+        return new Pair(fieldName, ofNullable(gapOverrideMap.getOrDefault(fieldName, defaultGap)));
+    }
+
+    /**
+     * Returns the name of the companion bucket field of the given field.
+     *
+     * @param fieldName the field name.
+     * @return the name of the companion bucket field of the given field.
+     */
+    public static String bucketFieldName(final String fieldName) {
+        return fieldName + BUCKET_FIELD_SUFFIX;
+    }
+
+    /**
+     * Returns the defaultBoost associated with this unit.
+     * Note that an Optional is returned, meaning that a defaultBoost couldn't have been defined for this unit.
+     *
+     * @return the defaultBoost associated with this unit.
+     */
+    public Optional<Float> boost(final String fieldName) {
+        return ofNullable(boostOverrideMap.getOrDefault(fieldName, defaultBoost));
+    }
+
+    /**
+     * Adds a new variant to this unit.
+     *
+     * @param name the variant reference name.
+     * @param syn the list of variant forms.
+     */
+    public void addVariant(final String name, final List<String> syn) {
+        variants.add(new Variant(name, syn));
+    }
+
+    /**
+     * Returns the unit name.
+     *
+     * @return the unit name.
+     */
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Returns the field names associated with this unit.
+     *
+     * @return the field names associated with this unit.
+     */
+    public List<String> fieldNames() {
+        return fieldNames;
+    }
+
+    /**
+     * Returns the variants list asscociated with this unit.
+     *
+     * @return the variants list asscociated with this unit.
+     */
+    public Set<Variant> variants() {
+        return variants;
+    }
+
+    /**
+     * Returns the variant associated with the given unitName.
+     *
+     * @param unitName the unit name.
+     * @return the variant associated with the given unitName.
+     */
+    public Optional<Variant> getVariantByName(final String unitName) {
+        final Optional<Variant> result = variants.stream()
+                .filter(variant ->  variant.refName.equals(unitName) || variant.syn.contains(unitName))
+                .findFirst();
+        return result.isPresent()
+                ? result
+                : unitName.equals(name) ? Optional.of(itself) : Optional.empty();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,149 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.QuantityOccurrence;
+import io.sease.solr.qty.domain.Unit;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link DetectionEngine} test case.
+ * The engine is used here as it would be used outside Solr.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class DetectionEngineTestCase {
+    private UnitDictionary dictionary;
+
+    @Before
+    public void setUp() throws Exception {
+        try (final InputStream configuration = new FileInputStream("src/test/resources/units.json")) {
+            dictionary = UnitDictionary.load(configuration);
+        }
+    }
+
+    /**
+     * Detected quantities must be notified to the builder with their unit.
+     */
+    @Test
+    public void detection() {
+        final DetectionEngine cut = new DetectionEngine(dictionary);
+        assertEquals(
+                new HashSet<>(asList("100 cm", "3 lt")),
+                new HashSet<>(cut.detect("A 100 cm shelf for 3 lt bottles", query -> new Recorder()).product()));
+
+        assertTrue(cut.detect("No quantities here", query -> new DetectedQuantities()).isEmpty());
+        assertEquals("a  shelf", cut.detect("A 100cm shelf", query -> new QuantityRemover(query, false)).product());
+    }
+
+    /**
+     * A query which exceeds one of the limits must be passed through, and the monitor notified.
+     */
+    @Test
+    public void limits() {
+        final List<DetectionMonitor.Limit> exceeded = new ArrayList<>();
+        final DetectionEngine cut =
+                new DetectionEngine(
+                        dictionary,
+                        new DetectionSettings(20, 1, 0, '.'),
+                        new DetectionMonitor() {
+                            @Override
+                            public void limitExceeded(final Limit limit, final String reason, final String qstr) {
+                                exceeded.add(limit);
+                            }
+                        },
+                        new HotQuantities());
+
+        assertEquals(emptyList(), cut.detect("A 100 mm and 3 lt", query -> new Recorder()).product());
+        assertEquals(emptyList(), cut.detect("A bottle of exactly 3 lt", query -> new Recorder()).product());
+        assertEquals(asList(DetectionMonitor.Limit.QUANTITIES, DetectionMonitor.Limit.QUERY_LENGTH), exceeded);
+    }
+
+    /**
+     * A detection transcript, once encoded and decoded, must be replayed as if the detection had been executed again.
+     */
+    @Test
+    public void replay() {
+        final DetectionEngine cut = new DetectionEngine(dictionary);
+        final String qstr = "A 100cm shelf for 3 lt bottles";
+
+        final String encoded = cut.detect(qstr, query -> new DetectionTranscript()).product().encode(dictionary);
+        final DetectionTranscript transcript = DetectionTranscript.decode(encoded, dictionary);
+
+        assertEquals(
+                cut.detect(qstr, query -> new QuantityRemover(query, false)).product(),
+                cut.replay(qstr, transcript, query -> new QuantityRemover(query, false)).product());
+        assertEquals(
+                new HashSet<>(asList("100 cm", "3 lt")),
+                new HashSet<>(cut.replay(qstr, transcript, query -> new Recorder()).product()));
+
+        assertTrue(DetectionTranscript.decode("", dictionary).isEmpty());
+    }
+
+    /**
+     * An incremental detection (i.e. a detection for each keystroke) must produce the same result of a detection
+     * from scratch, also when chars are removed or the query changes entirely.
+     */
+    @Test
+    public void incremental() {
+        final DetectionEngine cut = new DetectionEngine(dictionary);
+        final IncrementalDetection state = new IncrementalDetection();
+        final String qstr = "A 100 cm shelf for 3 lt bottles and 33 cl";
+
+        final List<String> keystrokes = new ArrayList<>();
+        for (int i = 1; i <= qstr.length(); i++) {
+            keystrokes.add(qstr.substring(0, i));
+        }
+        keystrokes.addAll(asList("A 100 cm shelf for 3 l", "A 100 cm shelf for 3 lt", "2 volts", "2 volts 100 w"));
+
+        for (final String keystroke : keystrokes) {
+            assertEquals(
+                    keystroke,
+                    cut.detect(keystroke, query -> new Recorder()).product(),
+                    cut.detect(keystroke, query -> new Recorder(), state).product());
+            assertEquals(" " + keystroke.toLowerCase().trim() + " ", state.query());
+        }
+
+        state.reset();
+        assertEquals("", state.query());
+        assertEquals(
+                cut.detect(qstr, query -> new QuantityRemover(query, false)).product(),
+                cut.detect(qstr, query -> new QuantityRemover(query, false), state).product());
+    }
+
+    /**
+     * Transcripts which don't belong to the dictionary must be rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidTranscript() {
+        DetectionTranscript.decode("D\u001F99\u001Fcm\u001F100.0\u001F5\u001F1\u001F-1\u001E", dictionary);
+    }
+
+    /**
+     * A builder which records the (converted) detected quantities.
+     */
+    private static class Recorder extends EquivalentQuantityBuilder<List<String>> {
+        private final List<String> quantities = new ArrayList<>();
+
+        @Override
+        protected void onQuantityDetected(final Unit unit, final QuantityOccurrence occurrence) {
+            quantities.add(F.narrow(occurrence.amount()) + " " + unit.name());
+        }
+
+        @Override
+        public List<String> product() {
+            return quantities;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package io.sease.solr.qty;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Utilities test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class FTestCase {
+    /**
+     * The decimal parser must produce the same values of {@link Float#parseFloat(String)}.
+     */
+    @Test
+    public void parseFloat() {
+        asList("0", "1", "-1", "+1", "100", "33.5", "0.001", "-12.75", "1.", "007", "3.4028235", "16777217", "-0", "16777215.5", "0.0000000001", "9999999.999",
+                "123456789012345678901234", "0.1234567890123456789012345")
+                .forEach(value ->
+                        assertEquals(
+                                value,
+                                Float.floatToIntBits(Float.parseFloat(value)),
+                                Float.floatToIntBits(F.parseFloat(value, 0, value.length(), '.'))));
+    }
+
+    /**
+     * The decimal parser must produce the same values of {@link Float#parseFloat(String)} on random numbers, with
+     * a random number of digits and decimals (i.e. on both sides of the fast path limits).
+     */
+    @Test
+    public void parseRandomFloats() {
+        final Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            final StringBuilder value = new StringBuilder(random.nextBoolean() ? "" : "-");
+            final int digits = 1 + random.nextInt(20);
+            final int separator = random.nextInt(digits + 1);
+            for (int digit = 0; digit < digits; digit++) {
+                if (digit == separator) {
+                    value.append('.');
+                }
+                value.append((char) ('0' + random.nextInt(10)));
+            }
+
+            final String number = value.toString();
+            assertEquals(
+                    number,
+                    Float.floatToIntBits(Float.parseFloat(number)),
+                    Float.floatToIntBits(F.parseFloat(number, 0, number.length(), '.')));
+        }
+    }
+
+    /**
+     * The decimal parser must read only the given range, ignoring the surrounding whitespaces.
+     */
+    @Test
+    public void parseFloatRange() {
+        final StringBuilder query = new StringBuilder(" a bottle of 33.5 cl ");
+        assertEquals(33.5f, F.parseFloat(query, 12, 18, '.'), 0);
+    }
+
+    /**
+     * The decimal parser must use the given decimal separator.
+     */
+    @Test
+    public void parseFloatWithDecimalSeparator() {
+        assertEquals(33.5f, F.parseFloat("33,5", 0, 4, ','), 0);
+        assertEquals(1234567890123456.7f, F.parseFloat("1234567890123456,7", 0, 18, ','), 0);
+    }
+
+    /**
+     * Invalid numbers must be rejected, like {@link Float#parseFloat(String)} does.
+     */
+    @Test
+    public void invalidNumbers() {
+        asList("", " ", "-", ".", "1.2.3", "33,5", "1e5", "$100", "12a").forEach(value -> {
+            try {
+                F.parseFloat(value, 0, value.length(), '.');
+                throw new AssertionError(value + " should have been rejected");
+            } catch (final NumberFormatException expected) {
+                // Nothing to be done here, that's the expected behaviour
+            }
+        });
+    }
+}
@@ -0,0 +1,113 @@
+package io.sease.solr.qty;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.HashSet;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Hot quantities (i.e. recorded detections used for warming) test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class HotQuantitiesTestCase {
+    private final HotQuantities cut = new HotQuantities();
+    private DetectionEngine engine;
+
+    @Before
+    public void setUp() throws Exception {
+        try (final InputStream configuration = new FileInputStream("src/test/resources/units.json")) {
+            engine = new DetectionEngine(
+                    UnitDictionary.load(configuration),
+                    DetectionSettings.DEFAULT,
+                    DetectionMonitor.NULL_MONITOR,
+                    cut);
+        }
+    }
+
+    @Test
+    public void noDetections() {
+        engine.detect("There's no quantity here", query -> new DetectedQuantities());
+        assertTrue(cut.top(10).isEmpty());
+    }
+
+    @Test
+    public void mostDetectedQuantitiesOfEachUnit() {
+        asList("ipa 2 lt", "stout 5 lt", "lager 2 lt", "beer 2 lt", "shelf 100 cm", "wine 5 lt", "ale 1 lt")
+                .forEach(query -> engine.detect(query, buffer -> new DetectedQuantities()));
+
+        assertEquals(new HashSet<>(asList("2 lt", "5 lt", "100 cm")), new HashSet<>(cut.top(2)));
+        assertEquals(new HashSet<>(asList("2 lt", "100 cm")), new HashSet<>(cut.top(1)));
+    }
+
+    @Test
+    public void memoryCeiling() {
+        final HotQuantities bounded = new HotQuantities(2 * HotQuantities.QUANTITY_RAM_BYTES_USED);
+        asList(2f, 5f, 2f, 2f).forEach(amount -> bounded.record("liter", amount, "lt"));
+        bounded.record("centimeter", 100, "cm");
+
+        assertEquals(new HashSet<>(asList("2 lt", "5 lt")), new HashSet<>(bounded.top(10)));
+        assertEquals(2 * HotQuantities.QUANTITY_RAM_BYTES_USED, bounded.ramBytesUsed());
+    }
+
+    /**
+     * Once all counters of a unit are in use, new quantities replace the least detected one, so a quantity which
+     * becomes hot later still makes its way to the top.
+     */
+    @Test
+    public void lateHotQuantities() {
+        final HotQuantities bounded = new HotQuantities(Long.MAX_VALUE, 3, Integer.MAX_VALUE);
+        for (int i = 0; i < 10; i++) bounded.record("liter", 1, "lt");
+        for (int i = 0; i < 100; i++) bounded.record("liter", 100 + i, "lt");
+        for (int i = 0; i < 20; i++) bounded.record("liter", 33, "cl");
+
+        assertEquals(asList("33 cl"), bounded.top(1));
+        assertEquals(3, bounded.top(10).size());
+        assertEquals(3 * HotQuantities.QUANTITY_RAM_BYTES_USED, bounded.ramBytesUsed());
+    }
+
+    /**
+     * Counts are periodically halved, so a quantity which is no longer detected leaves the top.
+     */
+    @Test
+    public void decay() {
+        final HotQuantities decaying = new HotQuantities(Long.MAX_VALUE, 10, 8);
+        for (int i = 0; i < 4; i++) decaying.record("liter", 2, "lt");
+        assertEquals(asList("2 lt"), decaying.top(10));
+
+        for (int i = 0; i < 20; i++) decaying.record("liter", 5, "lt");
+        assertEquals(asList("5 lt"), decaying.top(10));
+    }
+
+    /**
+     * Incremental detections must record only the occurrences which haven't been detected on the previous
+     * keystrokes of the same session.
+     */
+    @Test
+    public void incrementalDetections() {
+        final IncrementalDetection session = new IncrementalDetection();
+        final String qstr = "2 lt and 5 lt bottles";
+        for (int i = 1; i <= qstr.length(); i++) {
+            engine.detect(qstr.substring(0, i), query -> new DetectedQuantities(), session);
+        }
+        engine.detect("5 lt", query -> new DetectedQuantities());
+
+        assertEquals(asList("5 lt"), cut.top(1));
+    }
+
+    /**
+     * Detections executed without recording must not be counted.
+     */
+    @Test
+    public void detectionsWithoutRecording() {
+        engine.detectWithoutRecording("ipa 2 lt", query -> new DetectedQuantities());
+        assertTrue(cut.top(10).isEmpty());
+    }
+}
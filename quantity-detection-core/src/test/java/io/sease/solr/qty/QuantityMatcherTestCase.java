@@ -1,8 +1,5 @@
 package io.sease.solr.qty;
 
-import org.apache.solr.common.params.SolrParams;
-import org.apache.solr.search.QParserPlugin;
-import org.junit.Before;
 import org.junit.Test;
 
 import java.util.List;
@@ -13,30 +10,13 @@ import static java.util.stream.IntStream.range;
 import static org.junit.Assert.assertEquals;
 
 /**
- * {@link QuantityDetector} test case.
+ * {@link QuantityMatcher} test case.
  *
  * @author agazzarini
  * @since 1.0
  */
-public class QuantityDetectorTestCase {
+public class QuantityMatcherTestCase {
     private final String unit = "lt";
-    private QuantityDetector cut;
-
-    @Before
-    public void setUp() {
-        cut = new QuantityDetector() {
-            @Override
-            QueryBuilder queryBuilder(StringBuilder query, SolrParams params) {
-                return null;
-            }
-
-            @Override
-            QParserPlugin qparserPlugin() {
-                return null;
-            }
-        };
-    }
-
     /**
      * If a unit never occurs, then the result must be an empty list.
      */
@@ -53,7 +33,7 @@ public class QuantityDetectorTestCase {
         stream(queries)
                 .map(StringBuilder::new)
                 .forEach(query -> {
-                    final List<Integer> offsets = cut.indexesOf(query, unit);
+                    final List<Integer> offsets = QuantityMatcher.indexesOf(query, unit);
                     assertEquals(0, offsets.size());
                 });
     }
@@ -73,7 +53,7 @@ public class QuantityDetectorTestCase {
         stream(queries)
                 .map(StringBuilder::new)
                 .forEach(query -> {
-            final List<Integer> offsets = cut.indexesOf(query, unit);
+            final List<Integer> offsets = QuantityMatcher.indexesOf(query, unit);
             assertEquals(1, offsets.size());
             assertEquals(query.indexOf("lt"), offsets.iterator().next().intValue());
         });
@@ -94,7 +74,7 @@ public class QuantityDetectorTestCase {
         stream(queries)
                 .map(StringBuilder::new)
                 .forEach(query -> {
-                    final List<Integer> offsets = cut.indexesOf(query, unit);
+                    final List<Integer> offsets = QuantityMatcher.indexesOf(query, unit);
                     assertEquals(2, offsets.size());
                 });
     }
@@ -113,7 +93,7 @@ public class QuantityDetectorTestCase {
         stream(queries)
                 .map(StringBuilder::new)
                 .forEach(query -> {
-                    final List<Integer> offsets = cut.indexesOf(query, unit);
+                    final List<Integer> offsets = QuantityMatcher.indexesOf(query, unit);
                     assertEquals(3, offsets.size());
                 });
     }
@@ -138,7 +118,7 @@ public class QuantityDetectorTestCase {
                             assertEquals(
                                 ">" + query.toString() + "<",
                                 OptionalInt.empty(),
-                                cut.startIndexOfAmount(query, query.indexOf(unit))));
+                                QuantityMatcher.startIndexOfAmount(query, query.indexOf(unit))));
     }
 
     @Test
@@ -156,7 +136,7 @@ public class QuantityDetectorTestCase {
                         assertEquals(
                                 index + " => " + ">" + query.toString() + "<",
                                 OptionalInt.of(index),
-                                cut.startIndexOfAmount(query, query.indexOf(unit)));
+                                QuantityMatcher.startIndexOfAmount(query, query.indexOf(unit)));
                 });
     }
 }
\ No newline at end of file
@@ -0,0 +1,167 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.GapMode;
+import io.sease.solr.qty.domain.Unit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link UnitDictionarySnapshot} test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class UnitDictionarySnapshotTestCase {
+    private final static byte [] CONFIGURATION = (
+            "{ \"units\": { \"height, width\": {"
+                    + "\"unit\": \"cm\","
+                    + "\"gap\": { \"value\": 5, \"width\": { \"value\": 2, \"mode\": \"MIN\", \"buckets\": true } },"
+                    + "\"boost\": { \"value\": 1.5, \"width\": { \"value\": 3 } },"
+                    + "\"variants\": { \"mm\": [\"millimeters\"] } },"
+                    + "\"capacity\": { \"unit\": \"lt\", \"gap\": { \"mode\": \"MAX\", \"matches\": 10 } } },"
+                    + "\"equivalence.table\": { \"cm\": { \"mm\": 10 } },"
+                    + "\"assumption.table\": { \"default\": \"cm\", \"lt\": [[\"*\", 3]] } }").getBytes(StandardCharsets.UTF_8);
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A restored dictionary must be equivalent to the dictionary compiled from the JSON configuration.
+     */
+    @Test
+    public void roundTrip() throws Exception {
+        final long checksum = UnitDictionarySnapshot.checksum(CONFIGURATION);
+        final Path snapshot = folder.getRoot().toPath().resolve("units.json" + UnitDictionarySnapshot.SNAPSHOT_SUFFIX);
+        UnitDictionarySnapshot.write(UnitDictionary.load(new ByteArrayInputStream(CONFIGURATION)), checksum, snapshot);
+
+        final UnitDictionary dictionary = UnitDictionarySnapshot.read(snapshot, checksum).get();
+
+        final Unit cm = dictionary.unitByName("cm");
+        assertEquals(asList("height", "width"), cm.fieldNames());
+        assertEquals(Optional.of(1.5f), cm.boost("height"));
+        assertEquals(Optional.of(3f), cm.boost("width"));
+        assertEquals(5, cm.gap("height").y.get().value().intValue());
+        assertSame(GapMode.PIVOT, cm.gap("height").y.get().mode());
+        assertSame(GapMode.MIN, cm.gap("width").y.get().mode());
+        assertTrue(cm.gap("width").y.get().isBucketed());
+        assertFalse(cm.gap("height").y.get().isBucketed());
+
+        final Unit.Gap capacity = dictionary.unitByName("lt").gap("capacity").y.get();
+        assertNull(capacity.value());
+        assertTrue(capacity.isAdaptive());
+        assertEquals(10, capacity.targetMatches(1000));
+
+        assertEquals(Optional.of(cm), dictionary.unitByForm("millimeters"));
+        assertEquals(12, dictionary.equivalenceTable().equivalent("mm", 120).intValue());
+        assertEquals("lt", dictionary.assumptionTable().unitName(2));
+        assertEquals("cm", dictionary.assumptionTable().unitName(100));
+    }
+
+    /**
+     * The snapshot of the sample configuration must restore the same units and forms.
+     */
+    @Test
+    public void sampleConfiguration() throws Exception {
+        final byte [] source = Files.readAllBytes(Paths.get("src/test/resources/units.json"));
+        final UnitDictionary compiled = UnitDictionary.load(new ByteArrayInputStream(source));
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UnitDictionarySnapshot.write(compiled, UnitDictionarySnapshot.checksum(source), out);
+
+        final UnitDictionary restored =
+                UnitDictionarySnapshot.read(ByteBuffer.wrap(out.toByteArray()), UnitDictionarySnapshot.checksum(source)).get();
+
+        assertEquals(compiled.variants(), restored.variants());
+        assertEquals(compiled.equivalenceTable().rules().keySet(), restored.equivalenceTable().rules().keySet());
+        assertEquals(compiled.assumptionTable().rules(), restored.assumptionTable().rules());
+        for (int i = 0; i < compiled.units().size(); i++) {
+            final Unit expected = compiled.units().get(i);
+            final Unit actual = restored.units().get(i);
+            assertEquals(expected.name(), actual.name());
+            for (final String fieldName : expected.fieldNames()) {
+                assertEquals(expected.boost(fieldName), actual.boost(fieldName));
+                assertEquals(
+                        expected.gap(fieldName).y.map(Unit.Gap::value),
+                        actual.gap(fieldName).y.map(Unit.Gap::value));
+            }
+        }
+    }
+
+    /**
+     * The lookup tables of a mapped dictionary must be equivalent to the tables of a dictionary restored in the heap.
+     */
+    @Test
+    public void mappedLookupTables() throws Exception {
+        final byte [] source = Files.readAllBytes(Paths.get("src/test/resources/units.json"));
+        final long checksum = UnitDictionarySnapshot.checksum(source);
+        final Path snapshot = folder.getRoot().toPath().resolve("units.json" + UnitDictionarySnapshot.SNAPSHOT_SUFFIX);
+        UnitDictionarySnapshot.write(UnitDictionary.load(new ByteArrayInputStream(source)), checksum, snapshot);
+
+        final UnitDictionary heap = UnitDictionarySnapshot.read(snapshot, checksum).get();
+        final UnitDictionary mapped = UnitDictionarySnapshot.read(snapshot, checksum, true).get();
+
+        assertFalse(heap.isMapped());
+        assertTrue(mapped.isMapped());
+        assertTrue(mapped.mappedBytes() > 0);
+        assertEquals(heap.variants(), mapped.variants());
+        assertEquals(mapped.variants(), heap.variants());
+        for (final String form : heap.variants().keySet()) {
+            assertEquals(heap.unitByForm(form).get().name(), mapped.unitByForm(form).get().name());
+            assertSame(mapped.unitByForm(form).get(), mapped.unitByName(mapped.unitByForm(form).get().name()));
+        }
+        assertFalse(mapped.unitByForm("unknown").isPresent());
+        assertNull(mapped.variants().get("unknown"));
+
+        // The variants are iterated on each detection: they are decoded once, not on every iteration
+        assertSame(mapped.variants().keySet().iterator().next(), mapped.variants().keySet().iterator().next());
+    }
+
+    /**
+     * A snapshot compiled from a different source must be ignored.
+     */
+    @Test
+    public void staleSnapshot() throws Exception {
+        final byte [] snapshot = snapshot();
+
+        assertFalse(UnitDictionarySnapshot.read(ByteBuffer.wrap(snapshot), UnitDictionarySnapshot.checksum(new byte[0])).isPresent());
+    }
+
+    /**
+     * A corrupted (or missing) snapshot must be ignored.
+     */
+    @Test
+    public void corruptedSnapshot() throws Exception {
+        final long checksum = UnitDictionarySnapshot.checksum(CONFIGURATION);
+        final byte [] snapshot = snapshot();
+        snapshot[snapshot.length / 2] ^= 0x7F;
+
+        assertFalse(UnitDictionarySnapshot.read(ByteBuffer.wrap(snapshot), checksum).isPresent());
+        assertFalse(UnitDictionarySnapshot.read(ByteBuffer.wrap(snapshot, 0, 10), checksum).isPresent());
+        assertFalse(UnitDictionarySnapshot.read(folder.getRoot().toPath().resolve("missing"), checksum).isPresent());
+    }
+
+    private byte [] snapshot() throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UnitDictionarySnapshot.write(
+                UnitDictionary.load(new ByteArrayInputStream(CONFIGURATION)),
+                UnitDictionarySnapshot.checksum(CONFIGURATION),
+                out);
+        return out.toByteArray();
+    }
+}
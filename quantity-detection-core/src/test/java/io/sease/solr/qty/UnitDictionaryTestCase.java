@@ -0,0 +1,94 @@
+package io.sease.solr.qty;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.sease.solr.qty.domain.GapMode;
+import io.sease.solr.qty.domain.Unit;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link UnitDictionary} (streaming) loading test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class UnitDictionaryTestCase {
+    /**
+     * A configuration read from a stream and a configuration read from a tree must produce the same dictionary.
+     */
+    @Test
+    public void streamAndTree() throws Exception {
+        final UnitDictionary tree = UnitDictionary.load(new ObjectMapper().readTree(new File("src/test/resources/units.json")).traverse());
+        final UnitDictionary stream;
+        try (final InputStream configuration = new FileInputStream("src/test/resources/units.json")) {
+            stream = UnitDictionary.load(configuration);
+        }
+
+        assertEquals(tree.units().size(), stream.units().size());
+        assertEquals(tree.variants(), stream.variants());
+        for (int i = 0; i < tree.units().size(); i++) {
+            final Unit expected = tree.units().get(i);
+            final Unit actual = stream.units().get(i);
+            assertEquals(expected.name(), actual.name());
+            assertEquals(expected.fieldNames(), actual.fieldNames());
+            assertEquals(expected.variants(), actual.variants());
+            assertEquals(expected.boost(expected.fieldNames().get(0)), actual.boost(actual.fieldNames().get(0)));
+        }
+    }
+
+    /**
+     * The attributes of a unit can precede its name, and unknown attributes are ignored.
+     */
+    @Test
+    public void attributesOrder() throws Exception {
+        final UnitDictionary dictionary = load(
+                "{ \"comment\": [\"generated\"], \"units\": { \"height, width\": {"
+                        + "\"gap\": { \"value\": 5, \"width\": { \"value\": 2, \"mode\": \"MIN\", \"buckets\": true } },"
+                        + "\"boost\": { \"value\": 1.5, \"width\": { \"value\": 3 } },"
+                        + "\"variants\": { \"mm\": [\"millimeters\"] },"
+                        + "\"owner\": { \"team\": \"catalog\" },"
+                        + "\"unit\": \"cm\" } },"
+                        + "\"equivalence.table\": { \"cm\": { \"mm\": 10 } },"
+                        + "\"assumption.table\": { \"default\": \"cm\", \"cm\": [[\"*\", 300]] } }");
+
+        final Unit unit = dictionary.unitByName("cm");
+        assertEquals(asList("height", "width"), unit.fieldNames());
+        assertEquals(Optional.of(1.5f), unit.boost("height"));
+        assertEquals(Optional.of(3f), unit.boost("width"));
+
+        final Unit.Gap height = unit.gap("height").y.get();
+        assertEquals(5, height.value().intValue());
+        assertSame(GapMode.PIVOT, height.mode());
+        final Unit.Gap width = unit.gap("width").y.get();
+        assertSame(GapMode.MIN, width.mode());
+        assertTrue(width.isBucketed());
+
+        assertEquals(Optional.of(unit), dictionary.unitByForm("millimeters"));
+        assertEquals(12, dictionary.equivalenceTable().equivalent("mm", 120).intValue());
+        assertEquals("cm", dictionary.assumptionTable().unitName(100));
+    }
+
+    /**
+     * A unit without a name is not valid.
+     */
+    @Test(expected = IOException.class)
+    public void missingUnitName() throws Exception {
+        load("{ \"units\": { \"height\": { \"gap\": { \"value\": 5 } } } }");
+    }
+
+    private UnitDictionary load(final String configuration) throws IOException {
+        return UnitDictionary.load(new ByteArrayInputStream(configuration.getBytes(StandardCharsets.UTF_8)));
+    }
+}
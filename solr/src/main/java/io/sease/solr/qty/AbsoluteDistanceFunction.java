@@ -0,0 +1,56 @@
+package io.sease.solr.qty;
+
+import org.apache.lucene.queries.function.FunctionValues;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.queries.function.valuesource.SimpleFloatFunction;
+
+import java.io.IOException;
+
+/**
+ * A function which computes the absolute distance between a field value and a given amount.
+ * It is the native equivalent of the abs(sub(field, amount)) function query.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class AbsoluteDistanceFunction extends SimpleFloatFunction {
+    private final float amount;
+
+    /**
+     * Builds a new {@link AbsoluteDistanceFunction} with the given data.
+     *
+     * @param source the source (i.e. field) value source.
+     * @param amount the amount.
+     */
+    public AbsoluteDistanceFunction(final ValueSource source, final float amount) {
+        super(source);
+        this.amount = amount;
+    }
+
+    @Override
+    protected String name() {
+        return "absdistance";
+    }
+
+    @Override
+    protected float func(final int doc, final FunctionValues values) throws IOException {
+        return Math.abs(values.floatVal(doc) - amount);
+    }
+
+    @Override
+    public String description() {
+        return name() + "(" + source.description() + "," + amount + ")";
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        return obj instanceof AbsoluteDistanceFunction
+                && ((AbsoluteDistanceFunction)obj).amount == amount
+                && ((AbsoluteDistanceFunction)obj).source.equals(source);
+    }
+
+    @Override
+    public int hashCode() {
+        return source.hashCode() + Float.hashCode(amount);
+    }
+}
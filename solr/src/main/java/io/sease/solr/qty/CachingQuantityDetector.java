@@ -0,0 +1,68 @@
+package io.sease.solr.qty;
+
+import org.apache.lucene.search.Query;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.QParser;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * Supertype layer for the quantity detectors which build native queries (or functions) and cache them.
+ * Queries are keyed by the detected quantities (see {@link QuantityQueryKey}) and, if the user cache configured
+ * for the detector (see {@link #QUERY_CACHE_PARAM_NAME}) has been declared in solrconfig.xml, they are built only
+ * once per searcher; the {@link QuantityQueryCacheRegenerator} rebuilds them when a new searcher is opened.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public abstract class CachingQuantityDetector extends QuantityDetector {
+    /**
+     * Returns the query built, by this detector, for the given key.
+     * If the user cache configured for this detector (see {@link #QUERY_CACHE_PARAM_NAME}) has been declared in
+     * solrconfig.xml, the query is looked up in (and, if missing, added to) that cache.
+     *
+     * @param parser the {@link QParser} which is currently serving the request.
+     * @param key the query key.
+     * @param <T> the query type.
+     * @return the query built, by this detector, for the given key.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T cached(final QParser parser, final QuantityQueryKey key) {
+        final SolrIndexSearcher searcher = parser.getReq().getSearcher();
+        final SolrCache<QuantityQueryKey, Object> cache = searcher != null ? searcher.getCache(queryCacheName) : null;
+        if (cache == null) {
+            return (T) build(key, parser);
+        }
+
+        Object query = cache.get(key);
+        if (query == null) {
+            query = build(key, parser);
+            cache.put(key, query);
+        }
+        return (T) query;
+    }
+
+    /**
+     * Builds the query associated with the given key.
+     *
+     * @param key the query key.
+     * @param parser the {@link QParser} which is currently serving the request.
+     * @return the query associated with the given key.
+     */
+    abstract Object build(QuantityQueryKey key, QParser parser);
+
+    /**
+     * Returns a {@link QParser} that can be used for building queries outside a parse process (e.g. warming).
+     *
+     * @param req the request.
+     * @return a {@link QParser} that can be used for building queries outside a parse process.
+     */
+    QParser parser(final SolrQueryRequest req) {
+        return new QParser("", null, req.getParams(), req) {
+            @Override
+            public Query parse() {
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,446 @@
+package io.sease.solr.qty;
+
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.FloatPoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.QParser;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Creates the (native) exact and range queries for a given schema field.
+ * The schema type of the field is inspected once, when the factory is created: Point fields get dedicated
+ * {@link IntPoint}, {@link LongPoint}, {@link FloatPoint}, {@link DoublePoint} queries, wrapped in an
+ * {@link IndexOrDocValuesQuery} when doc values are available, so Lucene can choose the cheaper execution strategy.
+ * Any other field type is managed through its {@link org.apache.solr.schema.FieldType}.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+abstract class FieldQueryFactory {
+    /**
+     * The factories resolved against a given schema.
+     * Each field is inspected only once, the first time it is requested; a new instance is needed only when the
+     * schema changes (e.g. after a core reload).
+     *
+     * @author agazzarini
+     * @since 1.0
+     */
+    static class Resolved {
+        final IndexSchema schema;
+        private final Map<String, FieldQueryFactory> factories = new ConcurrentHashMap<>();
+
+        /**
+         * Builds a new {@link Resolved} set of factories for the given schema.
+         *
+         * @param schema the schema.
+         */
+        Resolved(final IndexSchema schema) {
+            this.schema = schema;
+        }
+
+        /**
+         * Returns the factory associated with the given field.
+         *
+         * @param fieldName the field name.
+         * @return the factory associated with the given field.
+         */
+        FieldQueryFactory get(final String fieldName) {
+            return factories.computeIfAbsent(fieldName, name -> of(schema.getField(name)));
+        }
+    }
+
+    final SchemaField field;
+
+    /**
+     * Builds a new {@link FieldQueryFactory} for the given field.
+     *
+     * @param field the schema field.
+     */
+    FieldQueryFactory(final SchemaField field) {
+        this.field = field;
+    }
+
+    /**
+     * Creates the query which matches the given amount.
+     *
+     * @param parser the {@link QParser} which is currently serving the request.
+     * @param amount the amount.
+     * @return the query which matches the given amount.
+     */
+    abstract Query exact(QParser parser, Number amount);
+
+    /**
+     * Creates the query which matches any of the given amounts.
+     * Multiple amounts are collapsed in a single set query (e.g. a {@link org.apache.lucene.search.PointInSetQuery}
+     * or a {@link org.apache.lucene.search.TermInSetQuery}) instead of a disjunction of exact queries.
+     *
+     * @param parser the {@link QParser} which is currently serving the request.
+     * @param amounts the amounts.
+     * @return the query which matches any of the given amounts.
+     */
+    Query exact(final QParser parser, final Collection<Number> amounts) {
+        return amounts.size() == 1 ? exact(parser, amounts.iterator().next()) : set(parser, amounts);
+    }
+
+    /**
+     * Creates the set query which matches any of the given amounts.
+     *
+     * @param parser the {@link QParser} which is currently serving the request.
+     * @param amounts the amounts.
+     * @return the set query which matches any of the given amounts.
+     */
+    abstract Query set(QParser parser, Collection<Number> amounts);
+
+    /**
+     * Creates the query which matches all values between the given bounds (inclusive).
+     *
+     * @param parser the {@link QParser} which is currently serving the request.
+     * @param lowerBound the lower bound.
+     * @param upperBound the upper bound, empty in case the range is unbounded on the right side.
+     * @return the query which matches all values between the given bounds (inclusive).
+     */
+    abstract Query range(QParser parser, Number lowerBound, Optional<Number> upperBound);
+
+    /**
+     * Returns the factory which better fits the type of the given field.
+     *
+     * @param field the schema field.
+     * @return the factory which better fits the type of the given field.
+     */
+    static FieldQueryFactory of(final SchemaField field) {
+        if (field.getType().isPointField() && (field.indexed() || field.hasDocValues())) {
+            switch (field.getType().getNumberType()) {
+                case INTEGER:
+                    return new IntPointQueryFactory(field);
+                case LONG:
+                    return new LongPointQueryFactory(field);
+                case FLOAT:
+                    return new FloatPointQueryFactory(field);
+                case DOUBLE:
+                    return new DoublePointQueryFactory(field);
+                default:
+                    break;
+            }
+        }
+        return new FieldTypeQueryFactory(field);
+    }
+
+    /**
+     * Combines the points and the doc values query, depending on the field capabilities.
+     *
+     * @param pointsQuery the query which runs against the points index.
+     * @param docValuesQuery the query which runs against the doc values.
+     * @return the query which better fits the field capabilities.
+     */
+    Query query(final Query pointsQuery, final Query docValuesQuery) {
+        if (!field.hasDocValues()) {
+            return pointsQuery;
+        }
+        return field.indexed() ? new IndexOrDocValuesQuery(pointsQuery, docValuesQuery) : docValuesQuery;
+    }
+
+    /**
+     * Creates a doc values exact query.
+     *
+     * @param value the (sortable) value.
+     * @return a doc values exact query.
+     */
+    Query docValuesExactQuery(final long value) {
+        return field.multiValued()
+                ? SortedNumericDocValuesField.newSlowExactQuery(field.getName(), value)
+                : NumericDocValuesField.newSlowExactQuery(field.getName(), value);
+    }
+
+    /**
+     * Creates a query which matches any of the given values, using doc values only.
+     * Lucene doesn't provide a doc values set query, so this is a disjunction of doc values exact queries: as the
+     * doc values side of an {@link IndexOrDocValuesQuery}, it is used only for verifying a few candidate documents.
+     *
+     * @param values the (sortable) values.
+     * @return a query which matches any of the given values, using doc values only.
+     */
+    Query docValuesSetQuery(final long ... values) {
+        final BooleanQuery.Builder builder = new BooleanQuery.Builder();
+        for (final long value : values) {
+            builder.add(docValuesExactQuery(value), BooleanClause.Occur.SHOULD);
+        }
+        return new ConstantScoreQuery(builder.build());
+    }
+
+    /**
+     * Creates a doc values range query.
+     *
+     * @param lowerValue the (sortable) lower bound.
+     * @param upperValue the (sortable) upper bound.
+     * @return a doc values range query.
+     */
+    Query docValuesRangeQuery(final long lowerValue, final long upperValue) {
+        return field.multiValued()
+                ? SortedNumericDocValuesField.newSlowRangeQuery(field.getName(), lowerValue, upperValue)
+                : NumericDocValuesField.newSlowRangeQuery(field.getName(), lowerValue, upperValue);
+    }
+
+    /**
+     * Creates a doc values range query on the raw bits of floating point values, which is the encoding of the
+     * single-valued float and double doc values (multi-valued doc values are sortable, see
+     * {@link #docValuesRangeQuery(long, long)}). The bits of negative values are sorted in the reverse order, so
+     * ranges which include negative values are reversed or, if they include zero, split in two.
+     *
+     * @param lowerBits the bits of the lower bound.
+     * @param upperBits the bits of the upper bound.
+     * @param negativeZeroBits the bits of -0 (i.e. the lowest bits of negative values).
+     * @return a doc values range query on the raw bits of floating point values.
+     */
+    Query docValuesBitsRangeQuery(final long lowerBits, final long upperBits, final long negativeZeroBits) {
+        if (lowerBits >= 0) {
+            return docValuesRangeQuery(lowerBits, upperBits);
+        }
+        if (upperBits < 0) {
+            return docValuesRangeQuery(upperBits, lowerBits);
+        }
+
+        return new ConstantScoreQuery(
+                new BooleanQuery.Builder()
+                        .add(docValuesRangeQuery(negativeZeroBits, lowerBits), BooleanClause.Occur.SHOULD)
+                        .add(docValuesRangeQuery(0, upperBits), BooleanClause.Occur.SHOULD)
+                        .build());
+    }
+
+    /**
+     * Fallback factory, which delegates to the field type.
+     */
+    static class FieldTypeQueryFactory extends FieldQueryFactory {
+        FieldTypeQueryFactory(final SchemaField field) {
+            super(field);
+        }
+
+        @Override
+        Query exact(final QParser parser, final Number amount) {
+            return field.getType().getFieldQuery(parser, field, String.valueOf(amount));
+        }
+
+        @Override
+        Query set(final QParser parser, final Collection<Number> amounts) {
+            return field.getType().getSetQuery(parser, field, amounts.stream().map(String::valueOf).collect(toList()));
+        }
+
+        @Override
+        Query range(final QParser parser, final Number lowerBound, final Optional<Number> upperBound) {
+            return field.getType().getRangeQuery(
+                    parser,
+                    field,
+                    String.valueOf(lowerBound),
+                    upperBound.map(String::valueOf).orElse(null),
+                    true,
+                    true);
+        }
+    }
+
+    /**
+     * Integer Point fields factory.
+     * Amounts with decimals cannot match an integer value, so the exact query doesn't match anything and the
+     * range bounds are restricted to the nearest integers within the range.
+     */
+    static class IntPointQueryFactory extends FieldQueryFactory {
+        IntPointQueryFactory(final SchemaField field) {
+            super(field);
+        }
+
+        @Override
+        Query exact(final QParser parser, final Number amount) {
+            if (amount.floatValue() % 1 != 0) {
+                return new MatchNoDocsQuery();
+            }
+
+            final int value = amount.intValue();
+            return query(IntPoint.newExactQuery(field.getName(), value), docValuesExactQuery(value));
+        }
+
+        @Override
+        Query set(final QParser parser, final Collection<Number> amounts) {
+            final int [] values = amounts.stream().filter(amount -> amount.floatValue() % 1 == 0).mapToInt(Number::intValue).toArray();
+            if (values.length == 0) {
+                return new MatchNoDocsQuery();
+            }
+
+            return query(
+                    IntPoint.newSetQuery(field.getName(), values),
+                    docValuesSetQuery(IntStream.of(values).asLongStream().toArray()));
+        }
+
+        @Override
+        Query range(final QParser parser, final Number lowerBound, final Optional<Number> upperBound) {
+            final int lowerValue = (int) Math.ceil(lowerBound.doubleValue());
+            final int upperValue = upperBound.map(bound -> (int) Math.floor(bound.doubleValue())).orElse(Integer.MAX_VALUE);
+            return query(
+                    IntPoint.newRangeQuery(field.getName(), lowerValue, upperValue),
+                    docValuesRangeQuery(lowerValue, upperValue));
+        }
+    }
+
+    /**
+     * Long Point fields factory.
+     * Amounts with decimals cannot match a long value, so the exact query doesn't match anything and the
+     * range bounds are restricted to the nearest integers within the range.
+     */
+    static class LongPointQueryFactory extends FieldQueryFactory {
+        LongPointQueryFactory(final SchemaField field) {
+            super(field);
+        }
+
+        @Override
+        Query exact(final QParser parser, final Number amount) {
+            if (amount.doubleValue() % 1 != 0) {
+                return new MatchNoDocsQuery();
+            }
+
+            final long value = amount.longValue();
+            return query(LongPoint.newExactQuery(field.getName(), value), docValuesExactQuery(value));
+        }
+
+        @Override
+        Query set(final QParser parser, final Collection<Number> amounts) {
+            final long [] values = amounts.stream().filter(amount -> amount.doubleValue() % 1 == 0).mapToLong(Number::longValue).toArray();
+            if (values.length == 0) {
+                return new MatchNoDocsQuery();
+            }
+
+            return query(LongPoint.newSetQuery(field.getName(), values), docValuesSetQuery(values));
+        }
+
+        @Override
+        Query range(final QParser parser, final Number lowerBound, final Optional<Number> upperBound) {
+            final long lowerValue = (long) Math.ceil(lowerBound.doubleValue());
+            final long upperValue = upperBound.map(bound -> (long) Math.floor(bound.doubleValue())).orElse(Long.MAX_VALUE);
+            return query(
+                    LongPoint.newRangeQuery(field.getName(), lowerValue, upperValue),
+                    docValuesRangeQuery(lowerValue, upperValue));
+        }
+    }
+
+    /**
+     * Float Point fields factory.
+     */
+    static class FloatPointQueryFactory extends FieldQueryFactory {
+        FloatPointQueryFactory(final SchemaField field) {
+            super(field);
+        }
+
+        @Override
+        Query exact(final QParser parser, final Number amount) {
+            final float value = amount.floatValue();
+            return query(FloatPoint.newExactQuery(field.getName(), value), docValuesExactQuery(docValue(value)));
+        }
+
+        @Override
+        Query set(final QParser parser, final Collection<Number> amounts) {
+            final float [] values = new float[amounts.size()];
+            final long [] docValues = new long[amounts.size()];
+            int index = 0;
+            for (final Number amount : amounts) {
+                values[index] = amount.floatValue();
+                docValues[index] = docValue(values[index]);
+                index++;
+            }
+            return query(FloatPoint.newSetQuery(field.getName(), values), docValuesSetQuery(docValues));
+        }
+
+        @Override
+        Query range(final QParser parser, final Number lowerBound, final Optional<Number> upperBound) {
+            final float lowerValue = lowerBound.floatValue();
+            final float upperValue = upperBound.map(Number::floatValue).orElse(Float.POSITIVE_INFINITY);
+            return query(
+                    FloatPoint.newRangeQuery(field.getName(), lowerValue, upperValue),
+                    field.multiValued()
+                            ? docValuesRangeQuery(docValue(lowerValue), docValue(upperValue))
+                            : docValuesBitsRangeQuery(docValue(lowerValue), docValue(upperValue), Float.floatToIntBits(-0f)));
+        }
+
+        /**
+         * Returns the doc value of the given value: single-valued doc values are the raw bits of the value,
+         * multi-valued doc values are sortable.
+         *
+         * @param value the value.
+         * @return the doc value of the given value.
+         */
+        private long docValue(final float value) {
+            return field.multiValued() ? NumericUtils.floatToSortableInt(value) : Float.floatToIntBits(value);
+        }
+    }
+
+    /**
+     * Double Point fields factory.
+     */
+    static class DoublePointQueryFactory extends FieldQueryFactory {
+        DoublePointQueryFactory(final SchemaField field) {
+            super(field);
+        }
+
+        @Override
+        Query exact(final QParser parser, final Number amount) {
+            final double value = asDouble(amount);
+            return query(DoublePoint.newExactQuery(field.getName(), value), docValuesExactQuery(docValue(value)));
+        }
+
+        @Override
+        Query set(final QParser parser, final Collection<Number> amounts) {
+            final double [] values = amounts.stream().mapToDouble(DoublePointQueryFactory::asDouble).toArray();
+            return query(
+                    DoublePoint.newSetQuery(field.getName(), values),
+                    docValuesSetQuery(DoubleStream.of(values).mapToLong(this::docValue).toArray()));
+        }
+
+        @Override
+        Query range(final QParser parser, final Number lowerBound, final Optional<Number> upperBound) {
+            final double lowerValue = asDouble(lowerBound);
+            final double upperValue = upperBound.map(DoublePointQueryFactory::asDouble).orElse(Double.POSITIVE_INFINITY);
+            return query(
+                    DoublePoint.newRangeQuery(field.getName(), lowerValue, upperValue),
+                    field.multiValued()
+                            ? docValuesRangeQuery(docValue(lowerValue), docValue(upperValue))
+                            : docValuesBitsRangeQuery(docValue(lowerValue), docValue(upperValue), Double.doubleToLongBits(-0d)));
+        }
+
+        /**
+         * Returns the doc value of the given value: single-valued doc values are the raw bits of the value,
+         * multi-valued doc values are sortable.
+         *
+         * @param value the value.
+         * @return the doc value of the given value.
+         */
+        private long docValue(final double value) {
+            return field.multiValued() ? NumericUtils.doubleToSortableLong(value) : Double.doubleToLongBits(value);
+        }
+
+        /**
+         * Amounts are detected as floats: the decimal representation is used in order to avoid
+         * the float to double widening noise (e.g. 100.7 becoming 100.69999694824219).
+         *
+         * @param amount the amount.
+         * @return the double value of the given amount.
+         */
+        private static double asDouble(final Number amount) {
+            return Double.parseDouble(String.valueOf(amount));
+        }
+    }
+}
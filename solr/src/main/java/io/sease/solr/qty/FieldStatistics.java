@@ -0,0 +1,231 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.GapMode;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * The value statistics (min, max, number of documents with a value and value distribution) of a numeric field.
+ * Bounds are expressed in the field native type (i.e. Integer, Long, Float or Double).
+ * The value distribution is described by a coarse histogram, which merges (once) the histograms of all segments;
+ * statistics which only carry the bounds (see {@link IndexStatistics#field(org.apache.solr.schema.SchemaField)}) have
+ * no histogram, so they cannot estimate value counts nor size gaps.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class FieldStatistics {
+    private final static double INTEGRAL_TOLERANCE = 1e-9;
+    static final FieldStatistics EMPTY = new FieldStatistics(null, null, 0, null);
+
+    private final Number min;
+    private final Number max;
+    private final int docCount;
+    private final ValueHistogram histogram;
+
+    /**
+     * Builds a new {@link FieldStatistics} with the given data.
+     *
+     * @param min the minimum value of the field.
+     * @param max the maximum value of the field.
+     * @param docCount the number of documents which have at least one value for the field.
+     * @param histogram the value histogram, null if the value distribution is unknown.
+     */
+    FieldStatistics(final Number min, final Number max, final int docCount, final ValueHistogram histogram) {
+        this.min = min;
+        this.max = max;
+        this.docCount = docCount;
+        this.histogram = histogram;
+    }
+
+    /**
+     * Returns the minimum value of the field, empty if no document has a value.
+     *
+     * @return the minimum value of the field, empty if no document has a value.
+     */
+    public Optional<Number> min() {
+        return Optional.ofNullable(min);
+    }
+
+    /**
+     * Returns the maximum value of the field, empty if no document has a value.
+     *
+     * @return the maximum value of the field, empty if no document has a value.
+     */
+    public Optional<Number> max() {
+        return Optional.ofNullable(max);
+    }
+
+    /**
+     * Returns the number of documents which have at least one value for the field.
+     *
+     * @return the number of documents which have at least one value for the field.
+     */
+    public int docCount() {
+        return docCount;
+    }
+
+    /**
+     * Returns true if no document has a value for the field.
+     *
+     * @return true if no document has a value for the field.
+     */
+    public boolean isEmpty() {
+        return min == null;
+    }
+
+    /**
+     * Returns true if the given value falls within the field bounds.
+     *
+     * @param value the value.
+     * @return true if the given value falls within the field bounds.
+     */
+    public boolean contains(final Number value) {
+        return !isEmpty()
+                && value.doubleValue() >= min.doubleValue()
+                && value.doubleValue() <= max.doubleValue();
+    }
+
+    /**
+     * Returns true if the given (inclusive) range intersects the field bounds.
+     *
+     * @param lowerBound the range lower bound.
+     * @param upperBound the range upper bound, empty if the range is unbounded on the right side.
+     * @return true if the given range intersects the field bounds.
+     */
+    public boolean intersects(final Number lowerBound, final Optional<Number> upperBound) {
+        return !isEmpty()
+                && lowerBound.doubleValue() <= max.doubleValue()
+                && upperBound.map(bound -> bound.doubleValue() >= min.doubleValue()).orElse(true);
+    }
+
+    /**
+     * Returns the (estimated) number of values which fall within the given range.
+     *
+     * @param lowerBound the range lower bound.
+     * @param upperBound the range upper bound.
+     * @return the (estimated) number of values which fall within the given range.
+     */
+    public double count(final double lowerBound, final double upperBound) {
+        return histogram != null ? histogram.count(lowerBound, upperBound) : 0;
+    }
+
+    /**
+     * Returns the gap value which makes the range generated (with the given mode) for the given amount match
+     * (approximately) the target number of values.
+     * If the whole field extent doesn't contain enough values, the resulting gap covers the whole extent.
+     * For integral fields, the result is an integer.
+     *
+     * The number of values matched by the range is a piecewise linear function of the gap, whose breakpoints are
+     * the gaps which bring the range bounds on the histogram bucket boundaries: the gap is found by walking those
+     * breakpoints, in ascending order, on the cumulative distribution, and then by interpolating within the segment
+     * which reaches the target.
+     *
+     * @param mode the gap mode.
+     * @param amount the detected amount.
+     * @param target the target number of matching values.
+     * @return the gap value, empty if no document has a value for the field or the value distribution is unknown.
+     */
+    public Optional<Number> gap(final GapMode mode, final Number amount, final long target) {
+        if (isEmpty() || histogram == null) {
+            return Optional.empty();
+        }
+
+        final double value = amount.doubleValue();
+        final double limit;
+        switch (mode) {
+            case MIN:
+                limit = Math.max(0, max.doubleValue() - value);
+                break;
+            case MAX:
+                limit = Math.max(0, value - min.doubleValue());
+                break;
+            default:
+                limit = Math.max(Math.abs(value - min.doubleValue()), Math.abs(max.doubleValue() - value));
+        }
+
+        final boolean integral = min instanceof Integer || min instanceof Long;
+        final double extent = integral ? Math.ceil(limit) : limit;
+        if (histogram.isSingular()) {
+            return Optional.of(extent);
+        }
+
+        // The matched interval is [lower - gap, upper + gap) (only on the sides the mode extends); an integer
+        // value v is seen as the [v, v + 1) interval
+        final boolean left = mode != GapMode.MIN;
+        final boolean right = mode != GapMode.MAX;
+        final double lower = integral ? Math.ceil(value) : value;
+        final double upper = integral ? Math.floor(value) + 1 : value;
+
+        int below = ValueHistogram.BUCKETS;
+        while (below >= 0 && histogram.boundary(below) >= lower) below--;
+        int above = 0;
+        while (above <= ValueHistogram.BUCKETS && histogram.boundary(above) <= upper) above++;
+
+        double previousGap = 0;
+        double previousCount = histogram.cdf(upper) - histogram.cdf(lower);
+        while (previousCount < target && previousGap < extent) {
+            final double leftGap = left && below >= 0 ? lower - histogram.boundary(below) : Double.POSITIVE_INFINITY;
+            final double rightGap = right && above <= ValueHistogram.BUCKETS ? histogram.boundary(above) - upper : Double.POSITIVE_INFINITY;
+            final double gap = Math.min(extent, Math.min(leftGap, rightGap));
+            if (gap == leftGap) below--;
+            if (gap == rightGap) above++;
+
+            final double count = histogram.cdf(right ? upper + gap : upper) - histogram.cdf(left ? lower - gap : lower);
+            if (count >= target) {
+                final double interpolated = previousGap + (target - previousCount) * (gap - previousGap) / (count - previousCount);
+                return Optional.of(integral ? Math.min(extent, Math.ceil(interpolated - INTEGRAL_TOLERANCE)) : interpolated);
+            }
+
+            previousGap = gap;
+            previousCount = count;
+        }
+
+        return Optional.of(previousCount >= target ? previousGap : extent);
+    }
+
+    /**
+     * Merges the given statistics (e.g. computed on each segment) in a single instance, which covers all values.
+     * Value histograms, if available, are merged in a single histogram.
+     *
+     * @param statistics the statistics to be merged.
+     * @return the statistics which cover all the given sets of values.
+     */
+    static FieldStatistics merge(final List<FieldStatistics> statistics) {
+        Number min = null;
+        Number max = null;
+        int docCount = 0;
+        final List<ValueHistogram> histograms = new ArrayList<>();
+        for (final FieldStatistics segment : statistics) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+
+            min = min == null || segment.min.doubleValue() < min.doubleValue() ? segment.min : min;
+            max = max == null || segment.max.doubleValue() > max.doubleValue() ? segment.max : max;
+            docCount += segment.docCount;
+            if (segment.histogram != null) {
+                histograms.add(segment.histogram);
+            }
+        }
+
+        if (min == null) {
+            return EMPTY;
+        }
+
+        return new FieldStatistics(
+                min,
+                max,
+                docCount,
+                histograms.isEmpty()
+                        ? null
+                        : ValueHistogram.merge(histograms, min.doubleValue(), max.doubleValue(), histograms.get(0).isIntegral()));
+    }
+
+    @Override
+    public String toString() {
+        return "[" + min + " TO " + max + "], docCount=" + docCount;
+    }
+}
@@ -0,0 +1,372 @@
+package io.sease.solr.qty;
+
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.FloatPoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.PointValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.solr.schema.NumberType;
+import org.apache.solr.schema.SchemaField;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongConsumer;
+import java.util.function.LongFunction;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * The value statistics of the numeric fields of an index (i.e. a top level reader).
+ *
+ * Statistics come in two flavours:
+ *
+ * <ul>
+ *     <li>bounds (min, max and number of documents with a value, see {@link #field(SchemaField)}), which are read,
+ *     lazily and for free, from the points index metadata of each segment. They are available (also on the request
+ *     path) for indexed point fields, while for fields which only have doc values they require a visit of all values,
+ *     so they are available only once the distribution of the field has been computed;</li>
+ *     <li>distributions (bounds plus a coarse value histogram, see {@link #distribution(SchemaField)}), which require
+ *     a visit of all the values of the field. They are never computed on the request path: they are computed, with
+ *     {@link #compute(SchemaField)}, by the searcher event listeners (see {@link IndexStatisticsListener}) before
+ *     the new searcher is registered.</li>
+ * </ul>
+ *
+ * Segment distributions are cached by segment core, so when a new searcher is opened only the new segments have to
+ * be visited. Caches are evicted when the corresponding reader is closed.
+ *
+ * Statistics are computed for point fields only: for any other field the statistics are unknown (i.e. empty).
+ * Note that deleted documents are not taken in account, so the bounds could be wider than the actual live values.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class IndexStatistics {
+    private final static Map<IndexReader.CacheKey, IndexStatistics> READERS = new ConcurrentHashMap<>();
+    private final static Map<IndexReader.CacheKey, Map<String, FieldStatistics>> SEGMENTS = new ConcurrentHashMap<>();
+
+    private final IndexReader reader;
+    private final Map<String, Optional<FieldStatistics>> bounds = new ConcurrentHashMap<>();
+    private final Map<String, Optional<FieldStatistics>> distributions = new ConcurrentHashMap<>();
+
+    /**
+     * Builds a new {@link IndexStatistics} for the given reader.
+     *
+     * @param reader the (top level) index reader.
+     */
+    private IndexStatistics(final IndexReader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * Returns the statistics associated with the given (top level) reader.
+     *
+     * @param reader the (top level) index reader.
+     * @return the statistics associated with the given (top level) reader.
+     */
+    public static IndexStatistics of(final IndexReader reader) {
+        final IndexReader.CacheHelper cacheHelper = reader.getReaderCacheHelper();
+        if (cacheHelper == null) {
+            return new IndexStatistics(reader);
+        }
+
+        return READERS.computeIfAbsent(cacheHelper.getKey(), key -> {
+            cacheHelper.addClosedListener(READERS::remove);
+            return new IndexStatistics(reader);
+        });
+    }
+
+    /**
+     * Returns the bounds of the given field. This method never visits the field values, so it can be safely
+     * called on the request path.
+     *
+     * @param field the schema field.
+     * @return the bounds of the given field, empty if they are not available (i.e. the field is not a point field,
+     *          or it is not indexed and its distribution hasn't been computed).
+     */
+    public Optional<FieldStatistics> field(final SchemaField field) {
+        final Optional<FieldStatistics> distribution = distributions.get(field.getName());
+        if (distribution != null) {
+            return distribution;
+        }
+
+        return bounds.computeIfAbsent(field.getName(), name -> bounds(field));
+    }
+
+    /**
+     * Returns the (previously computed) distribution of the given field.
+     * This method never visits the field values, so it can be safely called on the request path.
+     *
+     * @param field the schema field.
+     * @return the distribution of the given field, empty if it hasn't been computed.
+     * @see #compute(SchemaField)
+     */
+    public Optional<FieldStatistics> distribution(final SchemaField field) {
+        return distributions.getOrDefault(field.getName(), Optional.empty());
+    }
+
+    /**
+     * Computes (if it hasn't been already computed) the distribution of the given field, merging the statistics of
+     * each segment. This method visits all the values of the field in the segments which haven't been visited yet,
+     * so it is meant to be called while warming a new searcher.
+     *
+     * @param field the schema field.
+     * @return the distribution of the given field, empty if it cannot be computed for that field.
+     */
+    public Optional<FieldStatistics> compute(final SchemaField field) {
+        return distributions.computeIfAbsent(field.getName(), name -> {
+            if (!field.getType().isPointField() || !(field.indexed() || field.hasDocValues())) {
+                return Optional.empty();
+            }
+
+            return Optional.of(
+                    FieldStatistics.merge(
+                            reader.leaves().stream()
+                                    .map(LeafReaderContext::reader)
+                                    .map(leaf -> segment(leaf, field))
+                                    .collect(toList())));
+        });
+    }
+
+    /**
+     * Reads the bounds of the given field from the points index metadata of each segment.
+     *
+     * @param field the schema field.
+     * @return the bounds of the given field, empty if the field is not an indexed point field.
+     */
+    private Optional<FieldStatistics> bounds(final SchemaField field) {
+        if (!field.getType().isPointField() || !field.indexed()) {
+            return Optional.empty();
+        }
+
+        final NumberType type = field.getType().getNumberType();
+        final List<FieldStatistics> segments = new ArrayList<>();
+        try {
+            for (final LeafReaderContext context : reader.leaves()) {
+                final PointValues points = context.reader().getPointValues(field.getName());
+                if (points != null && points.getDocCount() > 0) {
+                    segments.add(
+                            new FieldStatistics(
+                                    decode(type, points.getMinPackedValue()),
+                                    decode(type, points.getMaxPackedValue()),
+                                    points.getDocCount(),
+                                    null));
+                }
+            }
+        } catch (final IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+        return Optional.of(FieldStatistics.merge(segments));
+    }
+
+    /**
+     * Returns the (cached) statistics of the given field within a segment.
+     *
+     * @param leaf the segment reader.
+     * @param field the schema field.
+     * @return the statistics of the given field within a segment.
+     */
+    private static FieldStatistics segment(final LeafReader leaf, final SchemaField field) {
+        final IndexReader.CacheHelper cacheHelper = leaf.getCoreCacheHelper();
+        if (cacheHelper == null) {
+            return compute(leaf, field);
+        }
+
+        return SEGMENTS
+                .computeIfAbsent(cacheHelper.getKey(), key -> {
+                    cacheHelper.addClosedListener(SEGMENTS::remove);
+                    return new ConcurrentHashMap<>();
+                })
+                .computeIfAbsent(field.getName(), name -> compute(leaf, field));
+    }
+
+    /**
+     * Computes the statistics of the given field within a segment.
+     *
+     * @param leaf the segment reader.
+     * @param field the schema field.
+     * @return the statistics of the given field within a segment.
+     */
+    private static FieldStatistics compute(final LeafReader leaf, final SchemaField field) {
+        try {
+            return field.indexed() ? points(leaf, field) : docValues(leaf, field);
+        } catch (final IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Reads the statistics of the given field from the segment points index.
+     * Bounds are cheap, because the points index already maintains the min and max packed values, while the
+     * histogram requires a visit of all points.
+     *
+     * @param leaf the segment reader.
+     * @param field the schema field.
+     * @return the statistics of the given field within a segment.
+     * @throws IOException in case of I/O failure.
+     */
+    private static FieldStatistics points(final LeafReader leaf, final SchemaField field) throws IOException {
+        final PointValues points = leaf.getPointValues(field.getName());
+        if (points == null || points.getDocCount() == 0) {
+            return FieldStatistics.EMPTY;
+        }
+
+        final NumberType type = field.getType().getNumberType();
+        final Number min = decode(type, points.getMinPackedValue());
+        final Number max = decode(type, points.getMaxPackedValue());
+        final ValueHistogram histogram = new ValueHistogram(min.doubleValue(), max.doubleValue(), isIntegral(type));
+        points.intersect(new PointValues.IntersectVisitor() {
+            @Override
+            public void visit(final int docID) {
+                // Never called, because every cell crosses the (virtual) query
+            }
+
+            @Override
+            public void visit(final int docID, final byte[] packedValue) {
+                histogram.add(decode(type, packedValue).doubleValue());
+            }
+
+            @Override
+            public PointValues.Relation compare(final byte[] minPackedValue, final byte[] maxPackedValue) {
+                return PointValues.Relation.CELL_CROSSES_QUERY;
+            }
+        });
+
+        return new FieldStatistics(min, max, points.getDocCount(), histogram);
+    }
+
+    /**
+     * Computes the statistics of the given field by visiting (twice) the segment doc values: the first pass
+     * collects the bounds, the second one fills the histogram.
+     *
+     * @param leaf the segment reader.
+     * @param field the schema field.
+     * @return the statistics of the given field within a segment.
+     * @throws IOException in case of I/O failure.
+     */
+    private static FieldStatistics docValues(final LeafReader leaf, final SchemaField field) throws IOException {
+        final LongFunction<Number> decoder = decoder(field.getType().getNumberType(), field.multiValued());
+        final double [] bounds = { Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY };
+        final long [] rawBounds = new long[2];
+        final int docCount = visit(leaf, field, value -> {
+            final double decoded = decoder.apply(value).doubleValue();
+            if (decoded < bounds[0]) {
+                bounds[0] = decoded;
+                rawBounds[0] = value;
+            }
+            if (decoded > bounds[1]) {
+                bounds[1] = decoded;
+                rawBounds[1] = value;
+            }
+        });
+
+        if (docCount == 0) {
+            return FieldStatistics.EMPTY;
+        }
+
+        final ValueHistogram histogram =
+                new ValueHistogram(bounds[0], bounds[1], isIntegral(field.getType().getNumberType()));
+        visit(leaf, field, value -> histogram.add(decoder.apply(value).doubleValue()));
+
+        return new FieldStatistics(
+                decoder.apply(rawBounds[0]),
+                decoder.apply(rawBounds[1]),
+                docCount,
+                histogram);
+    }
+
+    /**
+     * Visits all the doc values of the given field within a segment.
+     *
+     * @param leaf the segment reader.
+     * @param field the schema field.
+     * @param consumer the (raw) value consumer.
+     * @return the number of documents which have at least one value.
+     * @throws IOException in case of I/O failure.
+     */
+    private static int visit(final LeafReader leaf, final SchemaField field, final LongConsumer consumer) throws IOException {
+        int docCount = 0;
+        if (field.multiValued()) {
+            final SortedNumericDocValues values = DocValues.getSortedNumeric(leaf, field.getName());
+            while (values.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                docCount++;
+                for (int i = 0; i < values.docValueCount(); i++) {
+                    consumer.accept(values.nextValue());
+                }
+            }
+        } else {
+            final NumericDocValues values = DocValues.getNumeric(leaf, field.getName());
+            while (values.nextDoc() != DocIdSetIterator.NO_MORE_DOCS) {
+                docCount++;
+                consumer.accept(values.longValue());
+            }
+        }
+        return docCount;
+    }
+
+    /**
+     * Returns true if the given number type has integral values.
+     *
+     * @param type the field number type.
+     * @return true if the given number type has integral values.
+     */
+    private static boolean isIntegral(final NumberType type) {
+        return type != NumberType.FLOAT && type != NumberType.DOUBLE;
+    }
+
+    /**
+     * Decodes a packed point value.
+     *
+     * @param type the field number type.
+     * @param packedValue the packed value.
+     * @return the decoded value.
+     */
+    private static Number decode(final NumberType type, final byte[] packedValue) {
+        switch (type) {
+            case INTEGER:
+                return IntPoint.decodeDimension(packedValue, 0);
+            case FLOAT:
+                return FloatPoint.decodeDimension(packedValue, 0);
+            case DOUBLE:
+                return DoublePoint.decodeDimension(packedValue, 0);
+            default:
+                return LongPoint.decodeDimension(packedValue, 0);
+        }
+    }
+
+    /**
+     * Returns the decoder of the doc values of a field.
+     * Note that Solr encodes single valued floating point values with their raw bits, while multivalued
+     * floating point values are encoded in their sortable representation.
+     *
+     * @param type the field number type.
+     * @param multiValued true if the field is multivalued.
+     * @return the decoder of the doc values of a field.
+     */
+    private static LongFunction<Number> decoder(final NumberType type, final boolean multiValued) {
+        switch (type) {
+            case INTEGER:
+                return value -> (int) value;
+            case FLOAT:
+                return multiValued
+                        ? value -> NumericUtils.sortableIntToFloat((int) value)
+                        : value -> Float.intBitsToFloat((int) value);
+            case DOUBLE:
+                return multiValued ? NumericUtils::sortableLongToDouble : Double::longBitsToDouble;
+            default:
+                return value -> value;
+        }
+    }
+}
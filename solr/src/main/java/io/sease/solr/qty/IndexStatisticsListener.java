@@ -0,0 +1,108 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.Unit;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.core.SolrEventListener;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.QParserPlugin;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A {@link SolrEventListener} which computes the value distributions (see {@link IndexStatistics#compute(SchemaField)})
+ * of the quantity fields each time a new searcher is opened, before it serves any request: distributions (needed by
+ * adaptive gaps and by the suggester) are never computed on the request path.
+ *
+ * The listener is configured in solrconfig.xml, for the firstSearcher and newSearcher events, with an optional
+ * "fields" parameter (a comma separated list of field names). If that parameter is missing, the distributions are
+ * computed only for the fields which need them, that is the target fields of the units which have an adaptive gap,
+ * in the configurations of the quantity detectors (query parsers) declared in solrconfig.xml.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class IndexStatisticsListener implements SolrEventListener {
+    private final static Logger LOGGER = LoggerFactory.getLogger(IndexStatisticsListener.class);
+
+    public final static String FIELDS_PARAM_NAME = "fields";
+
+    private String [] fieldNames;
+
+    @Override
+    public void init(final NamedList args) {
+        fieldNames = SolrParams.toSolrParams(args).getParams(FIELDS_PARAM_NAME);
+        if (fieldNames != null) {
+            fieldNames = Arrays.stream(fieldNames)
+                    .flatMap(value -> Arrays.stream(value.split(",")))
+                    .map(String::trim)
+                    .filter(name -> !name.isEmpty())
+                    .toArray(String[]::new);
+        }
+    }
+
+    @Override
+    public void newSearcher(final SolrIndexSearcher newSearcher, final SolrIndexSearcher currentSearcher) {
+        final long start = System.currentTimeMillis();
+        final IndexStatistics statistics = IndexStatistics.of(newSearcher.getIndexReader());
+        final Collection<SchemaField> fields = fields(newSearcher);
+        fields.forEach(field ->
+                statistics.compute(field)
+                        .ifPresent(value -> LOGGER.debug("Quantity field {} statistics: {}", field.getName(), value)));
+
+        LOGGER.info("Distributions of {} quantity field(s) computed in {} ms", fields.size(), System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Returns the fields whose statistics have to be computed.
+     *
+     * @param searcher the new searcher.
+     * @return the fields whose statistics have to be computed.
+     */
+    private Collection<SchemaField> fields(final SolrIndexSearcher searcher) {
+        final Stream<String> names = fieldNames == null || fieldNames.length == 0
+                ? adaptiveFields(searcher.getCore())
+                : Arrays.stream(fieldNames);
+
+        return names
+                .distinct()
+                .map(searcher.getSchema()::getFieldOrNull)
+                .filter(Objects::nonNull)
+                .collect(toList());
+    }
+
+    /**
+     * Returns the target fields of the units which have an adaptive gap, in the configurations of the quantity
+     * detectors declared in the given core.
+     *
+     * @param core the core.
+     * @return the target fields of the units which have an adaptive gap.
+     */
+    private static Stream<String> adaptiveFields(final SolrCore core) {
+        return core.getSolrConfig().getPluginInfos(QParserPlugin.class.getName()).stream()
+                .map(info -> core.getQueryPlugin(info.name))
+                .filter(QuantityDetector.class::isInstance)
+                .flatMap(detector -> ((QuantityDetector) detector).units().stream())
+                .flatMap(unit -> unit.fieldNames().stream()
+                        .filter(fieldName -> unit.gap(fieldName).y.filter(Unit.Gap::isAdaptive).isPresent()));
+    }
+
+    @Override
+    public void postCommit() {
+        // Nothing to be done here
+    }
+
+    @Override
+    public void postSoftCommit() {
+        // Nothing to be done here
+    }
+}
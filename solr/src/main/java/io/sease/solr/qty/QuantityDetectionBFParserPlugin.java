@@ -0,0 +1,168 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.QuantityOccurrence;
+import io.sease.solr.qty.domain.Unit;
+import org.apache.lucene.queries.function.FunctionQuery;
+import org.apache.lucene.queries.function.ValueSource;
+import org.apache.lucene.queries.function.valuesource.ConstValueSource;
+import org.apache.lucene.queries.function.valuesource.ReciprocalFloatFunction;
+import org.apache.lucene.queries.function.valuesource.SumFloatFunction;
+import org.apache.lucene.search.Query;
+import org.apache.solr.common.params.MapSolrParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.FunctionQParserPlugin;
+import org.apache.solr.search.QParser;
+import org.apache.solr.search.QParserPlugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+
+/**
+ * A {@link QParserPlugin} which produces a boost function according with the detected quantities within a query string.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantityDetectionBFParserPlugin extends CachingQuantityDetector {
+    private FunctionQParserPlugin qParser;
+
+    @Override
+    public void init(final NamedList args) {
+        super.init(args);
+        this.qParser = new FunctionQParserPlugin();
+    }
+
+    @Override
+    public QParserPlugin qparserPlugin() {
+        return qParser;
+    }
+
+    /**
+     * The boost function is built natively (i.e. without going through the function query parser), so that
+     * functions on fields which don't have any value in the index can be pruned.
+     */
+    @Override
+    public QParser createParser(final String qstr, final SolrParams localParams, final SolrParams params, final SolrQueryRequest req) {
+        if (qstr == null) {
+            return null;
+        }
+
+        return new QParser(qstr, localParams, params, req) {
+            @Override
+            public Query parse() {
+                final SolrParams parameters = SolrParams.wrapDefaults(localParams, params);
+                return new FunctionQuery(
+                        boostFunction(this, parameters, detect(qstr, parameters, query -> new DetectedQuantities()))
+                                .orElseGet(() -> new ConstValueSource(1)));
+            }
+        };
+    }
+
+    /**
+     * Returns the (native) boost function for the given detected quantities.
+     * The function is cached, if the query cache has been configured.
+     *
+     * @param parser the {@link QParser} which is currently serving the request.
+     * @param params the (local and request) parameters.
+     * @param quantities the detected quantities.
+     * @return the (native) boost function for the given detected quantities, empty if there are no quantities.
+     */
+    Optional<ValueSource> boostFunction(final QParser parser, final SolrParams params, final DetectedQuantities quantities) {
+        if (quantities.isEmpty()) {
+            return Optional.empty();
+        }
+
+        final Map<String, String> settings = new HashMap<>();
+        settings.put("m", String.valueOf(params.getInt("m", 1)));
+        settings.put("a", String.valueOf(params.getInt("a", 1000)));
+        settings.put("b", String.valueOf(params.getInt("b", 1000)));
+        return cached(parser, new QuantityQueryKey(this, quantities, settings));
+    }
+
+    @Override
+    Object build(final QuantityQueryKey key, final QParser parser) {
+        return key.quantities.replay(nativeQueryBuilder(parser, new MapSolrParams(key.settings)));
+    }
+
+    @Override
+    QueryBuilder<String> queryBuilder(final StringBuilder query, final SolrParams params) {
+        final StringBuilder buffer = new StringBuilder();
+        final String suffix = ")),"
+                + params.getInt("m", 1) + ","
+                + params.getInt("a", 1000) + ","
+                + params.getInt("b", 1000) + ") ";
+        return new EquivalentQuantityBuilder<String>() {
+            @Override
+            protected void onQuantityDetected(final Unit unit, final QuantityOccurrence occurrence) {
+                unit.fieldNames().forEach(fieldName ->
+                        F.append(buffer.append("recip(abs(sub(").append(fieldName).append(", "), occurrence.amount()).append(suffix));
+            }
+
+            @Override
+            public String product() {
+                return buffer.length() > 0 ? buffer.toString().trim() : "1";
+            }
+        };
+    }
+
+    /**
+     * Returns a query builder which directly produces the (native) boost function, without going through
+     * the string representation and the function query parser.
+     * The contribution of each detected quantity is the same recip(abs(sub(field, amount)),m,a,b) function
+     * produced by the string builder; in case of multiple quantities, the resulting functions are summed.
+     * When the index statistics are available, functions on fields without any value are pruned: such functions
+     * would produce the same score for every document.
+     *
+     * @param parser the {@link QParser} which is currently serving the request.
+     * @param params the request parameters.
+     * @return a query builder which directly produces the (native) boost function.
+     */
+    EquivalentQuantityBuilder<Optional<ValueSource>> nativeQueryBuilder(final QParser parser, final SolrParams params) {
+        final float m = params.getInt("m", 1);
+        final float a = params.getInt("a", 1000);
+        final float b = params.getInt("b", 1000);
+        final Optional<IndexStatistics> statistics = statistics(parser.getReq());
+        final List<ValueSource> functions = new ArrayList<>();
+        return new EquivalentQuantityBuilder<Optional<ValueSource>>() {
+            @Override
+            protected void onQuantityDetected(final Unit unit, final QuantityOccurrence occurrence) {
+                unit.fieldNames()
+                        .forEach(fieldName -> {
+                            final SchemaField field = parser.getReq().getSchema().getField(fieldName);
+                            if (statistics.flatMap(index -> index.field(field)).filter(FieldStatistics::isEmpty).isPresent()) {
+                                metrics.prunedClauses.inc();
+                                return;
+                            }
+
+                            functions.add(
+                                    new ReciprocalFloatFunction(
+                                            new AbsoluteDistanceFunction(
+                                                    field.getType().getValueSource(field, parser),
+                                                    occurrence.amount().floatValue()),
+                                            m,
+                                            a,
+                                            b));
+                        });
+            }
+
+            @Override
+            public Optional<ValueSource> product() {
+                switch (functions.size()) {
+                    case 0:
+                        return Optional.empty();
+                    case 1:
+                        return Optional.of(functions.get(0));
+                    default:
+                        return Optional.of(new SumFloatFunction(functions.toArray(new ValueSource[functions.size()])));
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,450 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.QuantityOccurrence;
+import io.sease.solr.qty.domain.Unit;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.MapSolrParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.search.LuceneQParserPlugin;
+import org.apache.solr.search.QParser;
+import org.apache.solr.search.QParserPlugin;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A {@link QParserPlugin} which produces a boost query according with the detected quantities within a query string.
+ * The generated query contains (for each detected quantity) a literal query (e.g. capacity:100) and an optional
+ * range query (e.g. capacity:[90 TO 110]) depending on the configured gap.
+ * If the gap is bucketed, the range query is replaced by a lookup of the bucket terms which cover the range
+ * (e.g. capacity_bucket:(8 9 10)) on the companion bucket field, quantized at index time with the gap value
+ * (see {@link QuantityNormalizationUpdateProcessorFactory}).
+ *
+ * Gaps and boosts can be overridden per request (e.g. qty.gap.capacity=5 or qty.boost.capacity=2, see
+ * {@link QuantityOverrides}).
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantityDetectionBQParserPlugin extends CachingQuantityDetector {
+    private LuceneQParserPlugin qParser;
+    private volatile FieldQueryFactory.Resolved fieldQueryFactories;
+
+    public final static String MAX_CLAUSES_PARAM_NAME = "maxClauses";
+    private int maxClauses;
+
+    @Override
+    public void init(final NamedList args) {
+        super.init(args);
+        maxClauses = SolrParams.toSolrParams(args).getInt(MAX_CLAUSES_PARAM_NAME, BooleanQuery.getMaxClauseCount());
+        this.qParser = new LuceneQParserPlugin();
+    }
+
+
+    @Override
+    public QParserPlugin qparserPlugin() {
+        return qParser;
+    }
+
+    /**
+     * The boost query is built natively (i.e. without going through the Lucene query parser) using the schema
+     * type of each target field.
+     */
+    @Override
+    public QParser createParser(final String qstr, final SolrParams localParams, final SolrParams params, final SolrQueryRequest req) {
+        if (qstr == null) {
+            return null;
+        }
+
+        return new QParser(qstr, localParams, params, req) {
+            @Override
+            public Query parse() {
+                return boostQuery(this, detect(qstr, params, query -> new DetectedQuantities()))
+                        .orElseGet(MatchAllDocsQuery::new);
+            }
+        };
+    }
+
+    /**
+     * Returns the (native) boost query for the given detected quantities.
+     * The query is cached, if the query cache has been configured, together with the overrides of the request.
+     *
+     * @param parser the {@link QParser} which is currently serving the request.
+     * @param quantities the detected quantities.
+     * @return the (native) boost query for the given detected quantities, empty if there are no quantities.
+     */
+    Optional<Query> boostQuery(final QParser parser, final DetectedQuantities quantities) {
+        if (quantities.isEmpty()) {
+            return Optional.empty();
+        }
+
+        final QuantityOverrides overrides =
+                QuantityOverrides.of(SolrParams.wrapDefaults(parser.getLocalParams(), parser.getParams()));
+        return cached(parser, new QuantityQueryKey(this, quantities, overrides.settings()));
+    }
+
+    @Override
+    Object build(final QuantityQueryKey key, final QParser parser) {
+        return key.quantities.replay(
+                nativeQueryBuilder(
+                        parser,
+                        key.settings.isEmpty() ? QuantityOverrides.NONE : QuantityOverrides.of(new MapSolrParams(key.settings))));
+    }
+
+    @Override
+    QueryBuilder<String> queryBuilder(final StringBuilder query, final SolrParams params) {
+        final StringBuilder buffer = new StringBuilder();
+        final QuantityOverrides overrides = QuantityOverrides.of(params);
+        return new EquivalentQuantityBuilder<String>() {
+            @Override
+            protected void onQuantityDetected(final Unit unit, final QuantityOccurrence occurrence) {
+                unit.fieldNames().forEach(fieldName -> addLiteralQuery(fieldName, overrides.boost(unit, fieldName), buffer, occurrence));
+                unit.fieldNames().forEach(fieldName ->
+                        overrides.gap(unit, fieldName).ifPresent(gap -> addRangeQuery(fieldName, gap, buffer, occurrence)));
+            }
+
+            @Override
+            public String product() {
+                return buffer.length() > 0 ? buffer.toString().trim() : "*:*";
+            }
+        };
+    }
+
+    /**
+     * Returns a query builder which directly produces the (native) Lucene boost query, without going through
+     * the string representation and the Lucene query parser.
+     * Clauses are created by the {@link FieldQueryFactory} associated with each target field; in order to keep the
+     * query small (and far from the maxBooleanClauses limit), all amounts detected for a given field are collapsed
+     * in a single set query, and the overlapping gap ranges of a given field are merged in one range.
+     * When the index statistics are available, clauses which cannot match any document (i.e. amounts and ranges
+     * outside the field bounds) are pruned, ranges are clamped to the field bounds and adaptive gaps are sized on
+     * the field value distribution.
+     *
+     * @param parser the {@link QParser} which is currently serving the request.
+     * @param overrides the gap and boost overrides of the request.
+     * @return a query builder which directly produces the (native) Lucene boost query.
+     */
+    EquivalentQuantityBuilder<Optional<Query>> nativeQueryBuilder(final QParser parser, final QuantityOverrides overrides) {
+        final FieldQueryFactory.Resolved factories = fieldQueryFactories(parser.getReq().getSchema());
+        final Optional<IndexStatistics> statistics = statistics(parser.getReq());
+        final Map<String, FieldClauses> clausesByField = new LinkedHashMap<>();
+        return new EquivalentQuantityBuilder<Optional<Query>>() {
+            @Override
+            protected void onQuantityDetected(final Unit unit, final QuantityOccurrence occurrence) {
+                unit.fieldNames()
+                        .forEach(fieldName -> {
+                            final FieldClauses clauses =
+                                    clausesByField.computeIfAbsent(fieldName, name -> new FieldClauses(overrides.boost(unit, name)));
+                            clauses.amounts.add(occurrence.amount());
+                            overrides.gap(unit, fieldName)
+                                    .map(gap -> gap.isAdaptive() ? adaptive(gap, factories.get(fieldName), occurrence, statistics) : gap)
+                                    .ifPresent(gap -> {
+                                        final List<Long> buckets = gap.buckets(occurrence.amount());
+                                        if (buckets.isEmpty()) {
+                                            clauses.ranges.add(
+                                                    new Range(
+                                                            gap.lowerBound(occurrence.amount()),
+                                                            gap.upperBound(occurrence.amount())));
+                                        } else {
+                                            clauses.buckets.addAll(buckets);
+                                        }
+                                    });
+                        });
+            }
+
+            @Override
+            public Optional<Query> product() {
+                clausesByField.values().forEach(FieldClauses::mergeRanges);
+
+                final int pruned = statistics
+                        .map(index -> clausesByField.entrySet().stream()
+                                .mapToInt(entry ->
+                                        index.field(factories.get(entry.getKey()).field)
+                                                .map(entry.getValue()::prune)
+                                                .orElse(0))
+                                .sum())
+                        .orElse(0);
+                metrics.prunedClauses.inc(pruned);
+
+                final int count = clausesByField.values().stream().mapToInt(FieldClauses::size).sum();
+                metrics.boostClauses.update(count);
+                if (count > maxClauses) {
+                    metrics.tooManyClausesRequests.inc();
+                    throw new SolrException(
+                            SolrException.ErrorCode.BAD_REQUEST,
+                            "Too many quantity boost clauses (" + count + "), the configured maximum is " + maxClauses);
+                }
+
+                if (count == 0) {
+                    return pruned == 0
+                            ? Optional.empty()
+                            : Optional.of(new MatchNoDocsQuery("All quantity clauses are outside the field bounds"));
+                }
+
+                final BooleanQuery.Builder builder = new BooleanQuery.Builder();
+                clausesByField.forEach((fieldName, clauses) -> {
+                    final FieldQueryFactory factory = factories.get(fieldName);
+                    if (!clauses.amounts.isEmpty()) {
+                        final Query exact = factory.exact(parser, clauses.amounts);
+                        builder.add(
+                                clauses.boost.<Query>map(boost -> new BoostQuery(exact, boost)).orElse(exact),
+                                BooleanClause.Occur.SHOULD);
+                    }
+                    clauses.ranges.forEach(range ->
+                            builder.add(factory.range(parser, range.lowerBound, range.upperBound), BooleanClause.Occur.SHOULD));
+                    if (!clauses.buckets.isEmpty()) {
+                        builder.add(
+                                factories.get(Unit.bucketFieldName(fieldName)).exact(parser, new ArrayList<>(clauses.buckets)),
+                                BooleanClause.Occur.SHOULD);
+                    }
+                });
+                return Optional.of(builder.build());
+            }
+        };
+    }
+
+    /**
+     * The clauses collected, for a given field, by the native query builder.
+     * Ranges of bucketed gaps are collected as bucket terms, which are collapsed in a single set query on the
+     * companion bucket field.
+     *
+     * @author agazzarini
+     * @since 1.0
+     */
+    static class FieldClauses {
+        final Optional<Float> boost;
+        final Set<Number> amounts = new LinkedHashSet<>();
+        final Set<Number> buckets = new TreeSet<>();
+        List<Range> ranges = new ArrayList<>();
+
+        /**
+         * Builds a new {@link FieldClauses} with the given boost.
+         *
+         * @param boost the (optional) boost of the field literal clause.
+         */
+        FieldClauses(final Optional<Float> boost) {
+            this.boost = boost;
+        }
+
+        /**
+         * Merges the overlapping ranges.
+         */
+        void mergeRanges() {
+            if (ranges.size() < 2) {
+                return;
+            }
+
+            ranges.sort(Comparator.comparing(range -> range.lowerBound.floatValue()));
+            final List<Range> merged = new ArrayList<>();
+            Range current = ranges.get(0);
+            for (final Range next : ranges.subList(1, ranges.size())) {
+                if (current.overlaps(next)) {
+                    current = current.union(next);
+                } else {
+                    merged.add(current);
+                    current = next;
+                }
+            }
+            merged.add(current);
+            ranges = merged;
+        }
+
+        /**
+         * Removes the amounts and the ranges which are outside the given field bounds and clamps the remaining
+         * ranges to those bounds.
+         *
+         * @param statistics the statistics of the owning field.
+         * @return the number of pruned clauses.
+         */
+        int prune(final FieldStatistics statistics) {
+            final int size = size();
+            amounts.removeIf(amount -> !statistics.contains(amount));
+            ranges = ranges.stream()
+                    .filter(range -> statistics.intersects(range.lowerBound, range.upperBound))
+                    .map(range -> range.clamp(statistics))
+                    .collect(toList());
+            return size - size();
+        }
+
+        /**
+         * Returns the number of clauses that will be generated for the owning field.
+         *
+         * @return the number of clauses that will be generated for the owning field.
+         */
+        int size() {
+            return (amounts.isEmpty() ? 0 : 1) + ranges.size() + (buckets.isEmpty() ? 0 : 1);
+        }
+    }
+
+    /**
+     * A range with an inclusive lower bound and an (optional) inclusive upper bound.
+     *
+     * @author agazzarini
+     * @since 1.0
+     */
+    static class Range {
+        final Number lowerBound;
+        final Optional<Number> upperBound;
+
+        /**
+         * Builds a new {@link Range} with the given bounds.
+         *
+         * @param lowerBound the lower bound.
+         * @param upperBound the upper bound, empty if the range is unbounded on the right side.
+         */
+        Range(final Number lowerBound, final Optional<Number> upperBound) {
+            this.lowerBound = lowerBound;
+            this.upperBound = upperBound;
+        }
+
+        /**
+         * Returns true if the given range, which is supposed to start after this one, overlaps this range.
+         *
+         * @param range the other range.
+         * @return true if the given range overlaps this range.
+         */
+        boolean overlaps(final Range range) {
+            return !upperBound.isPresent() || upperBound.get().floatValue() >= range.lowerBound.floatValue();
+        }
+
+        /**
+         * Returns the union of this range with the given (overlapping) range.
+         *
+         * @param range the other range.
+         * @return the union of this range with the given (overlapping) range.
+         */
+        Range union(final Range range) {
+            if (!upperBound.isPresent() || !range.upperBound.isPresent()) {
+                return new Range(lowerBound, Optional.empty());
+            }
+
+            return new Range(
+                    lowerBound,
+                    upperBound.get().floatValue() >= range.upperBound.get().floatValue() ? upperBound : range.upperBound);
+        }
+
+        /**
+         * Returns this range restricted to the given (non empty) field bounds.
+         *
+         * @param statistics the field statistics.
+         * @return this range restricted to the given field bounds.
+         */
+        Range clamp(final FieldStatistics statistics) {
+            final Number min = statistics.min().get();
+            final Number max = statistics.max().get();
+            return new Range(
+                    lowerBound.doubleValue() < min.doubleValue() ? min : lowerBound,
+                    Optional.of(upperBound.filter(bound -> bound.doubleValue() <= max.doubleValue()).orElse(max)));
+        }
+    }
+
+    /**
+     * Adds a new literal query (e.g. capacity:100^2.0) to the result of this builder.
+     *
+     * @param fieldName the target field name.
+     * @param boost the (optional) boost of the target field.
+     * @param builder the query buffer.
+     * @param occurrence the quantity instance occurrence.
+     */
+    private void addLiteralQuery(
+            final String fieldName,
+            final Optional<Float> boost,
+            final StringBuilder builder,
+            final QuantityOccurrence occurrence) {
+        F.append(builder.append(fieldName).append(':'), occurrence.amount());
+        boost.ifPresent(value -> builder.append('^').append(value.floatValue()));
+        builder.append(' ');
+    }
+
+    /**
+     * Adds a new boolean, range filter to the result of this builder.
+     * If the gap is bucketed, the range is replaced by the bucket terms which cover it (e.g. capacity_bucket:9 or
+     * capacity_bucket:(9 10 11)).
+     *
+     * @param fieldName the target field name.
+     * @param gap the gap of the target field.
+     * @param builder the query buffer.
+     * @param occurrence the quantity instance occurrence.
+     * @return the same query buffer with the new filter definition.
+     */
+    private StringBuilder addRangeQuery(
+            final String fieldName,
+            final Unit.Gap gap,
+            final StringBuilder builder,
+            final QuantityOccurrence occurrence) {
+        final List<Long> buckets = gap.buckets(occurrence.amount());
+        if (buckets.size() == 1) {
+            return builder.append(Unit.bucketFieldName(fieldName)).append(':').append(buckets.get(0).longValue()).append(' ');
+        } else if (!buckets.isEmpty()) {
+            builder.append(Unit.bucketFieldName(fieldName)).append(":(");
+            buckets.forEach(bucket -> builder.append(bucket.longValue()).append(' '));
+            builder.setCharAt(builder.length() - 1, ')');
+            return builder.append(' ');
+        }
+
+        F.append(builder.append(fieldName).append(":["), gap.lowerBound(occurrence.amount())).append(" TO ");
+        final Optional<Number> upperBound = gap.upperBound(occurrence.amount());
+        if (upperBound.isPresent()) {
+            F.append(builder, upperBound.get());
+        } else {
+            builder.append('*');
+        }
+        return builder.append("] ");
+    }
+
+    /**
+     * Sizes the given adaptive gap on the value distribution of the target field.
+     * If the field distribution has not been computed (see {@link IndexStatisticsListener}), the gap is returned as
+     * it is (i.e. the configured value is used).
+     *
+     * @param gap the adaptive gap.
+     * @param factory the query factory of the target field.
+     * @param occurrence the (converted) quantity occurrence.
+     * @param statistics the index statistics.
+     * @return the sized gap.
+     */
+    private Unit.Gap adaptive(
+            final Unit.Gap gap,
+            final FieldQueryFactory factory,
+            final QuantityOccurrence occurrence,
+            final Optional<IndexStatistics> statistics) {
+        return statistics
+                .flatMap(index -> index.distribution(factory.field))
+                .flatMap(field -> field.gap(gap.mode(), occurrence.amount(), gap.targetMatches(field.docCount())))
+                .map(gap::withValue)
+                .orElse(gap);
+    }
+
+    /**
+     * Returns the field query factories resolved against the given schema.
+     *
+     * @param schema the current schema.
+     * @return the field query factories resolved against the given schema.
+     */
+    private FieldQueryFactory.Resolved fieldQueryFactories(final IndexSchema schema) {
+        FieldQueryFactory.Resolved factories = fieldQueryFactories;
+        if (factories == null || factories.schema != schema) {
+            factories = new FieldQueryFactory.Resolved(schema);
+            fieldQueryFactories = factories;
+        }
+        return factories;
+    }
+}
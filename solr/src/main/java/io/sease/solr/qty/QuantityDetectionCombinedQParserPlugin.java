@@ -0,0 +1,144 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.EquivalenceTable;
+import io.sease.solr.qty.domain.QuantityOccurrence;
+import io.sease.solr.qty.domain.Unit;
+import org.apache.lucene.queries.function.FunctionQuery;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.QParser;
+import org.apache.solr.search.QParserPlugin;
+import org.apache.solr.search.SyntaxError;
+
+
+/**
+ * A {@link QParserPlugin} which detects the quantities once and produces, in a single pass, the whole query:
+ *
+ * <ul>
+ *     <li>the main query, that is, the input query string without the detected quantities, parsed by edismax;</li>
+ *     <li>the boost query, built (natively) with the same rules of {@link QuantityDetectionBQParserPlugin};</li>
+ *     <li>the boost function, built (natively) with the same rules of {@link QuantityDetectionBFParserPlugin}.</li>
+ * </ul>
+ *
+ * Everything is configured through one set of (local) parameters: the edismax ones (e.g. qf, mm), the function ones
+ * (m, a, b) and {@link #BOOST_QUERY_PARAM_NAME}, {@link #BOOST_FUNCTION_PARAM_NAME} for enabling / disabling the
+ * two boost components.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantityDetectionCombinedQParserPlugin extends QuantityDetector {
+    public final static String BOOST_QUERY_PARAM_NAME = "qty.bq";
+    public final static String BOOST_FUNCTION_PARAM_NAME = "qty.bf";
+
+    private final QuantityDetectionQParserPlugin mainQueryBuilderFactory = new QuantityDetectionQParserPlugin();
+    private final QuantityDetectionBQParserPlugin boostQueryBuilderFactory = new QuantityDetectionBQParserPlugin();
+    private final QuantityDetectionBFParserPlugin boostFunctionBuilderFactory = new QuantityDetectionBFParserPlugin();
+
+    @Override
+    public void init(final NamedList args) {
+        super.init(args);
+        mainQueryBuilderFactory.init(args);
+        boostQueryBuilderFactory.init(args);
+        boostFunctionBuilderFactory.init(args);
+
+        mainQueryBuilderFactory.metrics = metrics;
+        boostQueryBuilderFactory.metrics = metrics;
+        boostFunctionBuilderFactory.metrics = metrics;
+
+        mainQueryBuilderFactory.hotQuantities = hotQuantities;
+        boostQueryBuilderFactory.hotQuantities = hotQuantities;
+        boostFunctionBuilderFactory.hotQuantities = hotQuantities;
+    }
+
+    @Override
+    QParserPlugin qparserPlugin() {
+        return mainQueryBuilderFactory.qparserPlugin();
+    }
+
+    @Override
+    QueryBuilder<String> queryBuilder(final StringBuilder query, final SolrParams params) {
+        return mainQueryBuilderFactory.queryBuilder(query, params);
+    }
+
+    @Override
+    public QParser createParser(final String qstr, final SolrParams localParams, final SolrParams params, final SolrQueryRequest req) {
+        if (qstr == null) {
+            return null;
+        }
+
+        return new QParser(qstr, localParams, params, req) {
+            @Override
+            public Query parse() throws SyntaxError {
+                final SolrParams parameters = SolrParams.wrapDefaults(localParams, params);
+                final CombinedQueryBuilder builder = detect(qstr, parameters, query -> new CombinedQueryBuilder(query, parameters));
+
+                final Query mainQuery =
+                        qparserPlugin()
+                                .createParser(builder.mainQuery.product(), localParams, params, req)
+                                .getQuery();
+
+                final BooleanQuery.Builder result = new BooleanQuery.Builder();
+                if (parameters.getBool(BOOST_QUERY_PARAM_NAME, true)) {
+                    boostQueryBuilderFactory.boostQuery(this, builder.quantities)
+                            .ifPresent(boostQuery -> result.add(boostQuery, BooleanClause.Occur.SHOULD));
+                }
+
+                if (parameters.getBool(BOOST_FUNCTION_PARAM_NAME, true)) {
+                    boostFunctionBuilderFactory.boostFunction(this, parameters, builder.quantities)
+                            .ifPresent(function -> result.add(new FunctionQuery(function), BooleanClause.Occur.SHOULD));
+                }
+
+                final BooleanQuery boosts = result.build();
+                if (boosts.clauses().isEmpty()) {
+                    return mainQuery;
+                }
+
+                return result.add(mainQuery, BooleanClause.Occur.MUST).build();
+            }
+        };
+    }
+
+    /**
+     * A composite builder which forwards each detection event to the main query builder and records the detected
+     * quantities, which are then used for building (or looking up in the cache) the boost query and function.
+     *
+     * @author agazzarini
+     * @since 1.0
+     */
+    class CombinedQueryBuilder implements QueryBuilder<CombinedQueryBuilder> {
+        final QueryBuilder<String> mainQuery;
+        final DetectedQuantities quantities = new DetectedQuantities();
+
+        /**
+         * Builds a new {@link CombinedQueryBuilder} with the given data.
+         *
+         * @param query the (normalized) query buffer.
+         * @param params the (local and request) parameters.
+         */
+        CombinedQueryBuilder(final StringBuilder query, final SolrParams params) {
+            this.mainQuery = mainQueryBuilderFactory.queryBuilder(query, params);
+        }
+
+        @Override
+        public void newQuantityDetected(final EquivalenceTable equivalenceTable, final Unit unit, final QuantityOccurrence occurrence) {
+            mainQuery.newQuantityDetected(equivalenceTable, unit, occurrence);
+            quantities.newQuantityDetected(equivalenceTable, unit, occurrence);
+        }
+
+        @Override
+        public void newHeuristicQuantityDetected(final EquivalenceTable equivalenceTable, final Unit unit, final QuantityOccurrence occurrence) {
+            mainQuery.newHeuristicQuantityDetected(equivalenceTable, unit, occurrence);
+            quantities.newHeuristicQuantityDetected(equivalenceTable, unit, occurrence);
+        }
+
+        @Override
+        public CombinedQueryBuilder product() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package io.sease.solr.qty;
+
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.handler.component.ResponseBuilder;
+import org.apache.solr.handler.component.SearchComponent;
+import org.apache.solr.handler.component.ShardRequest;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * A {@link SearchComponent} which avoids the repeated quantity detection on the shards of a distributed request.
+ * On the coordinator, the quantity detectors record the transcript of each detection (see {@link DetectionTranscript})
+ * in the request context; this component forwards the recorded transcripts to the shards, with the
+ * {@link #DETECTED_PARAM_NAME} parameter, and the detectors on the shards replay them instead of detecting the
+ * quantities again. Detections which don't find any quantity (including the queries without digits, which are
+ * not even detected) are not forwarded: the shards detect those queries on their own.
+ *
+ * Each transcript is keyed by the detector which recorded it (its registered name), by the fingerprint of the units
+ * dictionary it refers to (see {@link UnitDictionary#fingerprint()}), by the profile, by the decimal separator and by
+ * the whole query string: a detector on a shard replays only the transcripts recorded by the same detector, with the
+ * same configuration, on the same query. A transcript which cannot be found or decoded is ignored, and the shard falls
+ * back to the detection.
+ *
+ * <pre>
+ * &lt;searchComponent name="quantities" class="io.sease.solr.qty.QuantityDetectionComponent"/&gt;
+ *
+ * &lt;requestHandler name="/select" class="solr.SearchHandler"&gt;
+ *   &lt;arr name="last-components"&gt;
+ *     &lt;str&gt;quantities&lt;/str&gt;
+ *   &lt;/arr&gt;
+ * &lt;/requestHandler&gt;
+ * </pre>
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantityDetectionComponent extends SearchComponent {
+    public final static String DETECTED_PARAM_NAME = "qty.detected";
+
+    private final static String TRANSCRIPTS_CONTEXT_KEY = QuantityDetectionComponent.class.getName() + ".transcripts";
+    private final static String DETECTIONS_CONTEXT_KEY = QuantityDetectionComponent.class.getName() + ".detections";
+    private final static char KEY_SEPARATOR = ':';
+
+    @Override
+    public void prepare(final ResponseBuilder rb) {
+        // Nothing to be done here: detections are recorded while the queries are parsed
+    }
+
+    @Override
+    public void process(final ResponseBuilder rb) {
+        // Nothing to be done here: transcripts are only forwarded to the shards
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void modifyRequest(final ResponseBuilder rb, final SearchComponent who, final ShardRequest sreq) {
+        final Map<String, String> transcripts = (Map<String, String>) rb.req.getContext().get(TRANSCRIPTS_CONTEXT_KEY);
+        if (transcripts == null || transcripts.isEmpty()) {
+            return;
+        }
+
+        sreq.params.remove(DETECTED_PARAM_NAME);
+        transcripts.forEach((key, transcript) -> sreq.params.add(DETECTED_PARAM_NAME, key + KEY_SEPARATOR + transcript));
+    }
+
+    @Override
+    public String getDescription() {
+        return "Forwards the quantities detected on the coordinator to the shards.";
+    }
+
+    /**
+     * Returns the transcript, forwarded by the coordinator, of the detection on the given query string.
+     * Forwarded transcripts are considered only on shard requests.
+     *
+     * @param params the request parameters.
+     * @param detector the registered name of the detector.
+     * @param qstr the query string.
+     * @param profile the name of the profile used by the detector.
+     * @param decimalSeparator the decimal separator used by the detector.
+     * @param dictionary the units dictionary used by the detector.
+     * @return the forwarded transcript of the detection on the given query string, empty if it is not available.
+     */
+    static Optional<DetectionTranscript> forwarded(
+            final SolrParams params,
+            final String detector,
+            final String qstr,
+            final String profile,
+            final char decimalSeparator,
+            final UnitDictionary dictionary) {
+        final String [] transcripts = params.getParams(DETECTED_PARAM_NAME);
+        if (transcripts == null || !params.getBool(ShardParams.IS_SHARD, false)) {
+            return Optional.empty();
+        }
+
+        final String prefix = key(detector, dictionary, qstr, profile, decimalSeparator) + KEY_SEPARATOR;
+        for (final String transcript : transcripts) {
+            if (transcript.startsWith(prefix)) {
+                try {
+                    return Optional.of(DetectionTranscript.decode(transcript.substring(prefix.length()), dictionary));
+                } catch (final IllegalArgumentException exception) {
+                    return Optional.empty();
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Returns the table where the detections of the current request have to be recorded, if the request is
+     * a distributed request and this node is the coordinator.
+     *
+     * @return the table where the detections of the current request have to be recorded, empty if the detections
+     *          don't need to be recorded.
+     */
+    @SuppressWarnings("unchecked")
+    static Optional<Map<String, String>> transcripts() {
+        return ofNullable(SolrRequestInfo.getRequestInfo())
+                .map(SolrRequestInfo::getResponseBuilder)
+                .filter(rb -> rb.shards != null && !rb.req.getParams().getBool(ShardParams.IS_SHARD, false))
+                .map(rb -> (Map<String, String>) rb.req.getContext()
+                        .computeIfAbsent(TRANSCRIPTS_CONTEXT_KEY, key -> new LinkedHashMap<String, String>()));
+    }
+
+    /**
+     * Keeps, in the context of the given request, the transcripts of the detections executed within the request, so
+     * each query string is detected only once by each detector (e.g. the {@link QuantityRoutingSearchHandler} detects
+     * the query string before the query parsers do the same).
+     *
+     * @param req the current request.
+     */
+    static void keepDetections(final SolrQueryRequest req) {
+        req.getContext().putIfAbsent(DETECTIONS_CONTEXT_KEY, new HashMap<String, DetectionTranscript>());
+    }
+
+    /**
+     * Returns the table where the detections of the current request are kept, if they have to be kept.
+     *
+     * @return the table where the detections of the current request are kept, empty if they don't have to be kept.
+     * @see #keepDetections(SolrQueryRequest)
+     */
+    @SuppressWarnings("unchecked")
+    static Optional<Map<String, DetectionTranscript>> detections() {
+        return ofNullable(SolrRequestInfo.getRequestInfo())
+                .map(SolrRequestInfo::getReq)
+                .map(req -> (Map<String, DetectionTranscript>) req.getContext().get(DETECTIONS_CONTEXT_KEY));
+    }
+
+    /**
+     * Returns the key of the detection on the given query string: a SHA-256 digest of the detector name, of the
+     * dictionary fingerprint, of the profile, of the decimal separator and of the whole query string.
+     *
+     * @param detector the registered name of the detector.
+     * @param dictionary the units dictionary used by the detector.
+     * @param qstr the query string.
+     * @param profile the name of the profile used by the detector.
+     * @param decimalSeparator the decimal separator used by the detector.
+     * @return the key of the detection on the given query string.
+     */
+    static String key(
+            final String detector,
+            final UnitDictionary dictionary,
+            final String qstr,
+            final String profile,
+            final char decimalSeparator) {
+        return UnitDictionary.digest(
+                detector + KEY_SEPARATOR + dictionary.fingerprint() + KEY_SEPARATOR + profile + KEY_SEPARATOR
+                        + decimalSeparator + KEY_SEPARATOR + qstr);
+    }
+}
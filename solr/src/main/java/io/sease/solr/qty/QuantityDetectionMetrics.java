@@ -0,0 +1,54 @@
+package io.sease.solr.qty;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.ExponentiallyDecayingReservoir;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import org.apache.lucene.util.Accountable;
+import org.apache.solr.core.SolrInfoBean;
+import org.apache.solr.metrics.SolrMetricManager;
+
+/**
+ * The metrics collected by a quantity detector.
+ * Metrics are always available (e.g. they can be inspected in unit tests), and they are published in the Solr
+ * metrics registry only when the owner plugin is registered within a core.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+class QuantityDetectionMetrics {
+    final Histogram boostClauses = new Histogram(new ExponentiallyDecayingReservoir());
+    final Counter tooManyClausesRequests = new Counter();
+    final Counter prunedClauses = new Counter();
+    final Counter fastPathRequests = new Counter();
+    final Counter oversizedQueryRequests = new Counter();
+    final Counter tooManyQuantitiesRequests = new Counter();
+    final Counter detectionBudgetExceededRequests = new Counter();
+    final Counter forwardedDetections = new Counter();
+    final Counter incrementalDetections = new Counter();
+
+    /**
+     * Publishes the metrics of this collector in the given registry.
+     * The (estimated) heap used by the owner plugin is published as well, if the plugin is {@link Accountable}.
+     *
+     * @param manager the Solr metric manager.
+     * @param owner the owner plugin.
+     * @param registryName the registry name.
+     * @param scope the metrics scope (i.e. the owner plugin name).
+     */
+    void register(final SolrMetricManager manager, final SolrInfoBean owner, final String registryName, final String scope) {
+        final String category = owner.getCategory().toString();
+        manager.register(owner, registryName, boostClauses, true, "boostClauses", category, scope);
+        manager.register(owner, registryName, tooManyClausesRequests, true, "tooManyClausesRequests", category, scope);
+        manager.register(owner, registryName, prunedClauses, true, "prunedClauses", category, scope);
+        manager.register(owner, registryName, fastPathRequests, true, "fastPathRequests", category, scope);
+        manager.register(owner, registryName, oversizedQueryRequests, true, "oversizedQueryRequests", category, scope);
+        manager.register(owner, registryName, tooManyQuantitiesRequests, true, "tooManyQuantitiesRequests", category, scope);
+        manager.register(owner, registryName, detectionBudgetExceededRequests, true, "detectionBudgetExceededRequests", category, scope);
+        manager.register(owner, registryName, forwardedDetections, true, "forwardedDetections", category, scope);
+        manager.register(owner, registryName, incrementalDetections, true, "incrementalDetections", category, scope);
+        if (owner instanceof Accountable) {
+            manager.registerGauge(owner, registryName, (Gauge<Long>) ((Accountable) owner)::ramBytesUsed, true, "ramBytesUsed", category, scope);
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package io.sease.solr.qty;
+
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.search.ExtendedDismaxQParserPlugin;
+import org.apache.solr.search.QParserPlugin;
+
+/**
+ * A {@link QParserPlugin} which detects and removes all quantities from the input query string.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantityDetectionQParserPlugin extends QuantityDetector {
+    private ExtendedDismaxQParserPlugin qParser;
+
+    public final static String REMOVE_ORPHAN_AMOUNTS_PARAM_NAME = "removeOrphanAmounts";
+    private boolean removeOrphanAmounts;
+
+    @Override
+    public void init(final NamedList args) {
+        super.init(args);
+        removeOrphanAmounts = SolrParams.toSolrParams(args).getBool(REMOVE_ORPHAN_AMOUNTS_PARAM_NAME, false);
+        this.qParser = new ExtendedDismaxQParserPlugin();
+    }
+
+    @Override
+    public QParserPlugin qparserPlugin() {
+        return qParser;
+    }
+
+    @Override
+    QueryBuilder<String> queryBuilder(final StringBuilder query, final SolrParams params) {
+        return new QuantityRemover(query, removeOrphanAmounts) {
+            @Override
+            public String product() {
+                final String result = super.product();
+                return result.isEmpty() ? "*:*" : result;
+            }
+        };
+    }
+}
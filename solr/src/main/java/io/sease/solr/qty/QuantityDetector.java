@@ -0,0 +1,581 @@
+package io.sease.solr.qty;
+
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import io.sease.solr.qty.domain.Unit;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.lucene.analysis.util.ResourceLoaderAware;
+import org.apache.lucene.util.Accountable;
+import org.apache.lucene.util.Accountables;
+import org.apache.solr.cloud.ZkSolrResourceLoader;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.PluginInfo;
+import org.apache.solr.core.SolrResourceLoader;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.apache.solr.metrics.SolrMetricProducer;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.search.QParser;
+import org.apache.solr.search.QParserPlugin;
+import org.apache.solr.util.plugin.PluginInfoInitialized;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+
+import static io.sease.solr.qty.QuantityMatcher.hasDigits;
+import static java.util.Optional.ofNullable;
+
+/**
+ * Supertype layer for detecting quantities in a query string.
+ * The detection itself is delegated to a (Solr independent) {@link DetectionEngine}; this layer adapts the engine
+ * to the Solr plugin lifecycle (configuration, metrics, caches).
+ *
+ * Besides the default configuration (units.json), a detector can preload several named configurations (profiles),
+ * declared in the "profiles" list, which are selected per request with the {@link #PROFILE_PARAM_NAME} parameter.
+ * All profiles are compiled once, when the plugin is loaded, so a single core can serve requests which need
+ * different units (e.g. different storefronts).
+ *
+ * <pre>
+ * &lt;lst name="profiles"&gt;
+ *   &lt;str name="beverage"&gt;units-beverage.json&lt;/str&gt;
+ *   &lt;str name="hardware"&gt;units-hardware.json&lt;/str&gt;
+ * &lt;/lst&gt;
+ * </pre>
+ *
+ * With the {@link #SNAPSHOTS_PARAM_NAME} parameter enabled, each compiled configuration is also stored in a binary
+ * snapshot next to its JSON file (see {@link UnitDictionarySnapshot}); the next loads restore the snapshot, as long
+ * as the JSON file is unchanged, instead of parsing the configuration. Snapshots are available only for configuration
+ * files which are on the local filesystem (i.e. not for configsets stored in ZooKeeper).
+ * With the {@link #OFF_HEAP_PARAM_NAME} parameter enabled (which implies snapshots), the lookup table between
+ * unit forms and units is not restored in the heap: it is read, in place, from the memory mapped snapshot, so
+ * all the cores and JVMs of a host which use the same configuration share a single copy in the OS page cache.
+ * The saving is limited to the entries of that table: the form strings are still held, in the heap, by the units.
+ *
+ * As-you-type clients, which send a request for each keystroke, can declare a session with the
+ * {@link #SESSION_PARAM_NAME} parameter: the detection of each request reuses the occurrences detected on the
+ * previous request of the same session (see {@link IncrementalDetection}), so its cost depends on the chars which
+ * have been typed since then. The last {@link #MAX_SESSIONS_PARAM_NAME} sessions are retained.
+ *
+ * The heap used by the compiled configuration and by the caches of a detector is estimated (see {@link Accountable})
+ * and published in the "ramBytesUsed" gauge; the memory used by the recorded hot quantities can be bounded with
+ * the {@link #MAX_RAM_MB_PARAM_NAME} parameter. The query cache has its own ceiling (the maxRamMB attribute of
+ * the cache declaration), which takes in account the size of the quantity query keys.
+ *
+ * Note that the {@link QParserPlugin} and {@link org.apache.lucene.analysis.util.ResourceLoaderAware}
+ * inheritance relationships have been declared here because we don't have multiple inheritance in Java.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public abstract class QuantityDetector extends QParserPlugin
+        implements ResourceLoaderAware, PluginInfoInitialized, SolrMetricProducer, Accountable {
+    private final static Logger LOGGER = LoggerFactory.getLogger(QuantityDetector.class);
+    private final static int MAX_LOGGED_QUERY_LENGTH = 100;
+    private final static JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public final static String QUERY_CACHE_PARAM_NAME = "queryCache";
+    public final static String DEFAULT_QUERY_CACHE_NAME = "quantityQueryCache";
+
+    public final static String LOCALE_PARAM_NAME = "locale";
+
+    public final static String MAX_QUERY_LENGTH_PARAM_NAME = "maxQueryLength";
+    public final static String MAX_QUANTITIES_PARAM_NAME = "maxQuantities";
+    public final static String DETECTION_BUDGET_PARAM_NAME = "detectionBudgetNanos";
+
+    public final static String PROFILES_PARAM_NAME = "profiles";
+    public final static String PROFILE_PARAM_NAME = "qty.profile";
+    public final static String DEFAULT_PROFILE = "default";
+    public final static String DEFAULT_UNITS = "units.json";
+
+    public final static String MAX_RAM_MB_PARAM_NAME = "maxRamMB";
+
+    public final static String SESSION_PARAM_NAME = "qty.session";
+    public final static String MAX_SESSIONS_PARAM_NAME = "maxSessions";
+    public final static int DEFAULT_MAX_SESSIONS = 256;
+
+    public final static String SNAPSHOTS_PARAM_NAME = "snapshots";
+    public final static String OFF_HEAP_PARAM_NAME = "offHeap";
+
+    QuantityDetectionMetrics metrics = new QuantityDetectionMetrics();
+    HotQuantities hotQuantities = new HotQuantities();
+    String queryCacheName = DEFAULT_QUERY_CACHE_NAME;
+    DetectionSettings settings = DetectionSettings.DEFAULT;
+    String name = getClass().getName();
+    private MetricRegistry registry;
+    private boolean snapshots;
+    private boolean offHeap;
+    private int maxSessions = DEFAULT_MAX_SESSIONS;
+    private Map<String, IncrementalDetection> sessions = sessions(DEFAULT_MAX_SESSIONS);
+
+    private Map<String, String> profiles = new LinkedHashMap<>();
+    private Map<String, UnitDictionary> dictionaries = new LinkedHashMap<>();
+    private Map<String, DetectionEngine> engines = new HashMap<>();
+
+    /**
+     * Initializes this detector with the given plugin declaration, which also provides the name the detector has
+     * been registered with (used, for instance, for keying the detections forwarded to the shards).
+     *
+     * @param info the plugin declaration.
+     */
+    @Override
+    public void init(final PluginInfo info) {
+        ofNullable(info.name).ifPresent(registered -> name = registered);
+        init(info.initArgs);
+    }
+
+    @Override
+    public void init(final NamedList args) {
+        final SolrParams configuration = SolrParams.toSolrParams(args);
+        profiles = new LinkedHashMap<>();
+        ofNullable(args.get(PROFILES_PARAM_NAME))
+                .filter(NamedList.class::isInstance)
+                .map(NamedList.class::cast)
+                .ifPresent(list -> list.forEach((name, resource) -> profiles.put(String.valueOf(name), String.valueOf(resource))));
+        queryCacheName = configuration.get(QUERY_CACHE_PARAM_NAME, DEFAULT_QUERY_CACHE_NAME);
+        offHeap = configuration.getBool(OFF_HEAP_PARAM_NAME, false);
+        snapshots = offHeap || configuration.getBool(SNAPSHOTS_PARAM_NAME, false);
+        maxSessions = configuration.getInt(MAX_SESSIONS_PARAM_NAME, DEFAULT_MAX_SESSIONS);
+        sessions = sessions(maxSessions);
+        hotQuantities = new HotQuantities(
+                ofNullable(configuration.get(MAX_RAM_MB_PARAM_NAME))
+                        .map(Double::parseDouble)
+                        .map(megabytes -> (long) (megabytes * 1024 * 1024))
+                        .orElse(Long.MAX_VALUE));
+        settings = new DetectionSettings(
+                configuration.getInt(MAX_QUERY_LENGTH_PARAM_NAME, DetectionSettings.DEFAULT_MAX_QUERY_LENGTH),
+                configuration.getInt(MAX_QUANTITIES_PARAM_NAME, DetectionSettings.DEFAULT_MAX_QUANTITIES),
+                configuration.getLong(DETECTION_BUDGET_PARAM_NAME, DetectionSettings.DEFAULT_DETECTION_BUDGET),
+                ofNullable(configuration.get(LOCALE_PARAM_NAME))
+                        .map(Locale::forLanguageTag)
+                        .map(locale -> DecimalFormatSymbols.getInstance(locale).getDecimalSeparator())
+                        .orElse(DetectionSettings.DEFAULT_DECIMAL_SEPARATOR));
+        compile();
+    }
+
+    /**
+     * Completes the initialization of this component by loading the provided configuration.
+     *
+     * @param loader the Solr resource loader.
+     * @throws IOException in case of I/O failure (e.g. reading the conf file)
+     */
+    public void inform(final ResourceLoader loader) throws IOException {
+        final Map<String, UnitDictionary> loaded = new LinkedHashMap<>();
+        loaded.put(DEFAULT_PROFILE, load(DEFAULT_PROFILE, DEFAULT_UNITS, loader));
+        for (final Map.Entry<String, String> profile : profiles.entrySet()) {
+            loaded.put(profile.getKey(), load(profile.getKey(), profile.getValue(), loader));
+        }
+        dictionaries = loaded;
+
+        final long start = System.nanoTime();
+        compile();
+        LOGGER.info("Quantity detection engines ({} profiles) compiled in {} ms", engines.size(), elapsedMillis(start));
+    }
+
+    /**
+     * Loads the configuration of a profile: from its snapshot, if snapshots are enabled and the snapshot is not
+     * stale, otherwise by compiling the JSON configuration (and then writing a new snapshot). Off-heap dictionaries
+     * are always restored from the (possibly just written) snapshot.
+     *
+     * @param profile the profile name.
+     * @param resource the name of the configuration file.
+     * @param loader the Solr resource loader.
+     * @return the compiled units dictionary.
+     * @throws IOException in case of I/O failure or if the configuration is not valid.
+     */
+    private UnitDictionary load(final String profile, final String resource, final ResourceLoader loader) throws IOException {
+        final Optional<Path> snapshot = snapshots ? snapshot(loader, resource) : Optional.empty();
+        if (!snapshot.isPresent()) {
+            return load(
+                    profile,
+                    resource,
+                    DEFAULT_PROFILE.equals(profile) && DEFAULT_UNITS.equals(resource)
+                            ? configuration(loader)
+                            : configuration(loader, resource));
+        }
+
+        final byte [] source;
+        try (final InputStream in = loader.openResource(resource)) {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream();
+            final byte [] buffer = new byte[8192];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                out.write(buffer, 0, read);
+            }
+            source = out.toByteArray();
+        }
+
+        final long checksum = UnitDictionarySnapshot.checksum(source);
+        final long start = System.nanoTime();
+        final Optional<UnitDictionary> restored = UnitDictionarySnapshot.read(snapshot.get(), checksum, offHeap);
+        if (restored.isPresent()) {
+            LOGGER.info("Quantity detection profile {} ({}, {} units) restored from {} in {} ms",
+                    profile,
+                    resource,
+                    restored.get().units().size(),
+                    snapshot.get(),
+                    elapsedMillis(start));
+            return restored.get();
+        }
+
+        final UnitDictionary dictionary = load(profile, resource, JSON_FACTORY.createParser(source));
+        try {
+            UnitDictionarySnapshot.write(dictionary, checksum, snapshot.get());
+            LOGGER.info("Quantity detection profile {} snapshot written in {}", profile, snapshot.get());
+            if (offHeap) {
+                return UnitDictionarySnapshot.read(snapshot.get(), checksum, true).orElse(dictionary);
+            }
+        } catch (final IOException exception) {
+            LOGGER.warn("Unable to write the snapshot of the quantity detection profile " + profile, exception);
+        }
+        return dictionary;
+    }
+
+    /**
+     * Reads (in a single streaming pass) and compiles the configuration of a profile.
+     *
+     * @param profile the profile name.
+     * @param resource the name of the configuration file.
+     * @param configuration the configuration parser.
+     * @return the compiled units dictionary.
+     * @throws IOException in case of I/O failure or if the configuration is not valid.
+     */
+    private UnitDictionary load(final String profile, final String resource, final JsonParser configuration) throws IOException {
+        final long start = System.nanoTime();
+        final UnitDictionary dictionary = UnitDictionary.load(configuration);
+        LOGGER.info("Quantity detection profile {} ({}, {} units) parsed in {} ms",
+                profile,
+                resource,
+                dictionary.units().size(),
+                elapsedMillis(start));
+        return dictionary;
+    }
+
+    /**
+     * Returns the milliseconds elapsed since the given instant.
+     *
+     * @param start the start instant, in nanoseconds.
+     * @return the milliseconds elapsed since the given instant.
+     */
+    private static double elapsedMillis(final long start) {
+        return (System.nanoTime() - start) / 1_000_000d;
+    }
+
+    /**
+     * Creates the detection engines (one for each profile), once both the settings and the units dictionaries
+     * are available.
+     */
+    private void compile() {
+        final Map<String, DetectionEngine> compiled = new HashMap<>();
+        dictionaries.forEach((profile, dictionary) ->
+                compiled.put(profile, new DetectionEngine(dictionary, settings, monitor(), hotQuantities)));
+        engines = compiled;
+    }
+
+    /**
+     * Returns the name of the profile selected by the given request parameters.
+     *
+     * @param params the request parameters.
+     * @return the name of the profile selected by the given request parameters.
+     */
+    private String profile(final SolrParams params) {
+        final String profile = params != null ? params.get(PROFILE_PARAM_NAME, DEFAULT_PROFILE) : DEFAULT_PROFILE;
+        if (!engines.containsKey(profile)) {
+            throw new SolrException(
+                    SolrException.ErrorCode.BAD_REQUEST,
+                    "Unknown quantity detection profile: " + profile);
+        }
+        return profile;
+    }
+
+    /**
+     * Returns the state of the incremental detection of the session declared in the given request parameters.
+     *
+     * @param params the request parameters.
+     * @return the state of the incremental detection of the requested session, empty if the request doesn't declare
+     *          a session or if sessions are disabled.
+     */
+    private Optional<IncrementalDetection> session(final SolrParams params) {
+        final String session = params != null ? params.get(SESSION_PARAM_NAME) : null;
+        if (session == null || session.isEmpty() || maxSessions <= 0) {
+            return Optional.empty();
+        }
+
+        synchronized (sessions) {
+            return Optional.of(sessions.computeIfAbsent(session, id -> new IncrementalDetection()));
+        }
+    }
+
+    /**
+     * Creates the (LRU) map of the incremental detection sessions.
+     *
+     * @param maxSessions the maximum number of retained sessions.
+     * @return the map of the incremental detection sessions.
+     */
+    private static Map<String, IncrementalDetection> sessions(final int maxSessions) {
+        return new LinkedHashMap<String, IncrementalDetection>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, IncrementalDetection> eldest) {
+                return size() > maxSessions;
+            }
+        };
+    }
+
+    /**
+     * Returns the monitor which collects the metrics and logs the notable events of the detection engine.
+     *
+     * @return the monitor of the detection engine.
+     */
+    private DetectionMonitor monitor() {
+        return new DetectionMonitor() {
+            @Override
+            public void fastPath() {
+                metrics.fastPathRequests.inc();
+            }
+
+            @Override
+            public void limitExceeded(final Limit limit, final String reason, final String qstr) {
+                switch (limit) {
+                    case QUERY_LENGTH:
+                        metrics.oversizedQueryRequests.inc();
+                        break;
+                    case QUANTITIES:
+                        metrics.tooManyQuantitiesRequests.inc();
+                        break;
+                    default:
+                        metrics.detectionBudgetExceededRequests.inc();
+                }
+
+                LOGGER.warn(
+                        "Quantity detection abandoned ({}), the query will be passed through unchanged: {}",
+                        reason,
+                        qstr.length() > MAX_LOGGED_QUERY_LENGTH ? qstr.substring(0, MAX_LOGGED_QUERY_LENGTH) + "..." : qstr);
+            }
+        };
+    }
+
+    @Override
+    public void initializeMetrics(final SolrMetricManager manager, final String registryName, final String scope) {
+        registry = manager.registry(registryName);
+        metrics.register(manager, this, registryName, scope);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return getChildResources().stream().mapToLong(Accountable::ramBytesUsed).sum();
+    }
+
+    /**
+     * Returns the (estimated) heap used by the units dictionary of each profile and by the hot quantities.
+     * Detectors with additional structures add their own resources.
+     *
+     * @return the resources which contribute to the heap used by this detector.
+     */
+    @Override
+    public Collection<Accountable> getChildResources() {
+        final List<Accountable> resources = new ArrayList<>();
+        dictionaries.forEach((profile, dictionary) ->
+                resources.add(Accountables.namedAccountable("dictionary " + profile, QuantityRamUsage.sizeOf(dictionary))));
+        resources.add(Accountables.namedAccountable("hotQuantities", hotQuantities.ramBytesUsed()));
+        return resources;
+    }
+
+    @Override
+    public MetricRegistry getMetricRegistry() {
+        return registry;
+    }
+
+    @Override
+    public QParser createParser(final String qstr, final SolrParams localParams, final SolrParams params, final SolrQueryRequest req) {
+        if (qstr == null) {
+            return null;
+        }
+
+        return qparserPlugin().createParser(buildQuery(qstr, params), localParams, params, req);
+    }
+
+    /**
+     * Returns the quantities detected by this instance, with their detection counts.
+     *
+     * @return the quantities detected by this instance, with their detection counts.
+     */
+    public HotQuantities hotQuantities() {
+        return hotQuantities;
+    }
+
+    /**
+     * Returns the units declared in the configurations (i.e. in all profiles) of this detector.
+     *
+     * @return the units declared in the configurations of this detector.
+     */
+    List<Unit> units() {
+        return dictionaries.values().stream()
+                .flatMap(dictionary -> dictionary.units().stream())
+                .collect(toList());
+    }
+
+    /**
+     * Returns the statistics of the index the given request is executed against.
+     *
+     * @param req the current request.
+     * @return the statistics of the index the given request is executed against, empty if there's no searcher.
+     */
+    Optional<IndexStatistics> statistics(final SolrQueryRequest req) {
+        return ofNullable(req.getSearcher()).map(searcher -> IndexStatistics.of(searcher.getIndexReader()));
+    }
+
+    /**
+     * Executes the build query process.
+     *
+     * @param qstr the incoming query string.
+     * @param params the request parameters.
+     * @return the built query, according with the rules of the query builder associated with the qparser.
+     */
+    String buildQuery(final String qstr, final SolrParams params) {
+        return detect(qstr, params, query -> queryBuilder(query, params)).product();
+    }
+
+    /**
+     * Runs the detection process on the given query string, notifying the builder created by the given factory.
+     * The factory receives the (normalized) query buffer the detection offsets refer to or, if the query string
+     * doesn't contain any digit, the untouched query string.
+     * The detection uses the profile selected by the {@link #PROFILE_PARAM_NAME} parameter (the default profile
+     * if the parameter is missing).
+     * In SolrCloud, the detection is executed only once, on the coordinator: its transcript is forwarded to the shards
+     * (see {@link QuantityDetectionComponent}), which replay it. Within a request which keeps its detections (see
+     * {@link QuantityDetectionComponent#keepDetections(SolrQueryRequest)}), a query string is detected only once.
+     * The detections of warming requests (see {@link QuantityWarmingListener}) are not recorded in the hot quantities.
+     *
+     * @param qstr the incoming query string.
+     * @param params the request parameters.
+     * @param builderFactory the factory of the query builder that will be notified about the detected quantities.
+     * @param <B> the query builder type.
+     * @return the query builder, after it has been notified about all detected quantities.
+     * @see DetectionEngine#detect(String, Function)
+     */
+    <B extends QueryBuilder<?>> B detect(final String qstr, final SolrParams params, final Function<StringBuilder, B> builderFactory) {
+        // Fast path: a quantity always has an amount, so without digits there's nothing to detect, record or forward
+        if (!hasDigits(qstr)) {
+            metrics.fastPathRequests.inc();
+            return builderFactory.apply(new StringBuilder(qstr));
+        }
+
+        final String profile = profile(params);
+        final UnitDictionary dictionary = dictionaries.get(profile);
+        final DetectionEngine engine = engines.get(profile);
+        final Optional<DetectionTranscript> forwarded =
+                QuantityDetectionComponent.forwarded(params, name, qstr, profile, settings.decimalSeparator, dictionary);
+        if (forwarded.isPresent()) {
+            metrics.forwardedDetections.inc();
+            return engine.replay(qstr, forwarded.get(), builderFactory);
+        }
+
+        final Optional<Map<String, DetectionTranscript>> detections = QuantityDetectionComponent.detections();
+        final Optional<Map<String, String>> transcripts = QuantityDetectionComponent.transcripts();
+        if (!detections.isPresent() && !transcripts.isPresent()) {
+            if (QuantityWarmingListener.isWarming()) {
+                return engine.detectWithoutRecording(qstr, builderFactory);
+            }
+
+            final Optional<IncrementalDetection> session = session(params);
+            if (session.isPresent()) {
+                metrics.incrementalDetections.inc();
+                return engine.detect(qstr, builderFactory, session.get());
+            }
+            return engine.detect(qstr, builderFactory);
+        }
+
+        String key = null;
+        final DetectionTranscript transcript;
+        if (detections.isPresent()) {
+            key = QuantityDetectionComponent.key(name, dictionary, qstr, profile, settings.decimalSeparator);
+            transcript = detections.get().computeIfAbsent(key, missing -> engine.detect(qstr, query -> new DetectionTranscript()));
+        } else {
+            transcript = engine.detect(qstr, query -> new DetectionTranscript());
+        }
+
+        // Empty transcripts are not forwarded (nor digested and encoded): the shards detect those queries on their own
+        if (transcripts.isPresent() && !transcript.isEmpty()) {
+            transcripts.get().put(
+                    key != null ? key : QuantityDetectionComponent.key(name, dictionary, qstr, profile, settings.decimalSeparator),
+                    transcript.encode(dictionary));
+        }
+        return engine.replay(qstr, transcript, builderFactory);
+    }
+
+    /**
+     * Returns the query builder instance associated with this detector.
+     *
+     * @param query the input query (as a {@link StringBuilder}
+     * @param params the reqeuest parameters.
+     * @return the query builder instance associated with this detector.
+     */
+    abstract QueryBuilder<String> queryBuilder(StringBuilder query, final SolrParams params);
+
+    /**
+     * Returns the internal {@link QParserPlugin} that will be used for
+     * parsing the built query.
+     *
+     * @return the internal {@link QParserPlugin} that will be used for
+     * parsing the built query.
+     */
+    abstract QParserPlugin qparserPlugin();
+
+    /**
+     * Opens the (default) configuration associated with this component.
+     *
+     * @param loader the Solr resource loader.
+     * @return a streaming parser of the configuration associated with this component.
+     * @throws IOException in case of I/O failure (e.g. configuration file not found).
+     */
+    JsonParser configuration(final ResourceLoader loader) throws IOException {
+        return configuration(loader, DEFAULT_UNITS);
+    }
+
+    /**
+     * Opens the configuration of a profile.
+     *
+     * @param loader the Solr resource loader.
+     * @param resource the name of the configuration file.
+     * @return a streaming parser of the configuration of the profile.
+     * @throws IOException in case of I/O failure (e.g. configuration file not found).
+     */
+    JsonParser configuration(final ResourceLoader loader, final String resource) throws IOException {
+        return JSON_FACTORY.createParser(loader.openResource(resource));
+    }
+
+    /**
+     * Returns the snapshot file of the given configuration file, which is stored in the same directory.
+     *
+     * @param loader the Solr resource loader.
+     * @param resource the name of the configuration file.
+     * @return the snapshot file of the given configuration file, empty if the configuration is not a local file.
+     */
+    Optional<Path> snapshot(final ResourceLoader loader, final String resource) {
+        if (loader instanceof SolrResourceLoader && !(loader instanceof ZkSolrResourceLoader)) {
+            final Path source = Paths.get(((SolrResourceLoader) loader).getConfigDir()).resolve(resource);
+            if (Files.isRegularFile(source)) {
+                return Optional.of(source.resolveSibling(source.getFileName() + UnitDictionarySnapshot.SNAPSHOT_SUFFIX));
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,245 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.Pair;
+import io.sease.solr.qty.domain.Unit;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.SolrInputField;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.update.AddUpdateCommand;
+import org.apache.solr.update.processor.UpdateRequestProcessor;
+import org.apache.solr.update.processor.UpdateRequestProcessorFactory;
+import org.apache.solr.util.plugin.SolrCoreAware;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * An {@link UpdateRequestProcessorFactory} which normalizes, at index time, the values of the quantity fields.
+ * Values like "0.33 lt", "33cl" or "330 ml" are parsed with the units dictionary and replaced with the
+ * corresponding numeric amount, converted in the reference variant of the unit (e.g. 0.33).
+ * In this way each field holds values expressed in a single unit, the same used by the query parsers
+ * when they convert the detected quantities.
+ *
+ * The quantity fields are the target fields of the configured units. Numeric values and amounts without a unit
+ * are assumed to be already expressed in the reference variant, while values that cannot be parsed are rejected.
+ *
+ * If the gap of a field is bucketed, the normalized values are also quantized with the gap value and written in the
+ * companion bucket field (e.g. capacity_bucket), which is used by the BQ parser in place of range queries.
+ *
+ * Optionally, documents can be co-located, in SolrCloud, by the bucket of a quantity field ("quantityField"): its
+ * routing key (see {@link QuantityRoutes}) is written in the "routeField" field, which is supposed to be the
+ * router.field of the collection. Documents without that quantity are routed by their unique key, while documents
+ * whose values of that quantity fall in more than one bucket are rejected, since they couldn't be found by all the
+ * requests routed by those buckets. In this case the processor must be declared before the distributed update
+ * processor.
+ *
+ * <pre>
+ * &lt;updateRequestProcessorChain name="quantities"&gt;
+ *   &lt;processor class="io.sease.solr.qty.QuantityNormalizationUpdateProcessorFactory"&gt;
+ *     &lt;str name="units"&gt;units.json&lt;/str&gt;
+ *     &lt;str name="locale"&gt;en&lt;/str&gt;
+ *   &lt;/processor&gt;
+ *   &lt;processor class="solr.LogUpdateProcessorFactory"/&gt;
+ *   &lt;processor class="solr.RunUpdateProcessorFactory"/&gt;
+ * &lt;/updateRequestProcessorChain&gt;
+ * </pre>
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantityNormalizationUpdateProcessorFactory extends UpdateRequestProcessorFactory implements SolrCoreAware {
+    public final static String UNITS_PARAM_NAME = "units";
+    public final static String DEFAULT_UNITS = "units.json";
+    public final static String LOCALE_PARAM_NAME = "locale";
+    public final static String QUANTITY_FIELD_PARAM_NAME = "quantityField";
+    public final static String ROUTE_FIELD_PARAM_NAME = "routeField";
+
+    private String units = DEFAULT_UNITS;
+    private char decimalSeparator = DetectionSettings.DEFAULT_DECIMAL_SEPARATOR;
+    private String quantityField;
+    private String routeField;
+
+    private UnitDictionary dictionary;
+    private Map<String, List<Unit>> unitsByField;
+
+    @Override
+    public void init(final NamedList args) {
+        final SolrParams configuration = SolrParams.toSolrParams(args);
+        units = configuration.get(UNITS_PARAM_NAME, DEFAULT_UNITS);
+        decimalSeparator = ofNullable(configuration.get(LOCALE_PARAM_NAME))
+                .map(Locale::forLanguageTag)
+                .map(locale -> DecimalFormatSymbols.getInstance(locale).getDecimalSeparator())
+                .orElse(DetectionSettings.DEFAULT_DECIMAL_SEPARATOR);
+        quantityField = configuration.get(QUANTITY_FIELD_PARAM_NAME);
+        routeField = configuration.get(ROUTE_FIELD_PARAM_NAME);
+    }
+
+    @Override
+    public void inform(final SolrCore core) {
+        try {
+            load(core.getResourceLoader());
+        } catch (final IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+
+    /**
+     * Loads the units dictionary and indexes its units by target field.
+     *
+     * @param loader the Solr resource loader.
+     * @throws IOException in case of I/O failure (e.g. reading the conf file)
+     */
+    void load(final ResourceLoader loader) throws IOException {
+        try (final InputStream configuration = loader.openResource(units)) {
+            dictionary = UnitDictionary.load(configuration);
+        }
+
+        unitsByField = new HashMap<>();
+        dictionary.units().forEach(unit ->
+                unit.fieldNames().forEach(fieldName ->
+                        unitsByField.computeIfAbsent(fieldName, name -> new ArrayList<>()).add(unit)));
+    }
+
+    @Override
+    public UpdateRequestProcessor getInstance(
+            final SolrQueryRequest req,
+            final SolrQueryResponse rsp,
+            final UpdateRequestProcessor next) {
+        return new UpdateRequestProcessor(next) {
+            @Override
+            public void processAdd(final AddUpdateCommand cmd) throws IOException {
+                normalize(cmd.getSolrInputDocument());
+                route(cmd.getSolrInputDocument(), req.getSchema().getUniqueKeyField().getName());
+                super.processAdd(cmd);
+            }
+        };
+    }
+
+    /**
+     * Replaces the values of the quantity fields of the given document with the corresponding normalized amounts
+     * and, for bucketed fields, writes the corresponding buckets in the companion bucket fields.
+     *
+     * @param document the input document.
+     */
+    void normalize(final SolrInputDocument document) {
+        unitsByField.forEach((fieldName, candidates) -> {
+            final SolrInputField field = document.getField(fieldName);
+            if (field == null || field.getValue() == null) {
+                return;
+            }
+
+            final Collection<Object> values = field.getValues();
+            final List<Object> normalized = new ArrayList<>(values.size());
+            final Set<Long> buckets = new LinkedHashSet<>();
+            for (final Object value : values) {
+                final Pair<Unit, Number> quantity = normalize(fieldName, candidates, value);
+                normalized.add(quantity.y);
+                quantity.x.gap(fieldName).y
+                        .filter(Unit.Gap::isBucketed)
+                        .ifPresent(gap -> buckets.add(gap.bucket(quantity.y)));
+            }
+
+            field.setValue(normalized.size() == 1 ? normalized.get(0) : normalized);
+            if (!buckets.isEmpty() && routeField != null && fieldName.equals(quantityField)) {
+                if (buckets.size() > 1) {
+                    throw new SolrException(
+                            SolrException.ErrorCode.BAD_REQUEST,
+                            "Documents are routed by the bucket of " + fieldName + ", so its values must fall in a single bucket: " + normalized);
+                }
+                document.setField(routeField, QuantityRoutes.key(fieldName, buckets.iterator().next()));
+            }
+
+            if (!buckets.isEmpty()) {
+                document.setField(
+                        Unit.bucketFieldName(fieldName),
+                        buckets.size() == 1 ? buckets.iterator().next() : new ArrayList<>(buckets));
+            }
+        });
+    }
+
+    /**
+     * Routes the given document by its unique key, if routing is enabled and the document hasn't been routed by
+     * its quantity.
+     *
+     * @param document the input document, whose quantity fields have been already normalized.
+     * @param uniqueKeyFieldName the name of the unique key field.
+     */
+    void route(final SolrInputDocument document, final String uniqueKeyFieldName) {
+        if (routeField != null
+                && document.getFieldValue(routeField) == null
+                && document.getFieldValue(uniqueKeyFieldName) != null) {
+            document.setField(routeField, String.valueOf(document.getFieldValue(uniqueKeyFieldName)));
+        }
+    }
+
+    /**
+     * Normalizes the given value of a quantity field.
+     *
+     * @param fieldName the field name.
+     * @param candidates the units which target the field.
+     * @param value the field value.
+     * @return the matching unit and the amount, converted in the reference variant of that unit.
+     */
+    private Pair<Unit, Number> normalize(final String fieldName, final List<Unit> candidates, final Object value) {
+        if (value instanceof Number) {
+            return new Pair<>(candidates.get(0), (Number) value);
+        }
+
+        final String quantity = String.valueOf(value).trim();
+        final int amountEnd = QuantityMatcher.endIndexOfAmount(quantity, 0, decimalSeparator);
+        if (amountEnd == 0) {
+            throw invalid(fieldName, value);
+        }
+
+        final float amount;
+        try {
+            amount = F.parseFloat(quantity, 0, amountEnd, decimalSeparator);
+        } catch (final NumberFormatException exception) {
+            throw invalid(fieldName, value);
+        }
+
+        final String form = quantity.substring(amountEnd).trim().toLowerCase(Locale.ROOT);
+        if (form.isEmpty()) {
+            return new Pair<>(candidates.get(0), F.narrow(amount));
+        }
+
+        return candidates.stream()
+                .map(unit -> dictionary.equivalent(unit, form, amount).map(equivalent -> new Pair<>(unit, equivalent)))
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .findFirst()
+                .orElseThrow(() -> invalid(fieldName, value));
+    }
+
+    /**
+     * Returns the exception raised for a quantity field value which cannot be normalized.
+     *
+     * @param fieldName the field name.
+     * @param value the field value.
+     * @return the exception raised for a quantity field value which cannot be normalized.
+     */
+    private SolrException invalid(final String fieldName, final Object value) {
+        return new SolrException(
+                SolrException.ErrorCode.BAD_REQUEST,
+                "Unable to normalize the value of the quantity field " + fieldName + ": " + value);
+    }
+}
@@ -0,0 +1,132 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.Unit;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.SolrParams;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * The per-request overrides of the gaps and boosts declared in the units configuration.
+ * Overrides are declared with request parameters whose suffix is a field or a unit name (e.g. qty.gap.capacity=5,
+ * qty.boost.lt=2), where a field override takes precedence over a unit override. They are applied as an overlay
+ * on the shared configuration, which is never copied nor changed.
+ *
+ * A gap override resizes the configured gap of the target field (see {@link Unit.Gap#resized(Number)}); fields
+ * without a configured gap are left unchanged.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+final class QuantityOverrides {
+    final static String GAP_PARAM_PREFIX = "qty.gap.";
+    final static String BOOST_PARAM_PREFIX = "qty.boost.";
+
+    final static QuantityOverrides NONE = new QuantityOverrides(Collections.emptyMap());
+
+    private final Map<String, String> settings;
+
+    /**
+     * Builds a new {@link QuantityOverrides} with the given override parameters.
+     *
+     * @param settings the override parameters.
+     */
+    private QuantityOverrides(final Map<String, String> settings) {
+        this.settings = settings;
+    }
+
+    /**
+     * Returns the overrides declared in the given request parameters.
+     *
+     * @param params the request parameters.
+     * @return the overrides declared in the given request parameters, {@link #NONE} if there are no overrides.
+     */
+    static QuantityOverrides of(final SolrParams params) {
+        if (params == null) {
+            return NONE;
+        }
+
+        Map<String, String> settings = null;
+        for (final Iterator<String> names = params.getParameterNamesIterator(); names.hasNext();) {
+            final String name = names.next();
+            if (name.startsWith(GAP_PARAM_PREFIX) || name.startsWith(BOOST_PARAM_PREFIX)) {
+                if (settings == null) {
+                    settings = new TreeMap<>();
+                }
+                settings.put(name, params.get(name));
+            }
+        }
+        return settings == null ? NONE : new QuantityOverrides(Collections.unmodifiableMap(settings));
+    }
+
+    /**
+     * Returns true if there are no overrides.
+     *
+     * @return true if there are no overrides.
+     */
+    boolean isEmpty() {
+        return settings.isEmpty();
+    }
+
+    /**
+     * Returns the override parameters, as they contribute to the key of the cached queries.
+     *
+     * @return the override parameters.
+     */
+    Map<String, String> settings() {
+        return settings;
+    }
+
+    /**
+     * Returns the gap of the given unit field, with the override applied.
+     *
+     * @param unit the unit.
+     * @param fieldName the target field name.
+     * @return the gap of the given unit field, with the override applied.
+     */
+    Optional<Unit.Gap> gap(final Unit unit, final String fieldName) {
+        final Optional<Unit.Gap> gap = unit.gap(fieldName).y;
+        final Optional<Float> value = override(GAP_PARAM_PREFIX, unit, fieldName);
+        return value.isPresent() ? gap.map(configured -> configured.resized(F.narrow(value.get()))) : gap;
+    }
+
+    /**
+     * Returns the boost of the given unit field, with the override applied.
+     *
+     * @param unit the unit.
+     * @param fieldName the target field name.
+     * @return the boost of the given unit field, with the override applied.
+     */
+    Optional<Float> boost(final Unit unit, final String fieldName) {
+        final Optional<Float> boost = override(BOOST_PARAM_PREFIX, unit, fieldName);
+        return boost.isPresent() ? boost : unit.boost(fieldName);
+    }
+
+    /**
+     * Returns the value of the override with the given prefix which applies to the given unit field.
+     *
+     * @param prefix the override parameter prefix.
+     * @param unit the unit.
+     * @param fieldName the target field name.
+     * @return the value of the override which applies to the given unit field, empty if there's no override.
+     */
+    private Optional<Float> override(final String prefix, final Unit unit, final String fieldName) {
+        if (settings.isEmpty()) {
+            return Optional.empty();
+        }
+
+        final String name = settings.containsKey(prefix + fieldName) ? prefix + fieldName : prefix + unit.name();
+        final String value = settings.get(name);
+        try {
+            return ofNullable(value).map(Float::valueOf);
+        } catch (final NumberFormatException exception) {
+            throw new SolrException(SolrException.ErrorCode.BAD_REQUEST, "Invalid quantity override " + name + ": " + value);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package io.sease.solr.qty;
+
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.request.LocalSolrQueryRequest;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.search.CacheRegenerator;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+
+/**
+ * A {@link CacheRegenerator} for the quantity query cache.
+ * Cached queries depend on the index statistics (i.e. pruned clauses and adaptive gaps), so instead of copying the
+ * old entries, each autowarmed key is rebuilt, by its owner detector, against the new searcher.
+ *
+ * <pre>
+ * &lt;cache name="quantityQueryCache"
+ *        class="solr.LRUCache"
+ *        size="512"
+ *        autowarmCount="128"
+ *        regenerator="io.sease.solr.qty.QuantityQueryCacheRegenerator"/&gt;
+ * </pre>
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantityQueryCacheRegenerator implements CacheRegenerator {
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean regenerateItem(
+            final SolrIndexSearcher newSearcher,
+            final SolrCache newCache,
+            final SolrCache oldCache,
+            final Object oldKey,
+            final Object oldVal) {
+        final QuantityQueryKey key = (QuantityQueryKey) oldKey;
+        final SolrQueryRequest request = new LocalSolrQueryRequest(newSearcher.getCore(), new ModifiableSolrParams()) {
+            @Override
+            public SolrIndexSearcher getSearcher() {
+                return newSearcher;
+            }
+
+            @Override
+            public IndexSchema getSchema() {
+                return newSearcher.getSchema();
+            }
+
+            @Override
+            public void close() {
+                // The searcher reference doesn't belong to this request
+            }
+        };
+
+        newCache.put(key, key.owner.build(key, key.owner.parser(request)));
+        return true;
+    }
+}
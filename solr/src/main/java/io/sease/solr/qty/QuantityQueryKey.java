@@ -0,0 +1,60 @@
+package io.sease.solr.qty;
+
+import org.apache.lucene.util.Accountable;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The key of a query which has been built, by a quantity detector, for a list of detected quantities.
+ * It is made by the owner detector, the detected (and converted) quantities and the request settings which
+ * contribute to the query (e.g. the function parameters).
+ * Keys are {@link Accountable}, so that the memory ceiling of the query cache (maxRamMB) takes them in account.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public final class QuantityQueryKey implements Accountable {
+    final CachingQuantityDetector owner;
+    final DetectedQuantities quantities;
+    final Map<String, String> settings;
+
+    /**
+     * Builds a new {@link QuantityQueryKey} with the given data.
+     *
+     * @param owner the detector which builds the query.
+     * @param quantities the detected quantities.
+     * @param settings the request settings which contribute to the query.
+     */
+    QuantityQueryKey(final CachingQuantityDetector owner, final DetectedQuantities quantities, final Map<String, String> settings) {
+        this.owner = owner;
+        this.quantities = quantities;
+        this.settings = Collections.unmodifiableMap(settings);
+    }
+
+    @Override
+    public long ramBytesUsed() {
+        return QuantityRamUsage.sizeOf(this);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (!(obj instanceof QuantityQueryKey)) {
+            return false;
+        }
+
+        final QuantityQueryKey key = (QuantityQueryKey) obj;
+        return key.owner == owner && key.quantities.equals(quantities) && key.settings.equals(settings);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(System.identityHashCode(owner), quantities, settings);
+    }
+
+    @Override
+    public String toString() {
+        return owner.getName() + "(" + quantities + ")" + (settings.isEmpty() ? "" : settings);
+    }
+}
@@ -0,0 +1,155 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.Unit;
+import org.apache.lucene.util.RamUsageEstimator;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.apache.lucene.util.RamUsageEstimator.NUM_BYTES_ARRAY_HEADER;
+import static org.apache.lucene.util.RamUsageEstimator.NUM_BYTES_OBJECT_HEADER;
+import static org.apache.lucene.util.RamUsageEstimator.NUM_BYTES_OBJECT_REF;
+import static org.apache.lucene.util.RamUsageEstimator.alignObjectSize;
+import static org.apache.lucene.util.RamUsageEstimator.shallowSizeOfInstance;
+
+/**
+ * Estimation (with the {@link RamUsageEstimator}) of the heap used by the compiled configuration and by the
+ * caches of the quantity detectors.
+ * Shared instances (e.g. the unit forms referenced by several lookup tables) are counted once for each reference,
+ * so the estimates are an upper bound of the actual usage.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+abstract class QuantityRamUsage {
+    final static long HASHTABLE_RAM_BYTES_PER_ENTRY =
+            alignObjectSize(NUM_BYTES_OBJECT_HEADER + Integer.BYTES + 3 * NUM_BYTES_OBJECT_REF) + NUM_BYTES_OBJECT_REF;
+
+    private final static long STRING_RAM_BYTES_USED = shallowSizeOfInstance(String.class);
+    private final static long NUMBER_RAM_BYTES_USED = shallowSizeOfInstance(Float.class);
+    private final static long UNIT_RAM_BYTES_USED = shallowSizeOfInstance(Unit.class);
+    private final static long VARIANT_RAM_BYTES_USED = shallowSizeOfInstance(Unit.Variant.class);
+    private final static long GAP_RAM_BYTES_USED = shallowSizeOfInstance(Unit.Gap.class);
+    private final static long DICTIONARY_RAM_BYTES_USED = shallowSizeOfInstance(UnitDictionary.class);
+    private final static long RANGE_RAM_BYTES_USED = alignObjectSize(NUM_BYTES_OBJECT_HEADER + 2 * Float.BYTES + Integer.BYTES);
+    private final static long PAIR_RAM_BYTES_USED = alignObjectSize(NUM_BYTES_OBJECT_HEADER + 2 * NUM_BYTES_OBJECT_REF);
+    private final static long QUERY_KEY_RAM_BYTES_USED = shallowSizeOfInstance(QuantityQueryKey.class);
+    private final static long DETECTED_QUANTITIES_RAM_BYTES_USED = shallowSizeOfInstance(DetectedQuantities.class);
+
+    /**
+     * The assumed length of the unit names whose strings cannot be inspected (i.e. the equivalence and
+     * assumption tables keys).
+     */
+    private final static int UNIT_NAME_LENGTH = 8;
+
+    /**
+     * Returns the estimated heap used by the given string.
+     *
+     * @param value the string.
+     * @return the estimated heap used by the given string.
+     */
+    static long sizeOf(final String value) {
+        return STRING_RAM_BYTES_USED + array(value.length(), Character.BYTES);
+    }
+
+    /**
+     * Returns the estimated heap used by the given character array.
+     *
+     * @param value the character array.
+     * @return the estimated heap used by the given character array.
+     */
+    static long sizeOf(final char [] value) {
+        return array(value.length, Character.BYTES);
+    }
+
+    /**
+     * Returns the estimated heap used by a list (or any other array based collection) with the given size.
+     *
+     * @param size the number of elements.
+     * @return the estimated heap used by a list with the given size, without its elements.
+     */
+    static long list(final int size) {
+        return NUM_BYTES_OBJECT_HEADER + array(size, NUM_BYTES_OBJECT_REF);
+    }
+
+    /**
+     * Returns the estimated heap used by the given unit, with its variants and its gap and boost overrides.
+     *
+     * @param unit the unit.
+     * @return the estimated heap used by the given unit.
+     */
+    static long sizeOf(final Unit unit) {
+        long size = UNIT_RAM_BYTES_USED + sizeOf(unit.name()) + list(unit.fieldNames().size());
+
+        final Set<Unit.Gap> gaps = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (final String fieldName : unit.fieldNames()) {
+            size += sizeOf(fieldName) + 2 * HASHTABLE_RAM_BYTES_PER_ENTRY + NUMBER_RAM_BYTES_USED;
+            unit.gap(fieldName).y.ifPresent(gaps::add);
+        }
+        size += gaps.size() * GAP_RAM_BYTES_USED;
+
+        for (final Unit.Variant variant : unit.variants()) {
+            size += VARIANT_RAM_BYTES_USED + HASHTABLE_RAM_BYTES_PER_ENTRY + sizeOf(variant.refName());
+            size += list(variant.forms().size()) + variant.forms().stream().mapToLong(QuantityRamUsage::sizeOf).sum();
+        }
+        return size;
+    }
+
+    /**
+     * Returns the estimated heap used by the given dictionary: units, lookup tables (except the forms table, if it is
+     * memory mapped), equivalence and assumption tables.
+     *
+     * @param dictionary the units dictionary.
+     * @return the estimated heap used by the given dictionary.
+     */
+    static long sizeOf(final UnitDictionary dictionary) {
+        long size = DICTIONARY_RAM_BYTES_USED + list(dictionary.units().size());
+        size += dictionary.units().stream().mapToLong(QuantityRamUsage::sizeOf).sum();
+
+        // variants and forms lookup tables: the forms map shares the keys of the variants map, and it is not in the
+        // heap if the dictionary is memory mapped
+        final int tables = dictionary.isMapped() ? 1 : 2;
+        size += dictionary.variants().keySet().stream()
+                .mapToLong(form -> sizeOf(form) + tables * HASHTABLE_RAM_BYTES_PER_ENTRY)
+                .sum();
+
+        final long tableKeyRamBytesUsed = STRING_RAM_BYTES_USED + array(UNIT_NAME_LENGTH, Character.BYTES);
+        size += dictionary.equivalenceTable().size()
+                * (HASHTABLE_RAM_BYTES_PER_ENTRY + tableKeyRamBytesUsed + NUMBER_RAM_BYTES_USED);
+        size += dictionary.assumptionTable().size()
+                * (HASHTABLE_RAM_BYTES_PER_ENTRY + tableKeyRamBytesUsed + RANGE_RAM_BYTES_USED);
+        return size;
+    }
+
+    /**
+     * Returns the estimated heap used by the given query key. The units and the owner are shared, so they are
+     * not counted.
+     *
+     * @param key the query key.
+     * @return the estimated heap used by the given query key.
+     */
+    static long sizeOf(final QuantityQueryKey key) {
+        long size = QUERY_KEY_RAM_BYTES_USED + DETECTED_QUANTITIES_RAM_BYTES_USED + list(key.quantities.size());
+        size += key.quantities.size() * (PAIR_RAM_BYTES_USED + NUMBER_RAM_BYTES_USED);
+        size += key.settings.entrySet().stream()
+                .mapToLong(entry ->
+                        HASHTABLE_RAM_BYTES_PER_ENTRY
+                                + sizeOf(entry.getKey())
+                                + Optional.ofNullable(entry.getValue()).map(QuantityRamUsage::sizeOf).orElse(0L))
+                .sum();
+        return size;
+    }
+
+    /**
+     * Returns the estimated heap used by an array with the given length.
+     *
+     * @param length the array length.
+     * @param elementSize the size of each element.
+     * @return the estimated heap used by an array with the given length.
+     */
+    private static long array(final int length, final int elementSize) {
+        return alignObjectSize(NUM_BYTES_ARRAY_HEADER + (long) length * elementSize);
+    }
+}
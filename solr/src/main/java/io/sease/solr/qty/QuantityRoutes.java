@@ -0,0 +1,74 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.QuantityOccurrence;
+import io.sease.solr.qty.domain.Unit;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Derivation of the SolrCloud routing keys from the quantities.
+ * Documents are co-located by the bucket (see {@link Unit.Gap#isBucketed()}) of a configured quantity field: the
+ * routing key of a document is made by the field name and the bucket of its value (e.g. capacity_3), and it is
+ * written in the field the collection router uses ("router.field" of the compositeId router).
+ * At query time, the routing keys are derived from the buckets which cover the ranges of the detected amounts, so
+ * only the shards holding those buckets are contacted.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+abstract class QuantityRoutes {
+    private final static char SEPARATOR = '_';
+
+    /**
+     * Returns the routing key of the given bucket of the given field.
+     *
+     * @param fieldName the quantity field name.
+     * @param bucket the bucket.
+     * @return the routing key of the given bucket.
+     */
+    static String key(final String fieldName, final long bucket) {
+        return fieldName + SEPARATOR + bucket;
+    }
+
+    /**
+     * Returns the routing keys of the given detected quantities, as a value of the _route_ parameter.
+     * Quantities are routed only if every quantity detected for the given field can be mapped to a finite number
+     * of buckets; otherwise the request has to be sent to all shards.
+     *
+     * @param quantities the detected quantities.
+     * @param fieldName the quantity field the documents are routed by.
+     * @return the routing keys of the given detected quantities, empty if the request cannot be routed.
+     */
+    static Optional<String> route(final DetectedQuantities quantities, final String fieldName) {
+        final Set<String> keys = new LinkedHashSet<>();
+        final boolean routable = quantities.replay(new EquivalentQuantityBuilder<Boolean>() {
+            private boolean routable = true;
+
+            @Override
+            protected void onQuantityDetected(final Unit unit, final QuantityOccurrence occurrence) {
+                if (!unit.fieldNames().contains(fieldName)) {
+                    return;
+                }
+
+                final List<Long> buckets = unit.gap(fieldName).y
+                        .map(gap -> gap.buckets(occurrence.amount()))
+                        .orElseGet(Collections::emptyList);
+                if (buckets.isEmpty()) {
+                    routable = false;
+                }
+                buckets.forEach(bucket -> keys.add(key(fieldName, bucket)));
+            }
+
+            @Override
+            public Boolean product() {
+                return routable;
+            }
+        });
+
+        return routable && !keys.isEmpty() ? Optional.of(String.join(",", keys)) : Optional.empty();
+    }
+}
@@ -0,0 +1,108 @@
+package io.sease.solr.qty;
+
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.handler.component.SearchHandler;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.search.QParserPlugin;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Optional;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * A {@link SearchHandler} which restricts a distributed request to the shards holding the detected quantities.
+ * The quantities detected in the query string (by the query parser declared in the "parser" parameter) are mapped,
+ * through the buckets of the "quantityField" field, to the routing keys of the documents (see {@link QuantityRoutes})
+ * and set in the _route_ parameter before the shards are selected.
+ *
+ * The documents have to be routed with the same keys, see {@link QuantityNormalizationUpdateProcessorFactory}.
+ * Note that a routed request only matches the documents which hold the detected quantities (or close values):
+ * requests without quantities, with an explicit _route_ parameter, or with quantities which cannot be bucketed, are
+ * sent to all shards as usual.
+ *
+ * <pre>
+ * &lt;requestHandler name="/quantities" class="io.sease.solr.qty.QuantityRoutingSearchHandler"&gt;
+ *   &lt;str name="parser"&gt;bqty&lt;/str&gt;
+ *   &lt;str name="quantityField"&gt;capacity&lt;/str&gt;
+ * &lt;/requestHandler&gt;
+ * </pre>
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantityRoutingSearchHandler extends SearchHandler {
+    private final static Logger LOGGER = LoggerFactory.getLogger(QuantityRoutingSearchHandler.class);
+
+    public final static String PARSER_PARAM_NAME = "parser";
+    public final static String DEFAULT_PARSER = "bqty";
+    public final static String QUANTITY_FIELD_PARAM_NAME = "quantityField";
+
+    private String parserName = DEFAULT_PARSER;
+    String quantityField;
+    QuantityDetector detector;
+
+    @Override
+    public void init(final NamedList args) {
+        super.init(args);
+        parserName = ofNullable(args.get(PARSER_PARAM_NAME)).map(String::valueOf).orElse(DEFAULT_PARSER);
+        quantityField = ofNullable(args.get(QUANTITY_FIELD_PARAM_NAME)).map(String::valueOf).orElse(null);
+    }
+
+    @Override
+    public void inform(final SolrCore core) {
+        super.inform(core);
+        final QParserPlugin plugin = core.getQueryPlugin(parserName);
+        if (plugin instanceof QuantityDetector && quantityField != null) {
+            detector = (QuantityDetector) plugin;
+        } else {
+            LOGGER.warn("{} is not a quantity detection query parser (or {} is missing), requests won't be routed.",
+                    parserName,
+                    QUANTITY_FIELD_PARAM_NAME);
+        }
+    }
+
+    @Override
+    public void handleRequestBody(final SolrQueryRequest req, final SolrQueryResponse rsp) throws Exception {
+        route(req).ifPresent(route -> {
+            final ModifiableSolrParams params = new ModifiableSolrParams(req.getParams());
+            params.set(ShardParams._ROUTE_, route);
+            req.setParams(params);
+        });
+        super.handleRequestBody(req, rsp);
+    }
+
+    /**
+     * Returns the value of the _route_ parameter derived from the quantities detected in the query string.
+     * The detection is kept in the request context, so the query parser replays it instead of detecting the query
+     * string again.
+     *
+     * @param req the current request.
+     * @return the value of the _route_ parameter, empty if the request doesn't have to be routed.
+     */
+    Optional<String> route(final SolrQueryRequest req) {
+        final SolrParams params = req.getParams();
+        final String qstr = params.get(CommonParams.Q);
+        if (detector == null
+                || qstr == null
+                || params.get(ShardParams._ROUTE_) != null
+                || params.getBool(ShardParams.IS_SHARD, false)) {
+            return Optional.empty();
+        }
+
+        QuantityDetectionComponent.keepDetections(req);
+        return QuantityRoutes.route(detector.detect(qstr, params, query -> new DetectedQuantities()), quantityField);
+    }
+
+    @Override
+    public String getDescription() {
+        return "Search handler which routes the requests to the shards holding the detected quantities.";
+    }
+}
@@ -0,0 +1,331 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.Unit;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.lucene.index.IndexReader;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.core.AbstractSolrEventListener;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.core.SolrEventListener;
+import org.apache.solr.handler.component.ResponseBuilder;
+import org.apache.solr.handler.component.SearchComponent;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.apache.solr.util.plugin.SolrCoreAware;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * A {@link SearchComponent} which completes, as the user types, the quantity at the end of the query: "33 c" is
+ * completed with the unit forms which start with "c" (e.g. "33 cl", "33 cm"), ranked by how many indexed values
+ * fall, after the conversion in the reference variant of each unit, within the range the quantity parsers would
+ * build for that amount (i.e. the gap of the target field or, for exact amounts, the histogram bucket around it).
+ *
+ * Suggestions are served from precomputed structures only: the unit forms, sorted once when the component is
+ * loaded, and the value distributions of the unit fields (see {@link IndexStatistics}), which the component computes
+ * each time a new searcher is opened, before it serves any request. Statistics are never computed on the suggest
+ * path: until the distributions of a searcher are available (e.g. if the first searcher has been opened before the
+ * component was loaded), suggestions are not weighted. No query is executed against the index, so the component is
+ * meant to be the only component of a dedicated request handler.
+ *
+ * <pre>
+ * &lt;searchComponent name="quantitySuggest" class="io.sease.solr.qty.QuantitySuggestComponent"&gt;
+ *   &lt;str name="units"&gt;units.json&lt;/str&gt;
+ *   &lt;int name="count"&gt;5&lt;/int&gt;
+ * &lt;/searchComponent&gt;
+ *
+ * &lt;requestHandler name="/quantity-suggest" class="solr.SearchHandler"&gt;
+ *   &lt;lst name="defaults"&gt;
+ *     &lt;bool name="qty.suggest"&gt;true&lt;/bool&gt;
+ *   &lt;/lst&gt;
+ *   &lt;arr name="components"&gt;
+ *     &lt;str&gt;quantitySuggest&lt;/str&gt;
+ *   &lt;/arr&gt;
+ * &lt;/requestHandler&gt;
+ * </pre>
+ *
+ * Statistics are local to the core, so in SolrCloud the suggestions reflect the values of the core which serves
+ * the request.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantitySuggestComponent extends SearchComponent implements SolrCoreAware {
+    public final static String UNITS_PARAM_NAME = "units";
+    public final static String DEFAULT_UNITS = "units.json";
+    public final static String LOCALE_PARAM_NAME = "locale";
+    public final static String COUNT_PARAM_NAME = "count";
+    public final static int DEFAULT_COUNT = 5;
+
+    public final static String SUGGEST_PARAM_NAME = "qty.suggest";
+    public final static String SUGGEST_QUERY_PARAM_NAME = "qty.suggest.q";
+    public final static String SUGGEST_COUNT_PARAM_NAME = "qty.suggest.count";
+
+    public final static String RESPONSE_KEY = "quantitySuggestions";
+
+    /**
+     * A completed quantity.
+     *
+     * @author agazzarini
+     * @since 1.0
+     */
+    static class Suggestion {
+        final String text;
+        final String form;
+        final Unit unit;
+        final long weight;
+
+        /**
+         * Builds a new suggestion with the given data.
+         *
+         * @param text the completed query.
+         * @param form the unit form which completes the quantity.
+         * @param unit the unit of the form.
+         * @param weight the (estimated) number of indexed values which match the completed quantity.
+         */
+        Suggestion(final String text, final String form, final Unit unit, final long weight) {
+            this.text = text;
+            this.form = form;
+            this.unit = unit;
+            this.weight = weight;
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+    private final static Comparator<Suggestion> RANKING =
+            Comparator.<Suggestion>comparingLong(suggestion -> suggestion.weight).reversed()
+                    .thenComparingInt(suggestion -> suggestion.form.length())
+                    .thenComparing(suggestion -> suggestion.form);
+
+    private String units = DEFAULT_UNITS;
+    private char decimalSeparator = DetectionSettings.DEFAULT_DECIMAL_SEPARATOR;
+    private int count = DEFAULT_COUNT;
+
+    private UnitDictionary dictionary;
+    private String [] forms = new String[0];
+
+    @Override
+    public void init(final NamedList args) {
+        final SolrParams configuration = SolrParams.toSolrParams(args);
+        units = configuration.get(UNITS_PARAM_NAME, DEFAULT_UNITS);
+        count = configuration.getInt(COUNT_PARAM_NAME, DEFAULT_COUNT);
+        decimalSeparator = ofNullable(configuration.get(LOCALE_PARAM_NAME))
+                .map(Locale::forLanguageTag)
+                .map(locale -> DecimalFormatSymbols.getInstance(locale).getDecimalSeparator())
+                .orElse(DetectionSettings.DEFAULT_DECIMAL_SEPARATOR);
+    }
+
+    @Override
+    public void inform(final SolrCore core) {
+        try {
+            load(core.getResourceLoader());
+        } catch (final IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+
+        final SolrEventListener listener = new AbstractSolrEventListener(core) {
+            @Override
+            public void newSearcher(final SolrIndexSearcher newSearcher, final SolrIndexSearcher currentSearcher) {
+                distributions(newSearcher.getIndexReader(), newSearcher.getSchema());
+            }
+        };
+        core.registerFirstSearcherListener(listener);
+        core.registerNewSearcherListener(listener);
+    }
+
+    /**
+     * Computes the value distributions of the unit fields, so they are available to the requests served by the
+     * (new) searcher of the given reader.
+     *
+     * @param reader the (top level) index reader of the new searcher.
+     * @param schema the schema of the new searcher.
+     */
+    void distributions(final IndexReader reader, final IndexSchema schema) {
+        final IndexStatistics statistics = IndexStatistics.of(reader);
+        dictionary.units().stream()
+                .flatMap(unit -> unit.fieldNames().stream())
+                .distinct()
+                .map(schema::getFieldOrNull)
+                .filter(Objects::nonNull)
+                .forEach(statistics::compute);
+    }
+
+    /**
+     * Loads the units dictionary and sorts its unit forms, for the prefix lookups.
+     *
+     * @param loader the Solr resource loader.
+     * @throws IOException in case of I/O failure (e.g. reading the conf file)
+     */
+    void load(final ResourceLoader loader) throws IOException {
+        try (final InputStream configuration = loader.openResource(units)) {
+            dictionary = UnitDictionary.load(configuration);
+        }
+
+        forms = dictionary.variants().keySet().toArray(new String[0]);
+        Arrays.sort(forms);
+    }
+
+    @Override
+    public void prepare(final ResponseBuilder rb) {
+        // Nothing to be done here
+    }
+
+    @Override
+    public void process(final ResponseBuilder rb) {
+        final SolrParams params = rb.req.getParams();
+        final String qstr = params.get(SUGGEST_QUERY_PARAM_NAME, params.get(CommonParams.Q));
+        if (!params.getBool(SUGGEST_PARAM_NAME, false) || qstr == null) {
+            return;
+        }
+
+        final SolrIndexSearcher searcher = rb.req.getSearcher();
+        final Function<String, Optional<FieldStatistics>> statistics = fieldName -> {
+            final SchemaField field = searcher != null ? searcher.getSchema().getFieldOrNull(fieldName) : null;
+            return field != null
+                    ? IndexStatistics.of(searcher.getIndexReader()).distribution(field)
+                    : Optional.empty();
+        };
+
+        final List<SimpleOrderedMap<Object>> suggestions = new ArrayList<>();
+        suggest(qstr, params.getInt(SUGGEST_COUNT_PARAM_NAME, count), statistics).forEach(suggestion -> {
+            final SimpleOrderedMap<Object> entry = new SimpleOrderedMap<>();
+            entry.add("suggestion", suggestion.text);
+            entry.add("unit", suggestion.unit.name());
+            entry.add("weight", suggestion.weight);
+            suggestions.add(entry);
+        });
+        rb.rsp.add(RESPONSE_KEY, suggestions);
+    }
+
+    @Override
+    public String getDescription() {
+        return "Completes the quantity at the end of the query with the configured unit forms.";
+    }
+
+    /**
+     * Returns the completions of the quantity at the end of the given query.
+     * The quantity is an amount followed by an optional (partial) unit form, with or without a whitespace
+     * in between (e.g. "33", "33 c", "33c").
+     *
+     * @param qstr the query string.
+     * @param count the maximum number of suggestions.
+     * @param statistics the value statistics of each (quantity) field.
+     * @return the ranked completions of the quantity at the end of the given query, empty if the query doesn't end
+     *          with a quantity.
+     */
+    List<Suggestion> suggest(
+            final String qstr,
+            final int count,
+            final Function<String, Optional<FieldStatistics>> statistics) {
+        // The last token is either the amount with the partial form (e.g. 33cl) or the partial form alone
+        final int tokenStart = lastTokenStart(qstr, qstr.length());
+        final String token = qstr.substring(tokenStart);
+        final int tokenAmountEnd = QuantityMatcher.endIndexOfAmount(token, 0, decimalSeparator);
+
+        final int amountStart;
+        final int amountEnd;
+        if (tokenAmountEnd > 0) {
+            amountStart = tokenStart;
+            amountEnd = tokenStart + tokenAmountEnd;
+        } else {
+            int end = tokenStart;
+            while (end > 0 && Character.isWhitespace(qstr.charAt(end - 1))) end--;
+            amountStart = lastTokenStart(qstr, end);
+            amountEnd = amountStart + QuantityMatcher.endIndexOfAmount(qstr.substring(amountStart, end), 0, decimalSeparator);
+            if (amountEnd != end || amountEnd == amountStart) {
+                return new ArrayList<>();
+            }
+        }
+
+        final String amount = qstr.substring(amountStart, amountEnd);
+        final String partialForm = qstr.substring(tokenAmountEnd > 0 ? amountEnd : tokenStart).toLowerCase(Locale.ROOT);
+        final float value = F.parseFloat(amount, 0, amount.length(), decimalSeparator);
+        final String head = qstr.substring(0, amountStart) + amount + " ";
+
+        final Map<String, Long> weights = new HashMap<>();
+        final List<Suggestion> suggestions = new ArrayList<>();
+        int index = Arrays.binarySearch(forms, partialForm);
+        for (index = index < 0 ? -index - 1 : index; index < forms.length && forms[index].startsWith(partialForm); index++) {
+            final String form = forms[index];
+            final Optional<Unit> unit = dictionary.unitByForm(form);
+            final Optional<Number> equivalent = unit.flatMap(instance -> dictionary.equivalent(instance, form, value));
+            if (equivalent.isPresent()) {
+                final long weight = weights.computeIfAbsent(
+                        unit.get().name() + ' ' + equivalent.get(),
+                        key -> weight(unit.get(), equivalent.get(), statistics));
+                suggestions.add(new Suggestion(head + form, form, unit.get(), weight));
+            }
+        }
+
+        return suggestions.stream().sorted(RANKING).limit(Math.max(0, count)).collect(toList());
+    }
+
+    /**
+     * Returns the (estimated) number of indexed values of the unit fields which match the given amount.
+     *
+     * @param unit the unit.
+     * @param amount the amount, expressed in the reference variant of the unit.
+     * @param statistics the value statistics of each (quantity) field.
+     * @return the (estimated) number of indexed values of the unit fields which match the given amount.
+     */
+    private long weight(final Unit unit, final Number amount, final Function<String, Optional<FieldStatistics>> statistics) {
+        double weight = 0;
+        for (final String fieldName : unit.fieldNames()) {
+            final Optional<FieldStatistics> field = statistics.apply(fieldName);
+            if (!field.isPresent() || field.get().isEmpty()) {
+                continue;
+            }
+
+            final Optional<Unit.Gap> gap = unit.gap(fieldName).y
+                    .filter(candidate -> candidate.value() != null && !candidate.isAdaptive());
+            if (gap.isPresent()) {
+                weight += field.get().count(
+                        gap.get().lowerBound(amount).doubleValue(),
+                        gap.get().upperBound(amount).map(Number::doubleValue).orElse(Double.POSITIVE_INFINITY));
+            } else {
+                // Exact amounts: the density of the histogram bucket (width) around the amount
+                final double halfWidth =
+                        (field.get().max().get().doubleValue() - field.get().min().get().doubleValue()) / ValueHistogram.BUCKETS / 2;
+                weight += field.get().count(amount.doubleValue() - halfWidth, amount.doubleValue() + halfWidth);
+            }
+        }
+        return Math.round(weight);
+    }
+
+    /**
+     * Returns the start offset of the token which ends at the given offset.
+     *
+     * @param qstr the query string.
+     * @param end the end offset of the token.
+     * @return the start offset of the token which ends at the given offset.
+     */
+    private static int lastTokenStart(final String qstr, final int end) {
+        int start = end;
+        while (start > 0 && !Character.isWhitespace(qstr.charAt(start - 1))) start--;
+        return start;
+    }
+}
@@ -0,0 +1,221 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.Unit;
+import org.apache.lucene.analysis.TokenFilter;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Optional;
+
+/**
+ * A {@link TokenFilter} which recognizes the quantities (i.e. an amount followed by a unit) within a token stream and
+ * emits, for each of them, a normalized token for each target field of the unit (e.g. 33cl becomes capacity:0.33,
+ * if the reference variant of the capacity unit is lt).
+ *
+ * A quantity is either a single token (e.g. 33cl) or an amount token immediately followed by a unit token
+ * (e.g. 33 cl). Units are recognized, converted and mapped to the target fields with the same dictionary
+ * (variants, synonyms and equivalence table) used by the quantity detection query parsers.
+ *
+ * Quantity tokens have the {@link #TYPE} type and their offsets span the whole quantity.
+ * If the original tokens are preserved, the quantity tokens are stacked on the original token (the amount token,
+ * for two-token quantities, so start offsets never go backwards), otherwise they replace
+ * both the amount and the unit tokens: like a {@link org.apache.lucene.analysis.FilteringTokenFilter}, the position
+ * increment of the dropped unit token is added to the next token (or to the final position increment, at the end of
+ * the stream), so the positions of the following tokens don't change.
+ *
+ * Note that unit forms are matched against the token text as it is, so the filter is expected to follow a
+ * lowercase filter.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public final class QuantityTokenFilter extends TokenFilter {
+    public final static String TYPE = "QUANTITY";
+
+    private final CharTermAttribute termAttribute = addAttribute(CharTermAttribute.class);
+    private final OffsetAttribute offsetAttribute = addAttribute(OffsetAttribute.class);
+    private final PositionIncrementAttribute positionIncrementAttribute = addAttribute(PositionIncrementAttribute.class);
+    private final TypeAttribute typeAttribute = addAttribute(TypeAttribute.class);
+
+    private final UnitDictionary dictionary;
+    private final char decimalSeparator;
+    private final boolean preserveOriginal;
+
+    private final Deque<State> pending = new ArrayDeque<>();
+    private State lookahead;
+    private boolean exhausted;
+    private int skippedPositions;
+
+    /**
+     * Builds a new {@link QuantityTokenFilter} with the given data.
+     *
+     * @param input the input token stream.
+     * @param dictionary the units dictionary.
+     * @param decimalSeparator the decimal separator of the amounts.
+     * @param preserveOriginal true if the amount and unit tokens have to be preserved.
+     */
+    public QuantityTokenFilter(
+            final TokenStream input,
+            final UnitDictionary dictionary,
+            final char decimalSeparator,
+            final boolean preserveOriginal) {
+        super(input);
+        this.dictionary = dictionary;
+        this.decimalSeparator = decimalSeparator;
+        this.preserveOriginal = preserveOriginal;
+    }
+
+    @Override
+    public boolean incrementToken() throws IOException {
+        if (!pending.isEmpty()) {
+            restoreState(pending.poll());
+            return true;
+        }
+
+        if (!nextToken()) {
+            return false;
+        }
+
+        if (skippedPositions != 0) {
+            positionIncrementAttribute.setPositionIncrement(positionIncrementAttribute.getPositionIncrement() + skippedPositions);
+            skippedPositions = 0;
+        }
+
+        final int amountEnd = QuantityMatcher.endIndexOfAmount(termAttribute, 0, decimalSeparator);
+        if (amountEnd == 0) {
+            return true;
+        }
+
+        final int startOffset = offsetAttribute.startOffset();
+        final float amount = F.parseFloat(termAttribute, 0, amountEnd, decimalSeparator);
+        if (amountEnd < termAttribute.length()) {
+            // Single token quantity (e.g. 33cl)
+            final String form = termAttribute.subSequence(amountEnd, termAttribute.length()).toString();
+            final Optional<Unit> unit = dictionary.unitByForm(form);
+            final Optional<Number> equivalent = unit.flatMap(instance -> dictionary.equivalent(instance, form, amount));
+            if (equivalent.isPresent()) {
+                final State original = captureState();
+                quantities(
+                        original,
+                        unit.get(),
+                        equivalent.get(),
+                        startOffset,
+                        offsetAttribute.endOffset(),
+                        preserveOriginal ? 0 : positionIncrementAttribute.getPositionIncrement());
+                restoreState(preserveOriginal ? original : pending.poll());
+            }
+            return true;
+        }
+
+        // The whole token is an amount: the next token could be its unit
+        final State amountState = captureState();
+        final int amountPositionIncrement = positionIncrementAttribute.getPositionIncrement();
+        if (!nextInputToken()) {
+            restoreState(amountState);
+            return true;
+        }
+
+        final String form = termAttribute.toString();
+        final Optional<Unit> unit = dictionary.unitByForm(form);
+        final Optional<Number> equivalent = unit.flatMap(instance -> dictionary.equivalent(instance, form, amount));
+        if (!equivalent.isPresent()) {
+            lookahead = captureState();
+            restoreState(amountState);
+            return true;
+        }
+
+        if (preserveOriginal) {
+            // Quantity tokens are stacked on the amount token, so start offsets never go backwards
+            final State unitState = captureState();
+            quantities(amountState, unit.get(), equivalent.get(), startOffset, offsetAttribute.endOffset(), 0);
+            pending.add(unitState);
+            restoreState(amountState);
+        } else {
+            skippedPositions = positionIncrementAttribute.getPositionIncrement();
+            quantities(amountState, unit.get(), equivalent.get(), startOffset, offsetAttribute.endOffset(), amountPositionIncrement);
+            restoreState(pending.poll());
+        }
+        return true;
+    }
+
+    @Override
+    public void end() throws IOException {
+        super.end();
+        positionIncrementAttribute.setPositionIncrement(positionIncrementAttribute.getPositionIncrement() + skippedPositions);
+    }
+
+    @Override
+    public void reset() throws IOException {
+        super.reset();
+        pending.clear();
+        lookahead = null;
+        exhausted = false;
+        skippedPositions = 0;
+    }
+
+    /**
+     * Moves to the next token, which is the lookahead token (if any) or the next token of the input stream.
+     *
+     * @return false if the end of the stream has been reached.
+     * @throws IOException in case of I/O failure.
+     */
+    private boolean nextToken() throws IOException {
+        if (lookahead != null) {
+            restoreState(lookahead);
+            lookahead = null;
+            return true;
+        }
+        return nextInputToken();
+    }
+
+    /**
+     * Moves to the next token of the input stream.
+     *
+     * @return false if the end of the stream has been reached.
+     * @throws IOException in case of I/O failure.
+     */
+    private boolean nextInputToken() throws IOException {
+        if (exhausted) {
+            return false;
+        }
+
+        exhausted = !input.incrementToken();
+        return !exhausted;
+    }
+
+    /**
+     * Adds to the pending tokens a quantity token for each target field of the given unit.
+     *
+     * @param base the state the quantity tokens are derived from.
+     * @param unit the unit.
+     * @param amount the amount, converted in the unit reference variant.
+     * @param startOffset the start offset of the quantity.
+     * @param endOffset the end offset of the quantity.
+     * @param positionIncrement the position increment of the first quantity token.
+     */
+    private void quantities(
+            final State base,
+            final Unit unit,
+            final Number amount,
+            final int startOffset,
+            final int endOffset,
+            final int positionIncrement) {
+        final String value = String.valueOf(F.narrow(amount));
+        int increment = positionIncrement;
+        for (final String fieldName : unit.fieldNames()) {
+            restoreState(base);
+            termAttribute.setEmpty().append(fieldName).append(':').append(value);
+            offsetAttribute.setOffset(startOffset, endOffset);
+            positionIncrementAttribute.setPositionIncrement(increment);
+            typeAttribute.setType(TYPE);
+            pending.add(captureState());
+            increment = 0;
+        }
+    }
+}
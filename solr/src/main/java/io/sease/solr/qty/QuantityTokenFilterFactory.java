@@ -0,0 +1,71 @@
+package io.sease.solr.qty;
+
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.lucene.analysis.util.ResourceLoaderAware;
+import org.apache.lucene.analysis.util.TokenFilterFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Factory for {@link QuantityTokenFilter}.
+ *
+ * <pre>
+ * &lt;fieldType name="text_quantities" class="solr.TextField"&gt;
+ *   &lt;analyzer&gt;
+ *     &lt;tokenizer class="solr.WhitespaceTokenizerFactory"/&gt;
+ *     &lt;filter class="solr.LowerCaseFilterFactory"/&gt;
+ *     &lt;filter class="io.sease.solr.qty.QuantityTokenFilterFactory" units="units.json" preserveOriginal="true" locale="en"/&gt;
+ *   &lt;/analyzer&gt;
+ * &lt;/fieldType&gt;
+ * </pre>
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantityTokenFilterFactory extends TokenFilterFactory implements ResourceLoaderAware {
+    public final static String UNITS_PARAM_NAME = "units";
+    public final static String PRESERVE_ORIGINAL_PARAM_NAME = "preserveOriginal";
+    public final static String LOCALE_PARAM_NAME = "locale";
+
+    private final String units;
+    private final boolean preserveOriginal;
+    private final char decimalSeparator;
+    private UnitDictionary dictionary;
+
+    /**
+     * Builds a new {@link QuantityTokenFilterFactory} with the given arguments.
+     *
+     * @param args the factory arguments.
+     */
+    public QuantityTokenFilterFactory(final Map<String, String> args) {
+        super(args);
+        units = get(args, UNITS_PARAM_NAME, "units.json");
+        preserveOriginal = getBoolean(args, PRESERVE_ORIGINAL_PARAM_NAME, true);
+
+        final String locale = get(args, LOCALE_PARAM_NAME);
+        decimalSeparator = locale != null
+                ? DecimalFormatSymbols.getInstance(Locale.forLanguageTag(locale)).getDecimalSeparator()
+                : DetectionSettings.DEFAULT_DECIMAL_SEPARATOR;
+
+        if (!args.isEmpty()) {
+            throw new IllegalArgumentException("Unknown parameters: " + args);
+        }
+    }
+
+    @Override
+    public void inform(final ResourceLoader loader) throws IOException {
+        try (final InputStream configuration = loader.openResource(units)) {
+            dictionary = UnitDictionary.load(configuration);
+        }
+    }
+
+    @Override
+    public TokenStream create(final TokenStream input) {
+        return new QuantityTokenFilter(input, dictionary, decimalSeparator, preserveOriginal);
+    }
+}
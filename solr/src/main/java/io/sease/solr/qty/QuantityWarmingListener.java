@@ -0,0 +1,264 @@
+package io.sease.solr.qty;
+
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.AbstractSolrEventListener;
+import org.apache.solr.core.SolrCore;
+import org.apache.solr.request.LocalSolrQueryRequest;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.search.QParserPlugin;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.util.Optional.ofNullable;
+
+/**
+ * A firstSearcher / newSearcher event listener which warms the caches of the new searcher with the hottest
+ * quantities. Quantities come from
+ *
+ * <ul>
+ *     <li>a configured list ("quantities", e.g. 33cl, 50cl, 75cl);</li>
+ *     <li>the detections recorded by a quantity detector ("parser", the name of the query parser, and "hot", the
+ *     number of most detected quantities of each unit).</li>
+ * </ul>
+ *
+ * For each quantity, the listener
+ *
+ * <ul>
+ *     <li>builds the query through the configured parser, and executes it as a filter, so the filterCache
+ *     is populated;</li>
+ *     <li>sends a request, made by the "params" list plus the quantity as query string, to the request handler
+ *     declared in the "qt" parameter (which is mandatory, if the list is present), so the queryResultCache is
+ *     populated.</li>
+ * </ul>
+ *
+ * The detections executed for warming are not recorded among the hot quantities of the detector, otherwise the
+ * warmed quantities would keep feeding themselves.
+ *
+ * A configuration example:
+ *
+ * <pre>
+ * &lt;listener event="newSearcher" class="io.sease.solr.qty.QuantityWarmingListener"&gt;
+ *     &lt;arr name="quantities"&gt;&lt;str&gt;33cl&lt;/str&gt;&lt;str&gt;50cl&lt;/str&gt;&lt;/arr&gt;
+ *     &lt;str name="parser"&gt;bqty&lt;/str&gt;
+ *     &lt;int name="hot"&gt;10&lt;/int&gt;
+ *     &lt;lst name="params"&gt;&lt;str name="qt"&gt;/combined&lt;/str&gt;&lt;/lst&gt;
+ * &lt;/listener&gt;
+ * </pre>
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantityWarmingListener extends AbstractSolrEventListener {
+    private final static Logger LOGGER = LoggerFactory.getLogger(QuantityWarmingListener.class);
+
+    public final static String QUANTITIES_PARAM_NAME = "quantities";
+    public final static String PARSER_PARAM_NAME = "parser";
+    public final static String HOT_PARAM_NAME = "hot";
+    public final static String PARAMS_PARAM_NAME = "params";
+
+    final static String WARMING_CONTEXT_KEY = "qty.warming";
+
+    /**
+     * Builds a new {@link QuantityWarmingListener} for the given core.
+     *
+     * @param core the owning core.
+     */
+    public QuantityWarmingListener(final SolrCore core) {
+        super(core);
+    }
+
+    @Override
+    public void init(final NamedList args) {
+        super.init(args);
+        final Object params = args.get(PARAMS_PARAM_NAME);
+        if (params != null
+                && (!(params instanceof NamedList) || SolrParams.toSolrParams((NamedList) params).get(CommonParams.QT) == null)) {
+            throw new SolrException(
+                    SolrException.ErrorCode.SERVER_ERROR,
+                    "The " + PARAMS_PARAM_NAME + " list of the quantity warming listener must declare the request handler (qt)");
+        }
+    }
+
+    @Override
+    public void newSearcher(final SolrIndexSearcher newSearcher, final SolrIndexSearcher currentSearcher) {
+        final long start = System.currentTimeMillis();
+        final SolrParams args = SolrParams.toSolrParams(getArgs());
+        final Optional<QuantityDetector> detector = detector(args.get(PARSER_PARAM_NAME));
+        final Collection<String> quantities = quantities(args, detector);
+
+        int failures = 0;
+        for (final String quantity : quantities) {
+            try {
+                if (detector.isPresent()) {
+                    filter(newSearcher, detector.get(), quantity);
+                }
+
+                if (getArgs().get(PARAMS_PARAM_NAME) != null) {
+                    query(newSearcher, quantity);
+                }
+            } catch (final Exception exception) {
+                failures++;
+                LOGGER.error("Unable to warm the new searcher with quantity " + quantity, exception);
+            }
+        }
+
+        LOGGER.info(
+                "Warming of {} quantities completed in {} ms ({} failures)",
+                quantities.size(),
+                System.currentTimeMillis() - start,
+                failures);
+    }
+
+    /**
+     * Returns the quantity detector registered with the given name.
+     *
+     * @param parserName the query parser name.
+     * @return the quantity detector registered with the given name, empty if it doesn't exist.
+     */
+    private Optional<QuantityDetector> detector(final String parserName) {
+        if (parserName == null) {
+            return Optional.empty();
+        }
+
+        final QParserPlugin plugin = queryPlugin(parserName);
+        if (!(plugin instanceof QuantityDetector)) {
+            LOGGER.warn("{} is not a quantity detection query parser, it won't be used for warming.", parserName);
+            return Optional.empty();
+        }
+
+        return Optional.of((QuantityDetector) plugin);
+    }
+
+    /**
+     * Returns the quantities that will be used for warming: the configured ones plus the hottest detected ones.
+     *
+     * @param args the listener configuration.
+     * @param detector the quantity detector.
+     * @return the quantities that will be used for warming.
+     */
+    private Collection<String> quantities(final SolrParams args, final Optional<QuantityDetector> detector) {
+        final Set<String> quantities = new LinkedHashSet<>();
+        final Object configured = getArgs().get(QUANTITIES_PARAM_NAME);
+        if (configured instanceof Collection) {
+            ((Collection<?>) configured).forEach(quantity -> quantities.add(String.valueOf(quantity)));
+        } else if (configured != null) {
+            quantities.add(String.valueOf(configured));
+        }
+
+        final int hot = args.getInt(HOT_PARAM_NAME, 0);
+        if (hot > 0) {
+            detector.ifPresent(instance -> quantities.addAll(instance.hotQuantities().top(hot)));
+        }
+        return quantities;
+    }
+
+    /**
+     * Builds the query associated with the given quantity and executes it as a filter.
+     *
+     * @param searcher the new searcher.
+     * @param detector the quantity detector.
+     * @param quantity the quantity.
+     * @throws Exception in case of parse or I/O failure.
+     */
+    private void filter(final SolrIndexSearcher searcher, final QuantityDetector detector, final String quantity) throws Exception {
+        final SolrQueryRequest request = request(searcher, new ModifiableSolrParams());
+        SolrRequestInfo.setRequestInfo(new SolrRequestInfo(request, new SolrQueryResponse()));
+        try {
+            searcher.getDocSet(
+                    detector.createParser(quantity, new ModifiableSolrParams(), request.getParams(), request).getQuery());
+        } finally {
+            request.close();
+            SolrRequestInfo.clearRequestInfo();
+        }
+    }
+
+    /**
+     * Sends the configured request, with the given quantity as query string, to the configured request handler.
+     *
+     * @param searcher the new searcher.
+     * @param quantity the quantity.
+     */
+    private void query(final SolrIndexSearcher searcher, final String quantity) {
+        final ModifiableSolrParams params =
+                new ModifiableSolrParams(SolrParams.toSolrParams((NamedList) getArgs().get(PARAMS_PARAM_NAME)));
+        params.set(CommonParams.Q, quantity);
+
+        final SolrQueryRequest request = request(searcher, params);
+        final SolrQueryResponse response = new SolrQueryResponse();
+        SolrRequestInfo.setRequestInfo(new SolrRequestInfo(request, response));
+        try {
+            execute(params.get(CommonParams.QT), request, response);
+        } finally {
+            request.close();
+            SolrRequestInfo.clearRequestInfo();
+        }
+    }
+
+    /**
+     * Returns the query parser registered, in the owning core, with the given name.
+     *
+     * @param parserName the query parser name.
+     * @return the query parser registered with the given name, null if it doesn't exist.
+     */
+    QParserPlugin queryPlugin(final String parserName) {
+        return getCore().getQueryPlugin(parserName);
+    }
+
+    /**
+     * Executes the given request with the request handler registered, in the owning core, with the given name.
+     *
+     * @param handlerName the request handler name.
+     * @param request the request.
+     * @param response the response.
+     */
+    void execute(final String handlerName, final SolrQueryRequest request, final SolrQueryResponse response) {
+        getCore().execute(getCore().getRequestHandler(handlerName), request, response);
+    }
+
+    /**
+     * Returns true if the current request has been sent by a {@link QuantityWarmingListener}.
+     *
+     * @return true if the current request has been sent by a {@link QuantityWarmingListener}.
+     */
+    static boolean isWarming() {
+        return ofNullable(SolrRequestInfo.getRequestInfo())
+                .map(SolrRequestInfo::getReq)
+                .map(request -> request.getContext().containsKey(WARMING_CONTEXT_KEY))
+                .orElse(false);
+    }
+
+    /**
+     * Creates a local (warming) request which is executed against the given (new) searcher.
+     *
+     * @param searcher the new searcher.
+     * @param params the request parameters.
+     * @return a local request which is executed against the given (new) searcher.
+     */
+    private SolrQueryRequest request(final SolrIndexSearcher searcher, final SolrParams params) {
+        final SolrQueryRequest request = new LocalSolrQueryRequest(getCore(), params) {
+            @Override
+            public SolrIndexSearcher getSearcher() {
+                return searcher;
+            }
+
+            @Override
+            public void close() {
+                // The searcher reference doesn't belong to this request
+            }
+        };
+        request.getContext().put(WARMING_CONTEXT_KEY, true);
+        return request;
+    }
+}
@@ -0,0 +1,199 @@
+package io.sease.solr.qty;
+
+import java.util.List;
+
+/**
+ * A coarse, equi-width histogram of the values of a field.
+ * It is used for estimating how many values fall within a given range, assuming values are uniformly distributed
+ * within each bucket.
+ *
+ * Histograms are built per segment and then merged, once for each searcher, in a single histogram which spans the
+ * bounds of the whole index. Range counts are answered in constant time through the cumulative distribution of
+ * the buckets, which is computed (lazily) once the histogram has been filled.
+ *
+ * For integral fields buckets are aligned to integers, so the estimation is exact when the field values span
+ * less than {@link #BUCKETS} integers.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+class ValueHistogram {
+    final static int BUCKETS = 128;
+
+    private final double min;
+    private final double width;
+    private final boolean integral;
+    private final double [] counts = new double[BUCKETS];
+    private volatile double [] cumulative;
+
+    /**
+     * Builds a new (empty) {@link ValueHistogram} for values between the given bounds.
+     *
+     * @param min the minimum value.
+     * @param max the maximum value.
+     * @param integral true if the field values are integers.
+     */
+    ValueHistogram(final double min, final double max, final boolean integral) {
+        this.min = min;
+        this.integral = integral;
+        this.width = integral
+                ? Math.max(1, Math.ceil((max - min + 1) / BUCKETS))
+                : (max - min) / BUCKETS;
+    }
+
+    /**
+     * Merges the given histograms (e.g. one for each segment) in a single histogram, which spans the given bounds.
+     * The values of each source bucket are spread, uniformly, over the target buckets it overlaps.
+     *
+     * @param histograms the histograms.
+     * @param min the minimum value of all histograms.
+     * @param max the maximum value of all histograms.
+     * @param integral true if the field values are integers.
+     * @return the merged histogram.
+     */
+    static ValueHistogram merge(final List<ValueHistogram> histograms, final double min, final double max, final boolean integral) {
+        if (histograms.size() == 1) {
+            return histograms.get(0);
+        }
+
+        final ValueHistogram merged = new ValueHistogram(min, max, integral);
+        for (final ValueHistogram histogram : histograms) {
+            for (int i = 0; i < BUCKETS; i++) {
+                if (histogram.counts[i] > 0) {
+                    final double start = histogram.boundary(i);
+                    merged.spread(start, start + histogram.width, histogram.counts[i]);
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * Adds the given value to this histogram.
+     *
+     * @param value the value.
+     */
+    void add(final double value) {
+        counts[bucket(value)]++;
+        cumulative = null;
+    }
+
+    /**
+     * Returns the (estimated) number of values which fall within the given (inclusive) range.
+     *
+     * @param lowerBound the range lower bound.
+     * @param upperBound the range upper bound.
+     * @return the (estimated) number of values which fall within the given range.
+     */
+    double count(final double lowerBound, final double upperBound) {
+        if (width == 0) {
+            return min >= lowerBound && min <= upperBound ? cumulative()[BUCKETS] : 0;
+        }
+
+        // An integer value v is seen as the [v, v + 1) interval
+        final double from = integral ? Math.ceil(lowerBound) : lowerBound;
+        final double to = integral ? Math.floor(upperBound) + 1 : upperBound;
+        return to > from ? cdf(to) - cdf(from) : 0;
+    }
+
+    /**
+     * Returns the (estimated) number of values which are lower than the given value.
+     *
+     * @param value the value.
+     * @return the (estimated) number of values which are lower than the given value.
+     */
+    double cdf(final double value) {
+        final double [] cumulative = cumulative();
+        final double position = width == 0 ? (value > min ? BUCKETS : 0) : (value - min) / width;
+        if (position <= 0) {
+            return 0;
+        }
+        if (position >= BUCKETS) {
+            return cumulative[BUCKETS];
+        }
+
+        final int bucket = (int) position;
+        return cumulative[bucket] + counts[bucket] * (position - bucket);
+    }
+
+    /**
+     * Returns the lower boundary of the given bucket (or the upper boundary of the last bucket, for
+     * {@link #BUCKETS}).
+     *
+     * @param bucket the bucket index, between 0 and {@link #BUCKETS} (inclusive).
+     * @return the lower boundary of the given bucket.
+     */
+    double boundary(final int bucket) {
+        return min + bucket * width;
+    }
+
+    /**
+     * Returns true if all the values of this histogram are equal (i.e. its buckets have no width).
+     *
+     * @return true if all the values of this histogram are equal.
+     */
+    boolean isSingular() {
+        return width == 0;
+    }
+
+    /**
+     * Returns true if the field values are integers.
+     *
+     * @return true if the field values are integers.
+     */
+    boolean isIntegral() {
+        return integral;
+    }
+
+    /**
+     * Spreads, uniformly, the given number of values over the buckets which overlap the given interval.
+     *
+     * @param from the interval lower bound (inclusive).
+     * @param to the interval upper bound (exclusive).
+     * @param count the number of values.
+     */
+    private void spread(final double from, final double to, final double count) {
+        if (width == 0 || to <= from) {
+            counts[bucket(from)] += count;
+        } else {
+            for (int i = bucket(from); i <= bucket(Math.nextDown(to)); i++) {
+                // Values outside the histogram bounds belong to the first or to the last bucket
+                final double start = i == 0 ? Double.NEGATIVE_INFINITY : boundary(i);
+                final double end = i == BUCKETS - 1 ? Double.POSITIVE_INFINITY : boundary(i + 1);
+                final double overlap = Math.min(to, end) - Math.max(from, start);
+                if (overlap > 0) {
+                    counts[i] += count * overlap / (to - from);
+                }
+            }
+        }
+        cumulative = null;
+    }
+
+    /**
+     * Returns the bucket which contains the given value.
+     *
+     * @param value the value.
+     * @return the bucket which contains the given value.
+     */
+    private int bucket(final double value) {
+        return width == 0 ? 0 : Math.max(0, Math.min((int) ((value - min) / width), BUCKETS - 1));
+    }
+
+    /**
+     * Returns the cumulative counts of the buckets: the i-th entry is the number of values which fall in the
+     * buckets before the i-th bucket.
+     *
+     * @return the cumulative counts of the buckets.
+     */
+    private double [] cumulative() {
+        double [] cumulative = this.cumulative;
+        if (cumulative == null) {
+            cumulative = new double[BUCKETS + 1];
+            for (int i = 0; i < BUCKETS; i++) {
+                cumulative[i + 1] = cumulative[i] + counts[i];
+            }
+            this.cumulative = cumulative;
+        }
+        return cumulative;
+    }
+}
@@ -0,0 +1,165 @@
+package io.sease.solr.qty;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.IntPointField;
+import org.apache.solr.schema.SchemaField;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Adaptive gaps test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class AdaptiveGapTestCase {
+    private QuantityDetectionBQParserPlugin cut;
+    private SolrQueryRequest request;
+    private Optional<IndexStatistics> statistics = Optional.empty();
+    private final List<SchemaField> fields = new ArrayList<>();
+
+    private Directory directory;
+    private DirectoryReader reader;
+
+    @Before
+    public void setUp() throws Exception {
+        final JsonNode configuration = new ObjectMapper().readTree(new File("src/test/resources/adaptive_units.json"));
+        cut = new QuantityDetectionBQParserPlugin() {
+            @Override
+            JsonParser configuration(final ResourceLoader loader) {
+                return configuration.traverse();
+            }
+
+            @Override
+            Optional<IndexStatistics> statistics(final SolrQueryRequest req) {
+                return statistics;
+            }
+        };
+
+        cut.init(mock(NamedList.class));
+        cut.inform(mock(ResourceLoader.class));
+
+        final IndexSchema schema = mock(IndexSchema.class);
+        for (final String name : new String[] {"height", "width"}) {
+            final SchemaField field = new SchemaField(name, new IntPointField(), FieldQueryFactoryTestCase.Properties.INDEXED, null);
+            when(schema.getField(name)).thenReturn(field);
+            fields.add(field);
+        }
+
+        request = mock(SolrQueryRequest.class);
+        when(request.getSchema()).thenReturn(schema);
+
+        // 100 documents, with height and width between 1 and 100
+        directory = new RAMDirectory();
+        try (final IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            for (int value = 1; value <= 100; value++) {
+                final Document document = new Document();
+                document.add(new IntPoint("height", value));
+                document.add(new IntPoint("width", value));
+                writer.addDocument(document);
+            }
+        }
+        reader = DirectoryReader.open(directory);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reader.close();
+        directory.close();
+    }
+
+    /**
+     * If index statistics are not available, the configured gap value is used.
+     */
+    @Test
+    public void staticValueIsUsedWithoutStatistics() throws Exception {
+        final Query expected =
+                new BooleanQuery.Builder()
+                        .add(IntPoint.newExactQuery("height", 50), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newRangeQuery("height", 40, 60), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newExactQuery("width", 50), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newRangeQuery("width", 50, 60), BooleanClause.Occur.SHOULD)
+                        .build();
+
+        assertEquals(expected, query("shelf 50 cm"));
+    }
+
+    /**
+     * With index statistics, the height range is sized for matching 11 values and the width range for
+     * matching the 20% of the documents.
+     */
+    @Test
+    public void gapIsSizedOnTheValueDistribution() throws Exception {
+        statistics = Optional.of(distributions());
+
+        final Query expected =
+                new BooleanQuery.Builder()
+                        .add(IntPoint.newExactQuery("height", 50), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newRangeQuery("height", 45, 55), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newExactQuery("width", 50), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newRangeQuery("width", 50, 69), BooleanClause.Occur.SHOULD)
+                        .build();
+
+        assertEquals(expected, query("shelf 50 cm"));
+    }
+
+    /**
+     * Ranges never go beyond the field extent: if it doesn't contain enough values, the range covers the whole extent.
+     */
+    @Test
+    public void gapIsLimitedToTheFieldExtent() throws Exception {
+        statistics = Optional.of(distributions());
+
+        final Query expected =
+                new BooleanQuery.Builder()
+                        .add(IntPoint.newExactQuery("height", 99), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newRangeQuery("height", 90, 100), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newExactQuery("width", 99), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newRangeQuery("width", 99, 100), BooleanClause.Occur.SHOULD)
+                        .build();
+
+        assertEquals(expected, query("shelf 99 cm"));
+    }
+
+    private Query query(final String qstr) throws Exception {
+        return cut.createParser(qstr, new ModifiableSolrParams(), new ModifiableSolrParams(), request).getQuery();
+    }
+
+    /**
+     * Returns the index statistics, with the (precomputed) distributions of the quantity fields.
+     *
+     * @return the index statistics, with the distributions of the quantity fields.
+     */
+    private IndexStatistics distributions() {
+        final IndexStatistics statistics = IndexStatistics.of(reader);
+        fields.forEach(statistics::compute);
+        return statistics;
+    }
+}
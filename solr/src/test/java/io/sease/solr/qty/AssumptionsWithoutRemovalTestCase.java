@@ -1,5 +1,6 @@
 package io.sease.solr.qty;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.lucene.analysis.util.ResourceLoader;
@@ -35,22 +36,22 @@ public class AssumptionsWithoutRemovalTestCase {
         final JsonNode configuration = new ObjectMapper().readTree(new File("src/test/resources/assumptions.json"));
         q =new QuantityDetectionQParserPlugin() {
             @Override
-            JsonNode configuration(final ResourceLoader loader) {
-                return configuration;
+            JsonParser configuration(final ResourceLoader loader) {
+                return configuration.traverse();
             }
         };
 
         bq = new QuantityDetectionBQParserPlugin() {
             @Override
-            JsonNode configuration(final ResourceLoader loader) {
-                return configuration;
+            JsonParser configuration(final ResourceLoader loader) {
+                return configuration.traverse();
             }
         };
 
         bf = new QuantityDetectionBFParserPlugin() {
             @Override
-            JsonNode configuration(final ResourceLoader loader) {
-                return configuration;
+            JsonParser configuration(final ResourceLoader loader) {
+                return configuration.traverse();
             }
         };
 
@@ -0,0 +1,136 @@
+package io.sease.solr.qty;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.Query;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.IntPointField;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.StrField;
+import org.apache.solr.search.QParser;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bucketed gaps test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class BucketsTestCase {
+    private QuantityDetectionBQParserPlugin cut;
+    private SolrQueryRequest request;
+    private final ModifiableSolrParams params = new ModifiableSolrParams();
+
+    private final SchemaField heightBucket = new SchemaField("height_bucket", new StrField(), FieldQueryFactoryTestCase.Properties.INDEXED, null);
+
+    @Before
+    public void setUp() throws Exception {
+        final JsonNode configuration = new ObjectMapper().readTree(new File("src/test/resources/bucket_units.json"));
+        cut = new QuantityDetectionBQParserPlugin() {
+            @Override
+            JsonParser configuration(final ResourceLoader loader) {
+                return configuration.traverse();
+            }
+        };
+
+        cut.init(mock(NamedList.class));
+        cut.inform(mock(ResourceLoader.class));
+
+        final IndexSchema schema = mock(IndexSchema.class);
+        when(schema.getField("height")).thenReturn(new SchemaField("height", new IntPointField(), FieldQueryFactoryTestCase.Properties.INDEXED, null));
+        when(schema.getField("height_bucket")).thenReturn(heightBucket);
+
+        request = mock(SolrQueryRequest.class);
+        when(request.getSchema()).thenReturn(schema);
+    }
+
+    /**
+     * Ranges of bucketed gaps are replaced by the buckets which cover them.
+     */
+    @Test
+    public void rangesAreReplacedByBuckets() {
+        assertEquals("height:100 height_bucket:(9 10 11)", cut.buildQuery("shelf 100 cm", params));
+        assertEquals("height:95 height_bucket:(8 9 10)", cut.buildQuery("shelf 95 cm", params));
+        assertEquals("capacity:25 capacity_bucket:(1 2)", cut.buildQuery("a 25 lt tank", params));
+    }
+
+    /**
+     * A range within a single bucket is replaced by a single term.
+     */
+    @Test
+    public void singleBucket() {
+        assertEquals("capacity:5 capacity_bucket:0", cut.buildQuery("a 500 cl tank", params));
+    }
+
+    /**
+     * Gaps which are not bucketed still produce range queries.
+     */
+    @Test
+    public void notBucketedGaps() {
+        assertEquals("width:100 width:[90 TO 110]", cut.buildQuery("shelf 100 mm", params));
+    }
+
+    /**
+     * The native query builder collapses the buckets of a field in a single set query.
+     */
+    @Test
+    public void nativeQuery() throws Exception {
+        final QParser parser = cut.createParser("shelf 100 cm or 2 m", new ModifiableSolrParams(), params, request);
+        final Query expected =
+                new BooleanQuery.Builder()
+                        .add(IntPoint.newSetQuery("height", 100, 200), BooleanClause.Occur.SHOULD)
+                        .add(
+                                heightBucket.getType().getSetQuery(parser, heightBucket, asList("9", "10", "11", "19", "20", "21")),
+                                BooleanClause.Occur.SHOULD)
+                        .build();
+
+        assertEquals(expected, parser.getQuery());
+    }
+
+    /**
+     * At index time, the bucket of each normalized value is written in the companion bucket field.
+     */
+    @Test
+    public void bucketsAreIndexed() throws Exception {
+        final NamedList<String> args = new NamedList<>();
+        args.add(QuantityNormalizationUpdateProcessorFactory.UNITS_PARAM_NAME, "bucket_units.json");
+
+        final ResourceLoader loader = mock(ResourceLoader.class);
+        when(loader.openResource("bucket_units.json")).thenReturn(new FileInputStream("src/test/resources/bucket_units.json"));
+
+        final QuantityNormalizationUpdateProcessorFactory factory = new QuantityNormalizationUpdateProcessorFactory();
+        factory.init(args);
+        factory.load(loader);
+
+        final SolrInputDocument document = new SolrInputDocument();
+        document.addField("height", "1 m");
+        document.addField("height", "125 cm");
+        document.addField("capacity", "250cl");
+        document.addField("width", "100 mm");
+        factory.normalize(document);
+
+        assertEquals(asList(100, 125), document.getFieldValues("height"));
+        assertEquals(asList(10L, 12L), document.getFieldValues("height_bucket"));
+        assertEquals(0L, document.getFieldValue("capacity_bucket"));
+        assertNull(document.getFieldValue("width_bucket"));
+    }
+}
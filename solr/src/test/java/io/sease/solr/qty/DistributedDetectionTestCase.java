@@ -0,0 +1,243 @@
+package io.sease.solr.qty;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.lucene.search.Query;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.apache.solr.handler.component.ResponseBuilder;
+import org.apache.solr.handler.component.SearchComponent;
+import org.apache.solr.handler.component.ShardRequest;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.schema.FloatPointField;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.SyntaxError;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.HashMap;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Distributed detection (i.e. {@link QuantityDetectionComponent}) test case.
+ * The coordinator and the shard are simulated with two instances of each detector, sharing the same configuration.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class DistributedDetectionTestCase {
+    private QuantityDetectionQParserPlugin coordinatorQ;
+    private QuantityDetectionQParserPlugin shardQ;
+    private QuantityDetectionBQParserPlugin coordinatorBQ;
+    private QuantityDetectionBQParserPlugin shardBQ;
+    private final QuantityDetectionComponent component = new QuantityDetectionComponent();
+
+    private ResponseBuilder rb;
+    private final ModifiableSolrParams params = new ModifiableSolrParams();
+
+    @Before
+    public void setUp() throws Exception {
+        final JsonNode configuration = new ObjectMapper().readTree(new File("src/test/resources/assumptions.json"));
+        coordinatorQ = q(configuration);
+        shardQ = q(configuration);
+        coordinatorBQ = bq(configuration);
+        shardBQ = bq(configuration);
+
+        final SolrQueryRequest request = mock(SolrQueryRequest.class);
+        when(request.getContext()).thenReturn(new HashMap<>());
+        when(request.getParams()).thenReturn(params);
+
+        rb = new ResponseBuilder(request, new SolrQueryResponse(), Collections.<SearchComponent>emptyList());
+        rb.shards = new String[] {"shard1", "shard2"};
+
+        SolrRequestInfo.setRequestInfo(new SolrRequestInfo(request, rb.rsp));
+        SolrRequestInfo.getRequestInfo().setResponseBuilder(rb);
+    }
+
+    @After
+    public void tearDown() {
+        SolrRequestInfo.clearRequestInfo();
+    }
+
+    /**
+     * The quantities detected on the coordinator are replayed, and not detected again, on the shards.
+     */
+    @Test
+    public void detectionIsForwardedToShards() {
+        asList("fridge 0.30", "a fridge 1898 with 0.5 capacity", "fridge with no quantities")
+                .forEach(qstr -> {
+                    final String q = coordinatorQ.buildQuery(qstr, params);
+                    final String bq = coordinatorBQ.buildQuery(qstr, params);
+
+                    final ModifiableSolrParams shardParams = shardParams();
+                    assertEquals(q, shardQ.buildQuery(qstr, shardParams));
+                    assertEquals(bq, shardBQ.buildQuery(qstr, shardParams));
+                });
+
+        assertEquals("fridge", coordinatorQ.buildQuery("fridge 0.30", params));
+        // queries without digits are not detected, so there's nothing to forward
+        assertEquals(2, shardQ.metrics.forwardedDetections.getCount());
+        assertEquals(2, shardBQ.metrics.forwardedDetections.getCount());
+    }
+
+    /**
+     * Detectors with different configurations (e.g. a q and a bq parser, each one with its own units) must replay
+     * only their own transcripts.
+     */
+    @Test
+    public void detectorsWithDifferentConfigurations() throws Exception {
+        final ObjectMapper mapper = new ObjectMapper();
+        final JsonNode qConfiguration = mapper.readTree(new File("src/test/resources/q_units.json"));
+        final JsonNode bqConfiguration = mapper.readTree(new File("src/test/resources/bq_units.json"));
+        coordinatorQ = q(qConfiguration);
+        shardQ = q(qConfiguration);
+        coordinatorBQ = bq(bqConfiguration);
+        shardBQ = bq(bqConfiguration);
+        final QuantityDetectionBQParserPlugin localBQ = bq(bqConfiguration);
+
+        asList("a 100 lt bottle", "a 220 v 50 w lamp with 2 lt and 30 cm").forEach(qstr -> {
+            final String q = coordinatorQ.buildQuery(qstr, params);
+            final String bq = coordinatorBQ.buildQuery(qstr, params);
+
+            final ModifiableSolrParams shardParams = shardParams();
+            assertEquals(q, shardQ.buildQuery(qstr, shardParams));
+            assertEquals(bq, shardBQ.buildQuery(qstr, shardParams));
+            assertEquals(localBQ.buildQuery(qstr, new ModifiableSolrParams()), bq);
+        });
+        assertEquals(4, shardParams().getParams(QuantityDetectionComponent.DETECTED_PARAM_NAME).length);
+        assertEquals(2, shardQ.metrics.forwardedDetections.getCount());
+        assertEquals(2, shardBQ.metrics.forwardedDetections.getCount());
+
+        // Same detector, different units: the transcripts of the coordinator must be ignored
+        final QuantityDetectionBQParserPlugin misconfigured = bq(qConfiguration);
+        misconfigured.buildQuery("a 100 lt bottle", shardParams());
+        assertEquals(0, misconfigured.metrics.forwardedDetections.getCount());
+    }
+
+    /**
+     * The native queries built by the parsers on the shards, which replay the forwarded transcripts, must be the same
+     * of the coordinator.
+     */
+    @Test
+    public void nativeQueriesAreReplayedOnShards() throws Exception {
+        final IndexSchema schema = mock(IndexSchema.class);
+        for (final String name : new String[] {"height", "capacity", "voltage"}) {
+            when(schema.getField(name)).thenReturn(
+                    new SchemaField(name, new FloatPointField(), FieldQueryFactoryTestCase.Properties.INDEXED, null));
+        }
+        final SolrQueryRequest request = mock(SolrQueryRequest.class);
+        when(request.getSchema()).thenReturn(schema);
+
+        asList("fridge 0.30", "a fridge 1898 with 0.5 capacity").forEach(qstr -> {
+            try {
+                final Query bq = coordinatorBQ.createParser(qstr, new ModifiableSolrParams(), params, request).getQuery();
+                assertEquals(bq, shardBQ.createParser(qstr, new ModifiableSolrParams(), shardParams(), request).getQuery());
+            } catch (final SyntaxError exception) {
+                throw new AssertionError(exception);
+            }
+        });
+        assertEquals(2, shardBQ.metrics.forwardedDetections.getCount());
+    }
+
+    /**
+     * Query strings without quantities must not be recorded, nor forwarded, by the coordinator.
+     */
+    @Test
+    public void queriesWithoutQuantitiesAreNotForwarded() {
+        coordinatorQ.buildQuery("fridge with no quantities", params);
+        coordinatorBQ.buildQuery("fridge with no quantities", params);
+
+        assertNull(shardParams().get(QuantityDetectionComponent.DETECTED_PARAM_NAME));
+    }
+
+    /**
+     * Shards detect the quantities on query strings which haven't been detected on the coordinator.
+     */
+    @Test
+    public void unknownQueryStrings() {
+        coordinatorBQ.buildQuery("fridge 0.30", params);
+
+        assertEquals("capacity:0.5", shardBQ.buildQuery("fridge 0.50", shardParams()));
+        assertEquals(0, shardBQ.metrics.forwardedDetections.getCount());
+    }
+
+    /**
+     * Forwarded detections are considered only on shard requests.
+     */
+    @Test
+    public void forwardedDetectionsAreIgnoredOutsideShardRequests() {
+        coordinatorBQ.buildQuery("fridge 0.30", params);
+
+        final ModifiableSolrParams shardParams = shardParams();
+        shardParams.remove(ShardParams.IS_SHARD);
+        assertEquals("capacity:0.3", shardBQ.buildQuery("fridge 0.30", shardParams));
+        assertEquals(0, shardBQ.metrics.forwardedDetections.getCount());
+    }
+
+    /**
+     * Detections are not recorded on shard and non distributed requests.
+     */
+    @Test
+    public void detectionsAreRecordedOnlyOnTheCoordinator() {
+        rb.shards = null;
+        coordinatorBQ.buildQuery("fridge 0.30", params);
+
+        assertNull(shardParams().get(QuantityDetectionComponent.DETECTED_PARAM_NAME));
+    }
+
+    /**
+     * Returns the parameters of a shard request, as they are modified by the {@link QuantityDetectionComponent}.
+     *
+     * @return the parameters of a shard request.
+     */
+    private ModifiableSolrParams shardParams() {
+        final ShardRequest request = new ShardRequest();
+        request.params = new ModifiableSolrParams(params);
+        component.modifyRequest(rb, component, request);
+        request.params.set(ShardParams.IS_SHARD, true);
+        return request.params;
+    }
+
+    private QuantityDetectionQParserPlugin q(final JsonNode configuration) throws Exception {
+        final QuantityDetectionQParserPlugin plugin = new QuantityDetectionQParserPlugin() {
+            @Override
+            JsonParser configuration(final ResourceLoader loader) {
+                return configuration.traverse();
+            }
+        };
+
+        final NamedList args = new SimpleOrderedMap();
+        args.add(QuantityDetectionQParserPlugin.REMOVE_ORPHAN_AMOUNTS_PARAM_NAME, true);
+        plugin.init(args);
+        plugin.inform(mock(ResourceLoader.class));
+        return plugin;
+    }
+
+    private QuantityDetectionBQParserPlugin bq(final JsonNode configuration) throws Exception {
+        final QuantityDetectionBQParserPlugin plugin = new QuantityDetectionBQParserPlugin() {
+            @Override
+            JsonParser configuration(final ResourceLoader loader) {
+                return configuration.traverse();
+            }
+        };
+
+        plugin.init(mock(NamedList.class));
+        plugin.inform(mock(ResourceLoader.class));
+        return plugin;
+    }
+}
@@ -1,5 +1,6 @@
 package io.sease.solr.qty;
 
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.lucene.analysis.util.ResourceLoader;
@@ -32,15 +33,15 @@ public class EquivalencesTestCase {
 
         bq = new QuantityDetectionBQParserPlugin() {
             @Override
-            JsonNode configuration(final ResourceLoader loader) {
-                return configuration;
+            JsonParser configuration(final ResourceLoader loader) {
+                return configuration.traverse();
             }
         };
 
         bf = new QuantityDetectionBFParserPlugin() {
             @Override
-            JsonNode configuration(final ResourceLoader loader) {
-                return configuration;
+            JsonParser configuration(final ResourceLoader loader) {
+                return configuration.traverse();
             }
         };
 
@@ -0,0 +1,158 @@
+package io.sease.solr.qty;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoublePoint;
+import org.apache.lucene.document.FloatPoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.solr.schema.DoublePointField;
+import org.apache.solr.schema.FieldProperties;
+import org.apache.solr.schema.FieldType;
+import org.apache.solr.schema.FloatPointField;
+import org.apache.solr.schema.IntPointField;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.StrField;
+import org.junit.Test;
+
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link FieldQueryFactory} test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class FieldQueryFactoryTestCase {
+    @Test
+    public void indexedPointFieldWithoutDocValues() {
+        final FieldQueryFactory cut = FieldQueryFactory.of(field("height", new IntPointField(), Properties.INDEXED));
+
+        assertEquals(IntPoint.newExactQuery("height", 100), cut.exact(null, 100));
+        assertEquals(IntPoint.newRangeQuery("height", 90, 110), cut.range(null, 90, Optional.of(110)));
+    }
+
+    @Test
+    public void indexedPointFieldWithDocValues() {
+        final FieldQueryFactory cut = FieldQueryFactory.of(field("capacity", new FloatPointField(), Properties.INDEXED | Properties.DOC_VALUES));
+
+        assertEquals(
+                new IndexOrDocValuesQuery(
+                        FloatPoint.newExactQuery("capacity", 33.5f),
+                        NumericDocValuesField.newSlowExactQuery("capacity", Float.floatToIntBits(33.5f))),
+                cut.exact(null, 33.5f));
+        assertEquals(
+                new IndexOrDocValuesQuery(
+                        FloatPoint.newRangeQuery("capacity", 23.5f, Float.POSITIVE_INFINITY),
+                        NumericDocValuesField.newSlowRangeQuery(
+                                "capacity",
+                                Float.floatToIntBits(23.5f),
+                                Float.floatToIntBits(Float.POSITIVE_INFINITY))),
+                cut.range(null, 23.5f, Optional.empty()));
+    }
+
+    @Test
+    public void multiValuedPointFieldWithDocValuesOnly() {
+        final FieldQueryFactory cut = FieldQueryFactory.of(field("height", new IntPointField(), Properties.DOC_VALUES | Properties.MULTIVALUED));
+
+        assertEquals(SortedNumericDocValuesField.newSlowExactQuery("height", 100), cut.exact(null, 100));
+        assertEquals(SortedNumericDocValuesField.newSlowRangeQuery("height", 90, 110), cut.range(null, 90, Optional.of(110)));
+    }
+
+    @Test
+    public void decimalAmountsOnIntegerFields() {
+        final FieldQueryFactory cut = FieldQueryFactory.of(field("height", new IntPointField(), Properties.INDEXED));
+
+        assertEquals(new MatchNoDocsQuery(), cut.exact(null, 100.7f));
+        assertEquals(IntPoint.newRangeQuery("height", 91, 110), cut.range(null, 90.7f, Optional.of(110.7f)));
+    }
+
+    @Test
+    public void multipleAmountsAreCollapsedInASetQuery() {
+        final FieldQueryFactory cut = FieldQueryFactory.of(field("capacity", new FloatPointField(), Properties.INDEXED | Properties.DOC_VALUES));
+
+        final Query query = cut.exact(null, asList(33, 50, 75f));
+        assertTrue(query instanceof IndexOrDocValuesQuery);
+        assertEquals(FloatPoint.newSetQuery("capacity", 33f, 50f, 75f), ((IndexOrDocValuesQuery) query).getIndexQuery());
+        assertEquals(
+                cut.docValuesSetQuery(
+                        Float.floatToIntBits(33f),
+                        Float.floatToIntBits(50f),
+                        Float.floatToIntBits(75f)),
+                ((IndexOrDocValuesQuery) query).getRandomAccessQuery());
+    }
+
+    @Test
+    public void negativeAmountsOnSingleValuedDocValues() throws Exception {
+        final FieldQueryFactory cut = FieldQueryFactory.of(field("capacity", new FloatPointField(), Properties.DOC_VALUES));
+
+        final Directory directory = new RAMDirectory();
+        try (final IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            for (final float capacity : new float[] {-33.5f, -1.5f, 0f, 1.5f, 33.5f}) {
+                final Document document = new Document();
+                // Solr stores single-valued float doc values as raw bits
+                document.add(new NumericDocValuesField("capacity", Float.floatToIntBits(capacity)));
+                writer.addDocument(document);
+            }
+        }
+
+        try (final DirectoryReader reader = DirectoryReader.open(directory)) {
+            final IndexSearcher searcher = new IndexSearcher(reader);
+            assertEquals(1, searcher.count(cut.exact(null, -1.5f)));
+            assertEquals(2, searcher.count(cut.exact(null, asList(-33.5f, 1.5f))));
+            assertEquals(2, searcher.count(cut.range(null, -40f, Optional.of(-1f))));
+            assertEquals(3, searcher.count(cut.range(null, -2f, Optional.of(2f))));
+            assertEquals(4, searcher.count(cut.range(null, -1.5f, Optional.empty())));
+            assertEquals(2, searcher.count(cut.range(null, 1f, Optional.empty())));
+        }
+    }
+
+    @Test
+    public void decimalAmountsAreSkippedInIntegerSetQueries() {
+        final FieldQueryFactory cut = FieldQueryFactory.of(field("height", new IntPointField(), Properties.INDEXED));
+
+        assertEquals(IntPoint.newSetQuery("height", 100, 120), cut.exact(null, asList(100, 100.5f, 120)));
+        assertEquals(new MatchNoDocsQuery(), cut.exact(null, asList(100.5f, 120.5f)));
+    }
+
+    @Test
+    public void doubleFieldsUseTheDecimalRepresentation() {
+        final FieldQueryFactory cut = FieldQueryFactory.of(field("price", new DoublePointField(), Properties.INDEXED));
+
+        assertEquals(DoublePoint.newExactQuery("price", 100.7d), cut.exact(null, 100.7f));
+    }
+
+    @Test
+    public void nonPointFieldsAreManagedByTheFieldType() {
+        assertSame(
+                FieldQueryFactory.FieldTypeQueryFactory.class,
+                FieldQueryFactory.of(field("capacity", new StrField(), Properties.INDEXED)).getClass());
+    }
+
+    private SchemaField field(final String name, final FieldType type, final int properties) {
+        return new SchemaField(name, type, properties, null);
+    }
+
+    /**
+     * Exposes the (protected) field properties flags.
+     */
+    static class Properties extends FieldProperties {
+        final static int INDEXED = FieldProperties.INDEXED;
+        final static int DOC_VALUES = FieldProperties.DOC_VALUES;
+        final static int MULTIVALUED = FieldProperties.MULTIVALUED;
+    }
+}
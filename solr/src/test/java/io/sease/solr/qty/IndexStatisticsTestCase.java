@@ -0,0 +1,167 @@
+package io.sease.solr.qty;
+
+import io.sease.solr.qty.domain.GapMode;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.solr.schema.FloatPointField;
+import org.apache.solr.schema.IntPointField;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.schema.StrField;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * {@link IndexStatistics} test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class IndexStatisticsTestCase {
+    private final SchemaField height =
+            new SchemaField("height", new IntPointField(), FieldQueryFactoryTestCase.Properties.INDEXED, null);
+    private final SchemaField capacity =
+            new SchemaField("capacity", new FloatPointField(), FieldQueryFactoryTestCase.Properties.DOC_VALUES, null);
+    private final SchemaField weight =
+            new SchemaField(
+                    "weight",
+                    new FloatPointField(),
+                    FieldQueryFactoryTestCase.Properties.DOC_VALUES | FieldQueryFactoryTestCase.Properties.MULTIVALUED,
+                    null);
+
+    private Directory directory;
+    private DirectoryReader reader;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = new RAMDirectory();
+        try (final IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+            writer.addDocument(document(120, 1.5f, 10f, 3f));
+            writer.addDocument(document(95, 0.5f));
+            writer.commit();
+
+            // Second segment
+            writer.addDocument(document(300, 2.25f, 7f));
+            writer.addDocument(new Document());
+            writer.commit();
+        }
+        reader = DirectoryReader.open(directory);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        reader.close();
+        directory.close();
+    }
+
+    @Test
+    public void pointsStatistics() {
+        final FieldStatistics statistics = IndexStatistics.of(reader).field(height).get();
+
+        assertEquals(95, statistics.min().get());
+        assertEquals(300, statistics.max().get());
+        assertEquals(3, statistics.docCount());
+        assertTrue(statistics.contains(100));
+        assertFalse(statistics.contains(500));
+        assertTrue(statistics.intersects(290, Optional.empty()));
+        assertFalse(statistics.intersects(10, Optional.of(90)));
+    }
+
+    @Test
+    public void docValuesStatistics() {
+        final FieldStatistics statistics = IndexStatistics.of(reader).compute(capacity).get();
+
+        assertEquals(0.5f, statistics.min().get());
+        assertEquals(2.25f, statistics.max().get());
+        assertEquals(3, statistics.docCount());
+    }
+
+    @Test
+    public void multivaluedDocValuesStatistics() {
+        final FieldStatistics statistics = IndexStatistics.of(reader).compute(weight).get();
+
+        assertEquals(3f, statistics.min().get());
+        assertEquals(10f, statistics.max().get());
+        assertEquals(2, statistics.docCount());
+    }
+
+    /**
+     * Bounds never visit the field values: they are read from the points metadata, while distributions (and the
+     * bounds of fields without points) are available only once they have been computed.
+     */
+    @Test
+    public void distributionsAreComputedOnlyOnDemand() {
+        final IndexStatistics statistics = IndexStatistics.of(reader);
+
+        assertFalse(statistics.distribution(height).isPresent());
+        assertFalse(statistics.field(height).get().gap(GapMode.PIVOT, 100, 1).isPresent());
+        assertFalse(statistics.field(capacity).isPresent());
+
+        statistics.compute(height);
+        statistics.compute(capacity);
+
+        assertTrue(statistics.distribution(height).get().gap(GapMode.PIVOT, 100, 1).isPresent());
+        assertEquals(0.5f, statistics.field(capacity).get().min().get());
+    }
+
+    /**
+     * The histograms of the segments are merged in a single distribution, which sizes gaps on all values.
+     */
+    @Test
+    public void segmentHistogramsAreMerged() {
+        final FieldStatistics statistics = IndexStatistics.of(reader).compute(height).get();
+
+        assertEquals(3, statistics.count(0, 1000), 0.001);
+        assertEquals(2, statistics.count(95, 120), 0.1);
+        assertEquals(0, statistics.count(130, 290), 0.1);
+        assertEquals(25, statistics.gap(GapMode.MIN, 95, 2).get().intValue(), 2);
+        assertEquals(205, statistics.gap(GapMode.MIN, 95, 3).get().intValue(), 2);
+    }
+
+    @Test
+    public void fieldWithoutValues() {
+        final SchemaField depth = new SchemaField("depth", new IntPointField(), FieldQueryFactoryTestCase.Properties.INDEXED, null);
+        final FieldStatistics statistics = IndexStatistics.of(reader).field(depth).get();
+
+        assertTrue(statistics.isEmpty());
+        assertFalse(statistics.contains(100));
+        assertFalse(statistics.intersects(0, Optional.empty()));
+    }
+
+    @Test
+    public void nonPointField() {
+        final SchemaField name = new SchemaField("name", new StrField(), FieldQueryFactoryTestCase.Properties.INDEXED, null);
+        assertFalse(IndexStatistics.of(reader).field(name).isPresent());
+    }
+
+    @Test
+    public void statisticsAreCachedByReader() throws IOException {
+        assertSame(IndexStatistics.of(reader), IndexStatistics.of(reader));
+    }
+
+    private Document document(final int height, final float capacity, final float ... weights) {
+        final Document document = new Document();
+        document.add(new IntPoint("height", height));
+        document.add(new NumericDocValuesField("capacity", Float.floatToIntBits(capacity)));
+        for (final float weight : weights) {
+            document.add(new SortedNumericDocValuesField("weight", NumericUtils.floatToSortableInt(weight)));
+        }
+        return document;
+    }
+}
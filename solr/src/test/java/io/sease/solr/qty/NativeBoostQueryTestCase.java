@@ -0,0 +1,168 @@
+package io.sease.solr.qty;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MatchNoDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.IntPointField;
+import org.apache.solr.schema.SchemaField;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Native boost query (i.e. {@link QuantityDetectionBQParserPlugin#createParser}) test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class NativeBoostQueryTestCase {
+    private QuantityDetectionBQParserPlugin cut;
+    private SolrQueryRequest request;
+    private final ModifiableSolrParams params = new ModifiableSolrParams();
+    private Optional<IndexStatistics> statistics = Optional.empty();
+
+    @Before
+    public void setUp() throws Exception {
+        final JsonNode configuration = new ObjectMapper().readTree(new File("src/test/resources/multifields.json"));
+        cut = new QuantityDetectionBQParserPlugin() {
+            @Override
+            JsonParser configuration(final ResourceLoader loader) {
+                return configuration.traverse();
+            }
+
+            @Override
+            Optional<IndexStatistics> statistics(final SolrQueryRequest req) {
+                return statistics;
+            }
+        };
+
+        final NamedList<Object> args = new NamedList<>();
+        args.add(QuantityDetectionBQParserPlugin.MAX_CLAUSES_PARAM_NAME, 6);
+        cut.init(args);
+        cut.inform(mock(ResourceLoader.class));
+
+        final IndexSchema schema = mock(IndexSchema.class);
+        for (final String name : new String[] {"height", "width", "depth"}) {
+            final SchemaField field = new SchemaField(name, new IntPointField(), FieldQueryFactoryTestCase.Properties.INDEXED, null);
+            when(schema.getField(name)).thenReturn(field);
+        }
+
+        request = mock(SolrQueryRequest.class);
+        when(request.getSchema()).thenReturn(schema);
+    }
+
+    @Test
+    public void noQuantities() throws Exception {
+        assertEquals(new MatchAllDocsQuery(), query("There's no quantity here"));
+    }
+
+    @Test
+    public void amountsAreCollapsedAndOverlappingRangesAreMerged() throws Exception {
+        final Query expected =
+                new BooleanQuery.Builder()
+                        .add(new BoostQuery(IntPoint.newSetQuery("height", 100, 120), 1.1f), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newRangeQuery("height", 85, 135), BooleanClause.Occur.SHOULD)
+                        .add(new BoostQuery(IntPoint.newSetQuery("width", 100, 120), 0.2f), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newRangeQuery("width", 100, 110), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newRangeQuery("width", 120, 130), BooleanClause.Occur.SHOULD)
+                        .add(new BoostQuery(IntPoint.newSetQuery("depth", 100, 120), 10f), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newRangeQuery("depth", 90, 100), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newRangeQuery("depth", 110, 120), BooleanClause.Occur.SHOULD)
+                        .build();
+
+        final NamedList<Object> args = new NamedList<>();
+        args.add(QuantityDetectionBQParserPlugin.MAX_CLAUSES_PARAM_NAME, 10);
+        cut.init(args);
+
+        assertEquals(expected, query("shelf 100cm or 1 m or 120 centimeters"));
+    }
+
+    @Test
+    public void requestOverrides() throws Exception {
+        params.set("qty.gap.height", "5");
+        params.set("qty.boost.cm", "2");
+
+        final Query expected =
+                new BooleanQuery.Builder()
+                        .add(new BoostQuery(IntPoint.newExactQuery("height", 100), 2f), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newRangeQuery("height", 95, 105), BooleanClause.Occur.SHOULD)
+                        .add(new BoostQuery(IntPoint.newExactQuery("width", 100), 2f), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newRangeQuery("width", 100, 110), BooleanClause.Occur.SHOULD)
+                        .add(new BoostQuery(IntPoint.newExactQuery("depth", 100), 2f), BooleanClause.Occur.SHOULD)
+                        .add(IntPoint.newRangeQuery("depth", 90, 100), BooleanClause.Occur.SHOULD)
+                        .build();
+
+        assertEquals(expected, query("shelf 100cm"));
+    }
+
+    @Test
+    public void tooManyClauses() throws Exception {
+        try {
+            query("shelf 100cm or 200 cm");
+            fail();
+        } catch (final SolrException expected) {
+            assertEquals(SolrException.ErrorCode.BAD_REQUEST.code, expected.code());
+            assertEquals(1, cut.metrics.tooManyClausesRequests.getCount());
+        }
+    }
+
+    @Test
+    public void clausesOutsideTheFieldBoundsArePruned() throws Exception {
+        try (final Directory directory = new RAMDirectory()) {
+            try (final IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                for (final int [] values : new int[][] {{95, 200}, {105, 300}}) {
+                    final Document document = new Document();
+                    document.add(new IntPoint("height", values[0]));
+                    document.add(new IntPoint("depth", values[1]));
+                    writer.addDocument(document);
+                }
+            }
+
+            try (final DirectoryReader reader = DirectoryReader.open(directory)) {
+                statistics = Optional.of(IndexStatistics.of(reader));
+
+                final Query expected =
+                        new BooleanQuery.Builder()
+                                .add(new BoostQuery(IntPoint.newExactQuery("height", 100), 1.1f), BooleanClause.Occur.SHOULD)
+                                .add(IntPoint.newRangeQuery("height", 95, 105), BooleanClause.Occur.SHOULD)
+                                .build();
+
+                assertEquals(expected, query("shelf 100cm"));
+                assertEquals(4, cut.metrics.prunedClauses.getCount());
+
+                assertEquals(new MatchNoDocsQuery(), query("shelf 500cm"));
+                assertEquals(10, cut.metrics.prunedClauses.getCount());
+            }
+        }
+    }
+
+    private Query query(final String qstr) throws Exception {
+        return cut.createParser(qstr, new ModifiableSolrParams(), params, request).getQuery();
+    }
+}
@@ -0,0 +1,92 @@
+package io.sease.solr.qty;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Units profiles test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class ProfilesTestCase {
+    private QuantityDetectionQParserPlugin cut;
+
+    @Before
+    public void setUp() throws Exception {
+        cut = new QuantityDetectionQParserPlugin() {
+            @Override
+            JsonParser configuration(final ResourceLoader loader, final String resource) throws IOException {
+                final String file = resource.equals(QuantityDetector.DEFAULT_UNITS) ? "q_units.json" : resource;
+                return new ObjectMapper().readTree(new File("src/test/resources/" + file)).traverse();
+            }
+        };
+
+        final NamedList<Object> profiles = new NamedList<>();
+        profiles.add("hardware", "profile_units.json");
+
+        final NamedList<Object> args = new NamedList<>();
+        args.add(QuantityDetector.PROFILES_PARAM_NAME, profiles);
+
+        cut.init(args);
+        cut.inform(mock(ResourceLoader.class));
+    }
+
+    /**
+     * Requests without the profile parameter must use the default configuration.
+     */
+    @Test
+    public void defaultProfile() {
+        final ModifiableSolrParams params = new ModifiableSolrParams();
+        assertEquals("a  bottle", cut.buildQuery("A 100 lt bottle", params));
+        assertEquals("a 100 mm screw", cut.buildQuery("A 100 mm screw", params));
+    }
+
+    /**
+     * The profile parameter must select the corresponding configuration.
+     */
+    @Test
+    public void selectedProfile() {
+        final ModifiableSolrParams params = new ModifiableSolrParams();
+        params.set(QuantityDetector.PROFILE_PARAM_NAME, "hardware");
+
+        assertEquals("a 100 lt bottle", cut.buildQuery("A 100 lt bottle", params));
+        assertEquals("a  screw", cut.buildQuery("A 100 mm screw", params));
+        assertEquals(1, cut.units().stream().filter(unit -> unit.name().equals("mm")).count());
+    }
+
+    /**
+     * An unknown profile must be rejected.
+     */
+    @Test(expected = SolrException.class)
+    public void unknownProfile() {
+        final ModifiableSolrParams params = new ModifiableSolrParams();
+        params.set(QuantityDetector.PROFILE_PARAM_NAME, "fashion");
+
+        cut.buildQuery("A 100 lt bottle", params);
+    }
+
+    /**
+     * Detections forwarded to the shards must be keyed by profile.
+     */
+    @Test
+    public void transcriptKeys() throws Exception {
+        final UnitDictionary dictionary = UnitDictionary.load(new ObjectMapper().readTree(new File("src/test/resources/q_units.json")).traverse());
+        assertNotEquals(
+                QuantityDetectionComponent.key(cut.name, dictionary, "100 lt", QuantityDetector.DEFAULT_PROFILE, '.'),
+                QuantityDetectionComponent.key(cut.name, dictionary, "100 lt", "hardware", '.'));
+    }
+}
@@ -1,6 +1,6 @@
 package io.sease.solr.qty;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.lucene.analysis.util.ResourceLoader;
 import org.apache.solr.common.params.ModifiableSolrParams;
@@ -35,8 +35,8 @@ public class QuantityDetectionBFParserTestCase {
     public void setUp() throws Exception {
         cut = new QuantityDetectionBFParserPlugin() {
             @Override
-            JsonNode configuration(final ResourceLoader loader) throws IOException {
-                return new ObjectMapper().readTree(new File("src/test/resources/bf_units.json"));
+            JsonParser configuration(final ResourceLoader loader) throws IOException {
+                return new ObjectMapper().readTree(new File("src/test/resources/bf_units.json")).traverse();
             }
         };
 
@@ -67,6 +67,7 @@ public class QuantityDetectionBFParserTestCase {
         };
 
         stream(noQuantityQueries).forEach(query -> assertEquals("1", cut.buildQuery(query, params)));
+        assertEquals(noQuantityQueries.length, cut.metrics.fastPathRequests.getCount());
     }
 
     @Test
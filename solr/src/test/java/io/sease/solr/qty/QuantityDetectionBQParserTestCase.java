@@ -1,6 +1,6 @@
 package io.sease.solr.qty;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.lucene.analysis.util.ResourceLoader;
 import org.apache.solr.common.params.ModifiableSolrParams;
@@ -35,8 +35,8 @@ public class QuantityDetectionBQParserTestCase {
     public void setUp() throws Exception {
         cut = new QuantityDetectionBQParserPlugin() {
             @Override
-            JsonNode configuration(final ResourceLoader loader) throws IOException {
-                return new ObjectMapper().readTree(new File("src/test/resources/bq_units.json"));
+            JsonParser configuration(final ResourceLoader loader) throws IOException {
+                return new ObjectMapper().readTree(new File("src/test/resources/bq_units.json")).traverse();
             }
         };
 
@@ -65,6 +65,23 @@ public class QuantityDetectionBQParserTestCase {
         };
 
         stream(noQuantityQueries).forEach(q -> assertEquals("*:*", cut.buildQuery(q, params)));
+        assertEquals(noQuantityQueries.length, cut.metrics.fastPathRequests.getCount());
+    }
+
+    /**
+     * The requests of an incremental detection session must build the same queries of standalone requests.
+     */
+    @Test
+    public void incrementalSession() {
+        final ModifiableSolrParams session = new ModifiableSolrParams();
+        session.set(QuantityDetector.SESSION_PARAM_NAME, "a1b2");
+
+        final String qstr = "A 100 cm shelf, 3 lt";
+        for (int i = 1; i <= qstr.length(); i++) {
+            assertEquals(cut.buildQuery(qstr.substring(0, i), params), cut.buildQuery(qstr.substring(0, i), session));
+        }
+        // the first two prefixes ("A" and "A ") don't contain any digit, so they don't reach the session
+        assertEquals(qstr.length() - 2, cut.metrics.incrementalDetections.getCount());
     }
 
     @Test
@@ -83,6 +100,20 @@ public class QuantityDetectionBQParserTestCase {
                                     cut.buildQuery(q, params)));
     }
 
+    /**
+     * Amounts must be read using the decimal separator of the configured locale.
+     */
+    @Test
+    public void localeDecimalSeparator() {
+        assertEquals("height:100.5 height:[90.5 TO 110.5]", cut.buildQuery("A 100.5 cm quantity", params));
+
+        final NamedList<Object> args = new NamedList<>();
+        args.add(QuantityDetector.LOCALE_PARAM_NAME, "it-IT");
+        cut.init(args);
+
+        assertEquals("height:100.5 height:[90.5 TO 110.5]", cut.buildQuery("A 100,5 cm quantity", params));
+    }
+
     @Test
     public void quantityWithBoostAndNoGap() {
         asList(
@@ -110,6 +141,23 @@ public class QuantityDetectionBQParserTestCase {
                             cut.buildQuery(q, params)));
     }
 
+    /**
+     * Gaps and boosts can be overridden per request, by field or by unit name, without changing the configuration.
+     */
+    @Test
+    public void requestOverrides() {
+        final ModifiableSolrParams overrides = new ModifiableSolrParams();
+        overrides.set("qty.gap.wattage", "5");
+        overrides.set("qty.boost.w", "2");
+        assertEquals("wattage:100^2.0 wattage:[95 TO 105]", cut.buildQuery("100 w", overrides));
+
+        overrides.set("qty.boost.wattage", "3");
+        overrides.set("qty.gap.cm", "2.5");
+        assertEquals("height:10 height:[7.5 TO 12.5] wattage:100^3.0 wattage:[95 TO 105]", cut.buildQuery("100 w 10 cm", overrides));
+
+        assertEquals("wattage:100^1.3 wattage:[90 TO 110]", cut.buildQuery("100 w", params));
+    }
+
     @Test
     public void multipleQuantitiesMixedWithBoosts() {
         final Map<String, String> data = new HashMap<>();
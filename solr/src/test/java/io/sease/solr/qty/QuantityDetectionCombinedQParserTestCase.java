@@ -0,0 +1,187 @@
+package io.sease.solr.qty;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.lucene.document.FloatPoint;
+import org.apache.lucene.document.IntPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queries.function.FunctionQuery;
+import org.apache.lucene.queries.function.valuesource.FloatFieldSource;
+import org.apache.lucene.queries.function.valuesource.IntFieldSource;
+import org.apache.lucene.queries.function.valuesource.ReciprocalFloatFunction;
+import org.apache.lucene.queries.function.valuesource.SumFloatFunction;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.IndexOrDocValuesQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.schema.FieldType;
+import org.apache.solr.schema.FloatPointField;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.IntPointField;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.QParser;
+import org.apache.solr.search.QParserPlugin;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Quantity Detection "Combined" Parser test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantityDetectionCombinedQParserTestCase {
+    private QuantityDetectionCombinedQParserPlugin cut;
+    private SolrQueryRequest request;
+    private final ModifiableSolrParams params = new ModifiableSolrParams();
+
+    @Before
+    public void setUp() throws Exception {
+        final QParserPlugin mainQueryParser = new QParserPlugin() {
+            @Override
+            public QParser createParser(final String qstr, final SolrParams localParams, final SolrParams params, final SolrQueryRequest req) {
+                return new QParser(qstr, localParams, params, req) {
+                    @Override
+                    public Query parse() {
+                        return new TermQuery(new Term("name", qstr));
+                    }
+                };
+            }
+        };
+
+        cut = new QuantityDetectionCombinedQParserPlugin() {
+            @Override
+            JsonParser configuration(final ResourceLoader loader) throws IOException {
+                return new ObjectMapper().readTree(new File("src/test/resources/bq_units.json")).traverse();
+            }
+
+            @Override
+            QParserPlugin qparserPlugin() {
+                return mainQueryParser;
+            }
+        };
+
+        cut.init(mock(NamedList.class));
+        cut.inform(mock(ResourceLoader.class));
+
+        final IndexSchema schema = mock(IndexSchema.class);
+        final SchemaField height = field("height", new IntPointField());
+        final SchemaField capacity = field("capacity", new FloatPointField());
+        when(schema.getField("height")).thenReturn(height);
+        when(schema.getField("capacity")).thenReturn(capacity);
+
+        request = mock(SolrQueryRequest.class);
+        when(request.getSchema()).thenReturn(schema);
+    }
+
+    /**
+     * If no quantities are detected, the main query is returned as it is.
+     */
+    @Test
+    public void noQuantities() throws Exception {
+        assertEquals(
+                new TermQuery(new Term("name", "There's no quantity here")),
+                cut.createParser("There's no quantity here", new ModifiableSolrParams(), params, request).getQuery());
+    }
+
+    @Test
+    public void oneQuantityWithGap() throws Exception {
+        final Query expected =
+                new BooleanQuery.Builder()
+                        .add(new BooleanQuery.Builder()
+                                    .add(exact("height", 100), BooleanClause.Occur.SHOULD)
+                                    .add(range("height", 90, 110), BooleanClause.Occur.SHOULD)
+                                    .build(),
+                                BooleanClause.Occur.SHOULD)
+                        .add(new FunctionQuery(
+                                    new ReciprocalFloatFunction(
+                                            new AbsoluteDistanceFunction(new IntFieldSource("height"), 100), 1, 1000, 1000)),
+                                BooleanClause.Occur.SHOULD)
+                        .add(new TermQuery(new Term("name", "there's a  quantity here")), BooleanClause.Occur.MUST)
+                        .build();
+
+        assertEquals(expected, cut.createParser("There's a 100cm quantity here", new ModifiableSolrParams(), params, request).getQuery());
+    }
+
+    @Test
+    public void multipleQuantities() throws Exception {
+        final Query expected =
+                new BooleanQuery.Builder()
+                        .add(new BooleanQuery.Builder()
+                                    .add(exact("capacity", 2f), BooleanClause.Occur.SHOULD)
+                                    .add(exact("height", 100), BooleanClause.Occur.SHOULD)
+                                    .add(range("height", 90, 110), BooleanClause.Occur.SHOULD)
+                                    .build(),
+                                BooleanClause.Occur.SHOULD)
+                        .add(new FunctionQuery(
+                                    new SumFloatFunction(
+                                            new ReciprocalFloatFunction[] {
+                                                new ReciprocalFloatFunction(
+                                                    new AbsoluteDistanceFunction(new FloatFieldSource("capacity"), 2), 2, 100, 100),
+                                                new ReciprocalFloatFunction(
+                                                    new AbsoluteDistanceFunction(new IntFieldSource("height"), 100), 2, 100, 100)
+                                            })),
+                                BooleanClause.Occur.SHOULD)
+                        .add(new TermQuery(new Term("name", "beer  and")), BooleanClause.Occur.MUST)
+                        .build();
+
+        final ModifiableSolrParams localParams = new ModifiableSolrParams();
+        localParams.set("m", 2);
+        localParams.set("a", 100);
+        localParams.set("b", 100);
+
+        assertEquals(expected, cut.createParser("beer 2lt and 100 cm", localParams, params, request).getQuery());
+    }
+
+    @Test
+    public void boostsCanBeDisabled() throws Exception {
+        final ModifiableSolrParams localParams = new ModifiableSolrParams();
+        localParams.set(QuantityDetectionCombinedQParserPlugin.BOOST_QUERY_PARAM_NAME, false);
+        localParams.set(QuantityDetectionCombinedQParserPlugin.BOOST_FUNCTION_PARAM_NAME, false);
+
+        assertEquals(
+                new TermQuery(new Term("name", "*:*")),
+                cut.createParser("100cm", localParams, params, request).getQuery());
+    }
+
+    private Query exact(final String field, final int value) {
+        return new IndexOrDocValuesQuery(
+                IntPoint.newExactQuery(field, value),
+                NumericDocValuesField.newSlowExactQuery(field, value));
+    }
+
+    private Query exact(final String field, final float value) {
+        return new IndexOrDocValuesQuery(
+                FloatPoint.newExactQuery(field, value),
+                NumericDocValuesField.newSlowExactQuery(field, NumericUtils.floatToSortableInt(value)));
+    }
+
+    private Query range(final String field, final int lowerValue, final int upperValue) {
+        return new IndexOrDocValuesQuery(
+                IntPoint.newRangeQuery(field, lowerValue, upperValue),
+                NumericDocValuesField.newSlowRangeQuery(field, lowerValue, upperValue));
+    }
+
+    private SchemaField field(final String name, final FieldType type) {
+        return new SchemaField(
+                name,
+                type,
+                FieldQueryFactoryTestCase.Properties.INDEXED | FieldQueryFactoryTestCase.Properties.DOC_VALUES,
+                null);
+    }
+}
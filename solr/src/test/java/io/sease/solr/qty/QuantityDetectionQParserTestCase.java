@@ -1,6 +1,6 @@
 package io.sease.solr.qty;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.lucene.analysis.util.ResourceLoader;
 import org.apache.solr.common.params.ModifiableSolrParams;
@@ -34,8 +34,8 @@ public class QuantityDetectionQParserTestCase {
     public void setUp() throws Exception {
         cut = new QuantityDetectionQParserPlugin() {
             @Override
-            JsonNode configuration(final ResourceLoader loader) throws IOException {
-                return new ObjectMapper().readTree(new File("src/test/resources/q_units.json"));
+            JsonParser configuration(final ResourceLoader loader) throws IOException {
+                return new ObjectMapper().readTree(new File("src/test/resources/q_units.json")).traverse();
             }
         };
 
@@ -64,7 +64,34 @@ public class QuantityDetectionQParserTestCase {
         };
 
         stream(noQuantityQueries)
-                .forEach(q -> assertEquals(q.toLowerCase(), cut.buildQuery(q, params)));
+                .forEach(q -> assertEquals(q, cut.buildQuery(q, params)));
+        assertEquals(noQuantityQueries.length, cut.metrics.fastPathRequests.getCount());
+
+        assertEquals("room 101", cut.buildQuery("Room 101", params));
+        assertEquals(noQuantityQueries.length, cut.metrics.fastPathRequests.getCount());
+    }
+
+    /**
+     * A query which exceeds one of the configured limits must be passed through unchanged.
+     */
+    @Test
+    public void limitsExceeded() {
+        final NamedList<Object> args = new NamedList<>();
+        args.add(QuantityDetector.MAX_QUERY_LENGTH_PARAM_NAME, 20);
+        args.add(QuantityDetector.MAX_QUANTITIES_PARAM_NAME, 2);
+        cut.init(args);
+
+        assertEquals("a  bottle", cut.buildQuery("A 100 lt bottle", params));
+        assertEquals("a bottle of exactly 100 lt", cut.buildQuery("A bottle of exactly 100 lt", params));
+        assertEquals(1, cut.metrics.oversizedQueryRequests.getCount());
+
+        assertEquals("1 lt 2 lt 3 lt", cut.buildQuery("1 lt 2 lt 3 lt", params));
+        assertEquals(1, cut.metrics.tooManyQuantitiesRequests.getCount());
+
+        args.add(QuantityDetector.DETECTION_BUDGET_PARAM_NAME, 1L);
+        cut.init(args);
+        assertEquals("a 100 lt bottle", cut.buildQuery("A 100 lt bottle", params));
+        assertEquals(1, cut.metrics.detectionBudgetExceededRequests.getCount());
     }
 
     @Test
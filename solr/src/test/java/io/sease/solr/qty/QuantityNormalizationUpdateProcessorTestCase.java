@@ -0,0 +1,91 @@
+package io.sease.solr.qty;
+
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.NamedList;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link QuantityNormalizationUpdateProcessorFactory} test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantityNormalizationUpdateProcessorTestCase {
+    private QuantityNormalizationUpdateProcessorFactory factory;
+
+    @Before
+    public void setUp() throws Exception {
+        final NamedList<String> args = new NamedList<>();
+        args.add(QuantityNormalizationUpdateProcessorFactory.UNITS_PARAM_NAME, "equivalences.json");
+
+        final ResourceLoader loader = mock(ResourceLoader.class);
+        when(loader.openResource("equivalences.json")).thenReturn(new FileInputStream("src/test/resources/equivalences.json"));
+
+        factory = new QuantityNormalizationUpdateProcessorFactory();
+        factory.init(args);
+        factory.load(loader);
+    }
+
+    @Test
+    public void unitSuffixedValues() {
+        asList("0.33 lt", "33cl", "330 ml", "330 ML", " 0.33l ", "0.33").forEach(value -> {
+            final SolrInputDocument document = document("capacity", value);
+            factory.normalize(document);
+            assertEquals(value, 0.33f, document.getFieldValue("capacity"));
+        });
+    }
+
+    @Test
+    public void integerValues() {
+        final SolrInputDocument document = document("height", "1 m");
+        factory.normalize(document);
+        assertEquals(100, document.getFieldValue("height"));
+    }
+
+    @Test
+    public void multipleValues() {
+        final SolrInputDocument document = document("height", "1 m");
+        document.addField("height", "1000 mm");
+        document.addField("height", 25.5f);
+        factory.normalize(document);
+        assertEquals(asList(100, 100, 25.5f), document.getFieldValues("height"));
+    }
+
+    @Test
+    public void otherFieldsAreNotNormalized() {
+        final SolrInputDocument document = document("title", "33cl");
+        factory.normalize(document);
+        assertEquals("33cl", document.getFieldValue("title"));
+    }
+
+    @Test(expected = SolrException.class)
+    public void unknownUnit() {
+        factory.normalize(document("capacity", "33 kg"));
+    }
+
+    @Test(expected = SolrException.class)
+    public void unitOfAnotherField() {
+        factory.normalize(document("capacity", "33 cm"));
+    }
+
+    @Test(expected = SolrException.class)
+    public void noAmount() {
+        factory.normalize(document("capacity", "cl"));
+    }
+
+    private SolrInputDocument document(final String fieldName, final Object value) {
+        final SolrInputDocument document = new SolrInputDocument();
+        document.addField(fieldName, value);
+        return document;
+    }
+}
@@ -0,0 +1,181 @@
+package io.sease.solr.qty;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.ShardParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.SolrQueryResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Quantity routing (i.e. {@link QuantityRoutingSearchHandler} and {@link QuantityNormalizationUpdateProcessorFactory})
+ * test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantityRoutingTestCase {
+    private QuantityRoutingSearchHandler handler;
+    private QuantityNormalizationUpdateProcessorFactory processor;
+
+    @Before
+    public void setUp() throws Exception {
+        final JsonNode configuration = new ObjectMapper().readTree(new File("src/test/resources/bucket_units.json"));
+        final QuantityDetectionBQParserPlugin bq = new QuantityDetectionBQParserPlugin() {
+            @Override
+            JsonParser configuration(final ResourceLoader loader) {
+                return configuration.traverse();
+            }
+        };
+        bq.init(mock(NamedList.class));
+        bq.inform(mock(ResourceLoader.class));
+
+        handler = new QuantityRoutingSearchHandler();
+        handler.quantityField = "height";
+        handler.detector = bq;
+
+        final NamedList<String> args = new NamedList<>();
+        args.add(QuantityNormalizationUpdateProcessorFactory.UNITS_PARAM_NAME, "bucket_units.json");
+        args.add(QuantityNormalizationUpdateProcessorFactory.QUANTITY_FIELD_PARAM_NAME, "height");
+        args.add(QuantityNormalizationUpdateProcessorFactory.ROUTE_FIELD_PARAM_NAME, "qty_route");
+
+        final ResourceLoader loader = mock(ResourceLoader.class);
+        when(loader.openResource("bucket_units.json")).thenReturn(new FileInputStream("src/test/resources/bucket_units.json"));
+
+        processor = new QuantityNormalizationUpdateProcessorFactory();
+        processor.init(args);
+        processor.load(loader);
+    }
+
+    /**
+     * Requests are routed to the buckets which cover the ranges of the detected quantities.
+     */
+    @Test
+    public void queriesAreRoutedByQuantityBuckets() {
+        assertEquals(Optional.of("height_9,height_10,height_11"), handler.route(request("shelf 1 m")));
+        assertEquals(Optional.of("height_9,height_10,height_11,height_19,height_20,height_21"), handler.route(request("shelf 100 cm or 2 m")));
+        assertEquals(Optional.of("height_9,height_10,height_11"), handler.route(request("a 100 cm shelf for 25 lt tanks")));
+    }
+
+    /**
+     * Requests without quantities of the routing field, or with an explicit route, are not routed.
+     */
+    @Test
+    public void notRoutedQueries() {
+        assertEquals(Optional.empty(), handler.route(request("shelf")));
+        assertEquals(Optional.empty(), handler.route(request("shelf 100 mm")));
+
+        final ModifiableSolrParams explicit = params("shelf 1 m");
+        explicit.set(ShardParams._ROUTE_, "height_1");
+        assertEquals(Optional.empty(), handler.route(request(explicit)));
+
+        final ModifiableSolrParams shard = params("shelf 1 m");
+        shard.set(ShardParams.IS_SHARD, true);
+        assertEquals(Optional.empty(), handler.route(request(shard)));
+    }
+
+    /**
+     * Documents are routed by the bucket of their quantity, or by their unique key.
+     */
+    @Test
+    public void documentsAreRoutedByQuantityBuckets() {
+        final SolrInputDocument withQuantity = new SolrInputDocument();
+        withQuantity.addField("id", "1");
+        withQuantity.addField("height", "1 m");
+        processor.normalize(withQuantity);
+        processor.route(withQuantity, "id");
+        assertEquals("height_10", withQuantity.getFieldValue("qty_route"));
+
+        final SolrInputDocument withoutQuantity = new SolrInputDocument();
+        withoutQuantity.addField("id", "2");
+        withoutQuantity.addField("width", "100 mm");
+        processor.normalize(withoutQuantity);
+        processor.route(withoutQuantity, "id");
+        assertEquals("2", withoutQuantity.getFieldValue("qty_route"));
+    }
+
+    /**
+     * The detection executed for routing must be replayed, and not executed again, by the query parser.
+     */
+    @Test
+    public void routingDetectionIsReused() {
+        final SolrQueryRequest request = request(params("shelf 1 m"));
+        SolrRequestInfo.setRequestInfo(new SolrRequestInfo(request, new SolrQueryResponse()));
+        try {
+            final String query = handler.detector.buildQuery("shelf 1 m", request.getParams());
+            handler.route(request);
+
+            final Map<String, DetectionTranscript> detections = QuantityDetectionComponent.detections().get();
+            assertEquals(1, detections.size());
+            assertEquals(query, handler.detector.buildQuery("shelf 1 m", request.getParams()));
+
+            detections.replaceAll((key, transcript) -> new DetectionTranscript());
+            final String replayed = handler.detector.buildQuery("shelf 1 m", request.getParams());
+            assertNotEquals(query, replayed);
+            assertEquals(handler.detector.buildQuery("shelf", request.getParams()), replayed);
+        } finally {
+            SolrRequestInfo.clearRequestInfo();
+        }
+    }
+
+    /**
+     * Documents whose values of the routing quantity fall in more than one bucket must be rejected.
+     */
+    @Test
+    public void documentsWithManyBuckets() {
+        final SolrInputDocument sameBucket = new SolrInputDocument();
+        sameBucket.addField("id", "1");
+        sameBucket.addField("height", asList("1 m", "100 cm"));
+        processor.normalize(sameBucket);
+        assertEquals("height_10", sameBucket.getFieldValue("qty_route"));
+
+        final SolrInputDocument manyBuckets = new SolrInputDocument();
+        manyBuckets.addField("id", "2");
+        manyBuckets.addField("height", asList("1 m", "2 m"));
+        try {
+            processor.normalize(manyBuckets);
+            fail();
+        } catch (final SolrException expected) {
+            assertEquals(SolrException.ErrorCode.BAD_REQUEST.code, expected.code());
+        }
+    }
+
+    private SolrQueryRequest request(final String qstr) {
+        return request(params(qstr));
+    }
+
+    private SolrQueryRequest request(final ModifiableSolrParams params) {
+        final SolrQueryRequest request = mock(SolrQueryRequest.class);
+        when(request.getParams()).thenReturn(params);
+        when(request.getContext()).thenReturn(new HashMap<>());
+        return request;
+    }
+
+    private ModifiableSolrParams params(final String qstr) {
+        final ModifiableSolrParams params = new ModifiableSolrParams();
+        params.set(CommonParams.Q, qstr);
+        return params;
+    }
+}
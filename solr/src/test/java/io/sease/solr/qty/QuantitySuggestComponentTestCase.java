@@ -0,0 +1,147 @@
+package io.sease.solr.qty;
+
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.NumericUtils;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.schema.FloatPointField;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.SchemaField;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link QuantitySuggestComponent} test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantitySuggestComponentTestCase {
+    private QuantitySuggestComponent component;
+    private Function<String, Optional<FieldStatistics>> statistics;
+
+    @Before
+    public void setUp() throws Exception {
+        final NamedList<String> args = new NamedList<>();
+        args.add(QuantitySuggestComponent.UNITS_PARAM_NAME, "equivalences.json");
+
+        final ResourceLoader loader = mock(ResourceLoader.class);
+        when(loader.openResource("equivalences.json")).thenReturn(new FileInputStream("src/test/resources/equivalences.json"));
+
+        component = new QuantitySuggestComponent();
+        component.init(args);
+        component.load(loader);
+
+        // Most of the indexed capacities are 0.33 lt, a few heights are 33 cm
+        final ValueHistogram capacity = new ValueHistogram(0, 2, false);
+        for (int i = 0; i < 50; i++) capacity.add(0.33);
+        for (int i = 0; i < 5; i++) capacity.add(1);
+
+        final ValueHistogram height = new ValueHistogram(0, 200, true);
+        for (int i = 0; i < 3; i++) height.add(33);
+        height.add(200);
+
+        final Map<String, FieldStatistics> fields = new HashMap<>();
+        fields.put("capacity", new FieldStatistics(0f, 2f, 55, capacity));
+        fields.put("height", new FieldStatistics(0, 200, 4, height));
+        statistics = fieldName -> Optional.ofNullable(fields.get(fieldName));
+    }
+
+    /**
+     * Partial unit forms must be completed, ranking first the units which have more indexed values around the amount.
+     */
+    @Test
+    public void partialForm() {
+        assertEquals(
+                asList("33 cl", "33 centiliters", "33 cm", "33 centimeters"),
+                suggestions("33 c", 10));
+        assertEquals(asList("chairs 33 cl", "chairs 33 centiliters"), suggestions("chairs 33c", 2));
+    }
+
+    /**
+     * Amounts must be converted in the reference variant of the unit before ranking the suggestions.
+     */
+    @Test
+    public void equivalentAmounts() {
+        final List<QuantitySuggestComponent.Suggestion> suggestions = component.suggest("330 m", 10, statistics);
+
+        assertEquals(asList("330 ml", "330 milliliters", "330 mm", "330 millimeters"), texts(suggestions).subList(0, 4));
+        assertTrue(suggestions.get(0).weight > suggestions.get(2).weight);
+        assertEquals(0, suggestions.get(suggestions.size() - 1).weight);
+    }
+
+    /**
+     * An amount without a unit form must be completed with all forms.
+     */
+    @Test
+    public void missingForm() {
+        assertEquals(15, suggestions("33 ", 20).size());
+        assertEquals(suggestions("33 ", 20), suggestions("33", 20));
+    }
+
+    /**
+     * No suggestions must be returned if the query doesn't end with a quantity.
+     */
+    @Test
+    public void noQuantity() {
+        assertTrue(suggestions("chairs", 5).isEmpty());
+        assertTrue(suggestions("chairs c", 5).isEmpty());
+        assertTrue(suggestions("33 cx", 5).isEmpty());
+        assertTrue(suggestions("", 5).isEmpty());
+    }
+
+    /**
+     * The distributions of the unit fields must be computed in advance (i.e. when a new searcher is opened), since
+     * they are never computed on the suggest path.
+     */
+    @Test
+    public void distributionsAreComputedInAdvance() throws Exception {
+        final SchemaField capacity =
+                new SchemaField("capacity", new FloatPointField(), FieldQueryFactoryTestCase.Properties.DOC_VALUES, null);
+        final IndexSchema schema = mock(IndexSchema.class);
+        when(schema.getFieldOrNull("capacity")).thenReturn(capacity);
+
+        try (final Directory directory = new RAMDirectory()) {
+            try (final IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig())) {
+                final Document document = new Document();
+                document.add(new NumericDocValuesField("capacity", NumericUtils.floatToSortableInt(0.33f)));
+                writer.addDocument(document);
+            }
+
+            try (final DirectoryReader reader = DirectoryReader.open(directory)) {
+                assertFalse(IndexStatistics.of(reader).distribution(capacity).isPresent());
+                component.distributions(reader, schema);
+                assertEquals(1, IndexStatistics.of(reader).distribution(capacity).get().docCount());
+            }
+        }
+    }
+
+    private List<String> suggestions(final String qstr, final int count) {
+        return texts(component.suggest(qstr, count, statistics));
+    }
+
+    private List<String> texts(final List<QuantitySuggestComponent.Suggestion> suggestions) {
+        return suggestions.stream().map(suggestion -> suggestion.text).collect(toList());
+    }
+}
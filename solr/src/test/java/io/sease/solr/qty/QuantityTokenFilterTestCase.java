@@ -0,0 +1,166 @@
+package io.sease.solr.qty;
+
+import org.apache.lucene.analysis.BaseTokenStreamTestCase;
+import org.apache.lucene.analysis.TokenStream;
+import org.apache.lucene.analysis.Tokenizer;
+import org.apache.lucene.analysis.core.WhitespaceTokenizer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
+import org.apache.lucene.analysis.tokenattributes.OffsetAttribute;
+import org.apache.lucene.analysis.tokenattributes.PositionIncrementAttribute;
+import org.apache.lucene.analysis.tokenattributes.TypeAttribute;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.junit.Test;
+
+import java.io.FileInputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link QuantityTokenFilter} test case.
+ * Each token is represented as term/position increment/type (the type only for quantity tokens).
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantityTokenFilterTestCase {
+    /**
+     * Quantities must be converted in the unit reference variant and stacked on the original (amount) token.
+     */
+    @Test
+    public void preserveOriginal() throws Exception {
+        assertEquals(
+                asList("a/1", "33cl/1", "capacity:0.33/0/QUANTITY", "bottle/1"),
+                tokens(factory(true), "a 33cl bottle"));
+
+        assertEquals(
+                asList("shelf/1", "1000/1", "height:100/0/QUANTITY", "millimeters/1", "high/1"),
+                tokens(factory(true), "shelf 1000 millimeters high"));
+    }
+
+    /**
+     * Quantities must replace the amount and unit tokens, if the original tokens must not be preserved.
+     * The position of the dropped unit token must be kept, so the positions of the following tokens don't change.
+     */
+    @Test
+    public void replaceOriginal() throws Exception {
+        assertEquals(
+                asList("a/1", "capacity:0.33/1/QUANTITY", "bottle/1"),
+                tokens(factory(false), "a 33cl bottle"));
+
+        assertEquals(
+                asList("shelf/1", "height:100/1/QUANTITY", "high/2"),
+                tokens(factory(false), "shelf 1000 millimeters high"));
+
+        assertEquals(
+                asList("height:100/1/QUANTITY", "capacity:0.03/2/QUANTITY"),
+                tokens(factory(false), "1000 millimeters 3 cl"));
+    }
+
+    /**
+     * The position of a unit token dropped at the end of the stream must be added to the final position increment.
+     */
+    @Test
+    public void finalPositionIncrement() throws Exception {
+        try (final TokenStream stream = stream(factory(false), "shelf 1000 millimeters")) {
+            final PositionIncrementAttribute positionIncrement = stream.getAttribute(PositionIncrementAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                // Nothing to be done here, only the final position increment is checked
+            }
+            stream.end();
+            assertEquals(1, positionIncrement.getPositionIncrement());
+        }
+    }
+
+    /**
+     * Amounts without a unit, and units without an amount, are left untouched.
+     */
+    @Test
+    public void noQuantities() throws Exception {
+        assertEquals(
+                asList("2/1", "bottles/1", "of/1", "lt/1", "12/1", "3/1", "capacity:0.03/0/QUANTITY", "cl/1"),
+                tokens(factory(true), "2 bottles of lt 12 3 cl"));
+    }
+
+    /**
+     * Quantity tokens must span the whole quantity.
+     */
+    @Test
+    public void offsets() throws Exception {
+        final TokenStream stream = stream(factory(false), "a 1.5 lt can");
+        final CharTermAttribute term = stream.getAttribute(CharTermAttribute.class);
+        final OffsetAttribute offset = stream.getAttribute(OffsetAttribute.class);
+        stream.reset();
+        stream.incrementToken();
+        stream.incrementToken();
+        assertEquals("capacity:1.5", term.toString());
+        assertEquals(2, offset.startOffset());
+        assertEquals(8, offset.endOffset());
+        stream.close();
+    }
+
+    /**
+     * Offsets must be consistent (i.e. start offsets never go backwards), so the stream can be indexed with offsets.
+     */
+    @Test
+    public void consistentOffsets() throws Exception {
+        BaseTokenStreamTestCase.assertTokenStreamContents(
+                stream(factory(true), "shelf 1000 millimeters high"),
+                new String[] {"shelf", "1000", "height:100", "millimeters", "high"},
+                new int[] {0, 6, 6, 11, 23},
+                new int[] {5, 10, 22, 22, 27},
+                new int[] {1, 1, 0, 1, 1},
+                27);
+
+        BaseTokenStreamTestCase.assertTokenStreamContents(
+                stream(factory(false), "shelf 1000 millimeters high"),
+                new String[] {"shelf", "height:100", "high"},
+                new int[] {0, 6, 23},
+                new int[] {5, 22, 27},
+                new int[] {1, 1, 2},
+                27);
+    }
+
+    private QuantityTokenFilterFactory factory(final boolean preserveOriginal) throws Exception {
+        final Map<String, String> args = new HashMap<>();
+        args.put(QuantityTokenFilterFactory.UNITS_PARAM_NAME, "equivalences.json");
+        args.put(QuantityTokenFilterFactory.PRESERVE_ORIGINAL_PARAM_NAME, String.valueOf(preserveOriginal));
+        final QuantityTokenFilterFactory factory = new QuantityTokenFilterFactory(args);
+
+        final ResourceLoader loader = mock(ResourceLoader.class);
+        when(loader.openResource("equivalences.json")).thenReturn(new FileInputStream("src/test/resources/equivalences.json"));
+        factory.inform(loader);
+        return factory;
+    }
+
+    private TokenStream stream(final QuantityTokenFilterFactory factory, final String text) {
+        final Tokenizer tokenizer = new WhitespaceTokenizer();
+        tokenizer.setReader(new StringReader(text));
+        return factory.create(tokenizer);
+    }
+
+    private List<String> tokens(final QuantityTokenFilterFactory factory, final String text) throws Exception {
+        final List<String> tokens = new ArrayList<>();
+        try (final TokenStream stream = stream(factory, text)) {
+            final CharTermAttribute term = stream.getAttribute(CharTermAttribute.class);
+            final PositionIncrementAttribute positionIncrement = stream.getAttribute(PositionIncrementAttribute.class);
+            final TypeAttribute type = stream.getAttribute(TypeAttribute.class);
+            stream.reset();
+            while (stream.incrementToken()) {
+                tokens.add(
+                        term + "/" + positionIncrement.getPositionIncrement()
+                                + (QuantityTokenFilter.TYPE.equals(type.type()) ? "/" + type.type() : ""));
+            }
+            stream.end();
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,176 @@
+package io.sease.solr.qty;
+
+import org.apache.log4j.AppenderSkeleton;
+import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.response.SolrQueryResponse;
+import org.apache.solr.search.QParser;
+import org.apache.solr.search.QParserPlugin;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * {@link QuantityWarmingListener} test case.
+ * The owning core is not needed: the listener reaches the query parsers and the request handlers through its
+ * (overridden) package-private hooks.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QuantityWarmingListenerTestCase {
+    private final QuantityDetector detector = mock(QuantityDetector.class);
+    private final SolrIndexSearcher searcher = mock(SolrIndexSearcher.class);
+    private final HotQuantities hotQuantities = new HotQuantities();
+
+    private final List<String> parsed = new ArrayList<>();
+    private final List<String> executed = new ArrayList<>();
+    private final List<String> messages = new ArrayList<>();
+    private final AppenderSkeleton appender = new AppenderSkeleton() {
+        @Override
+        protected void append(final LoggingEvent event) {
+            messages.add(event.getRenderedMessage());
+        }
+
+        @Override
+        public void close() {
+            // Nothing to be done here
+        }
+
+        @Override
+        public boolean requiresLayout() {
+            return false;
+        }
+    };
+
+    private QuantityWarmingListener cut;
+
+    @Before
+    public void setUp() throws Exception {
+        when(detector.hotQuantities()).thenReturn(hotQuantities);
+        when(detector.createParser(anyString(), any(), any(), any())).thenAnswer(invocation -> {
+            final String quantity = invocation.getArgument(0);
+            if (quantity.equals("broken")) {
+                throw new IllegalArgumentException(quantity);
+            }
+
+            parsed.add(quantity + (QuantityWarmingListener.isWarming() ? " (warming)" : ""));
+            final QParser parser = mock(QParser.class);
+            when(parser.getQuery()).thenReturn(query(quantity));
+            return parser;
+        });
+
+        cut = new QuantityWarmingListener(null) {
+            @Override
+            QParserPlugin queryPlugin(final String parserName) {
+                return parserName.equals("bqty") ? detector : null;
+            }
+
+            @Override
+            void execute(final String handlerName, final SolrQueryRequest request, final SolrQueryResponse response) {
+                executed.add(
+                        handlerName + " " + request.getParams().get(CommonParams.Q)
+                                + (QuantityWarmingListener.isWarming() ? " (warming)" : ""));
+            }
+        };
+
+        Logger.getLogger(QuantityWarmingListener.class).addAppender(appender);
+    }
+
+    @After
+    public void tearDown() {
+        Logger.getLogger(QuantityWarmingListener.class).removeAppender(appender);
+    }
+
+    /**
+     * The configured and the hottest quantities must be executed as filters (populating the filterCache) and sent
+     * to the configured request handler (populating the queryResultCache), within warming requests.
+     */
+    @Test
+    public void cachesArePopulated() throws Exception {
+        hotQuantities.record("lt", 75f, "cl");
+        hotQuantities.record("lt", 75f, "cl");
+        hotQuantities.record("lt", 33f, "cl");
+
+        cut.init(args("bqty", 1, "/combined", "33cl", "50cl"));
+        cut.newSearcher(searcher, null);
+
+        assertEquals(asList("33cl (warming)", "50cl (warming)", "75 cl (warming)"), parsed);
+        verify(searcher).getDocSet(query("33cl"));
+        verify(searcher).getDocSet(query("50cl"));
+        verify(searcher).getDocSet(query("75 cl"));
+        assertEquals(asList("/combined 33cl (warming)", "/combined 50cl (warming)", "/combined 75 cl (warming)"), executed);
+    }
+
+    /**
+     * The failure of a quantity must not stop the warming, and it must be reported, with the warming time.
+     */
+    @Test
+    public void timingAndFailuresAreLogged() {
+        cut.init(args("bqty", 0, "/combined", "33cl", "broken"));
+        cut.newSearcher(searcher, null);
+
+        assertEquals(asList("33cl (warming)"), parsed);
+        assertEquals(asList("/combined 33cl (warming)"), executed);
+        assertTrue(messages.stream().anyMatch(message ->
+                message.matches("Warming of 2 quantities completed in \\d+ ms \\(1 failures\\)")));
+    }
+
+    /**
+     * Without a (quantity detection) parser, quantities are only sent to the request handler.
+     */
+    @Test
+    public void unknownParser() {
+        cut.init(args("edismax", 1, "/combined", "33cl"));
+        cut.newSearcher(searcher, null);
+
+        assertTrue(parsed.isEmpty());
+        assertEquals(asList("/combined 33cl (warming)"), executed);
+    }
+
+    /**
+     * The request handler (qt) is mandatory, if the warming request parameters are declared.
+     */
+    @Test(expected = SolrException.class)
+    public void missingRequestHandler() {
+        final NamedList<Object> args = args("bqty", 0, "/combined", "33cl");
+        ((NamedList) args.get(QuantityWarmingListener.PARAMS_PARAM_NAME)).remove(CommonParams.QT);
+        cut.init(args);
+    }
+
+    private NamedList<Object> args(final String parser, final int hot, final String qt, final String ... quantities) {
+        final NamedList<Object> params = new NamedList<>();
+        params.add(CommonParams.QT, qt);
+
+        final NamedList<Object> args = new NamedList<>();
+        args.add(QuantityWarmingListener.QUANTITIES_PARAM_NAME, asList(quantities));
+        args.add(QuantityWarmingListener.PARSER_PARAM_NAME, parser);
+        args.add(QuantityWarmingListener.HOT_PARAM_NAME, hot);
+        args.add(QuantityWarmingListener.PARAMS_PARAM_NAME, params);
+        return args;
+    }
+
+    private Query query(final String quantity) {
+        return new TermQuery(new Term("quantity", quantity));
+    }
+}
@@ -0,0 +1,126 @@
+package io.sease.solr.qty;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.schema.IndexSchema;
+import org.apache.solr.schema.IntPointField;
+import org.apache.solr.schema.SchemaField;
+import org.apache.solr.search.LRUCache;
+import org.apache.solr.search.SolrCache;
+import org.apache.solr.search.SolrIndexSearcher;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Quantity query cache test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class QueryCacheTestCase {
+    private QuantityDetectionBQParserPlugin cut;
+    private SolrQueryRequest request;
+    private SolrIndexSearcher searcher;
+    private IndexSchema schema;
+    private SolrCache<QuantityQueryKey, Object> cache;
+
+    @Before
+    public void setUp() throws Exception {
+        final JsonNode configuration = new ObjectMapper().readTree(new File("src/test/resources/bq_units.json"));
+        cut = new QuantityDetectionBQParserPlugin() {
+            @Override
+            JsonParser configuration(final ResourceLoader loader) {
+                return configuration.traverse();
+            }
+
+            @Override
+            Optional<IndexStatistics> statistics(final SolrQueryRequest req) {
+                return Optional.empty();
+            }
+        };
+
+        cut.init(mock(NamedList.class));
+        cut.inform(mock(ResourceLoader.class));
+
+        schema = mock(IndexSchema.class);
+        final SchemaField height = new SchemaField("height", new IntPointField(), FieldQueryFactoryTestCase.Properties.INDEXED, null);
+        when(schema.getField("height")).thenReturn(height);
+
+        cache = cache();
+        searcher = mock(SolrIndexSearcher.class);
+        when(searcher.getCache(QuantityDetector.DEFAULT_QUERY_CACHE_NAME)).thenReturn(cache);
+        when(searcher.getSchema()).thenReturn(schema);
+
+        request = mock(SolrQueryRequest.class);
+        when(request.getSchema()).thenReturn(schema);
+        when(request.getSearcher()).thenReturn(searcher);
+    }
+
+    @Test
+    public void noQuantitiesAreNotCached() throws Exception {
+        assertEquals(new MatchAllDocsQuery(), query("There's no quantity here"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void sameConvertedQuantitiesShareTheCachedQuery() throws Exception {
+        final Query query = query("There's a 100cm quantity here");
+        assertEquals(1, cache.size());
+
+        assertSame(query, query("A 100 centimeters shelf"));
+        assertSame(query, query("100 cm"));
+        assertEquals(1, cache.size());
+
+        assertNotSame(query, query("A 200 cm shelf"));
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    public void cachedQueriesAreRegenerated() throws Exception {
+        final Query query = query("There's a 100cm quantity here");
+
+        final SolrCache<QuantityQueryKey, Object> newCache = cache();
+        newCache.warm(searcher, cache);
+
+        assertEquals(1, newCache.size());
+        when(searcher.getCache(QuantityDetector.DEFAULT_QUERY_CACHE_NAME)).thenReturn(newCache);
+
+        final Query regenerated = query("There's a 100cm quantity here");
+        assertNotSame(query, regenerated);
+        assertEquals(query, regenerated);
+        assertEquals(1, newCache.size());
+    }
+
+    private Query query(final String qstr) throws Exception {
+        return cut.createParser(qstr, new ModifiableSolrParams(), new ModifiableSolrParams(), request).getQuery();
+    }
+
+    private SolrCache<QuantityQueryKey, Object> cache() {
+        final Map<String, String> args = new HashMap<>();
+        args.put("name", QuantityDetector.DEFAULT_QUERY_CACHE_NAME);
+        args.put("size", "10");
+        args.put("autowarmCount", "10");
+
+        final LRUCache<QuantityQueryKey, Object> cache = new LRUCache<>();
+        cache.init(args, null, new QuantityQueryCacheRegenerator());
+        return cache;
+    }
+}
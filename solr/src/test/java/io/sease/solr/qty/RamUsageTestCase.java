@@ -0,0 +1,135 @@
+package io.sease.solr.qty;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.lucene.analysis.util.ResourceLoader;
+import org.apache.lucene.util.Accountable;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.metrics.SolrMetricManager;
+import org.apache.solr.request.SolrQueryRequest;
+import org.apache.solr.request.SolrRequestInfo;
+import org.apache.solr.response.SolrQueryResponse;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static java.util.Arrays.asList;
+import static java.util.stream.Collectors.toSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * RAM accounting test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class RamUsageTestCase {
+    private QuantityDetectionBQParserPlugin cut;
+    private final ModifiableSolrParams params = new ModifiableSolrParams();
+
+    @Before
+    public void setUp() throws Exception {
+        cut = newDetector(new NamedList<>());
+    }
+
+    /**
+     * The compiled configuration and the hot quantities must be accounted separately.
+     */
+    @Test
+    public void childResources() {
+        assertEquals(
+                new HashSet<>(asList("dictionary default", "hotQuantities")),
+                cut.getChildResources().stream().map(Object::toString).collect(toSet()));
+        assertEquals(
+                cut.getChildResources().stream().mapToLong(Accountable::ramBytesUsed).sum(),
+                cut.ramBytesUsed());
+        assertTrue(cut.getChildResources().stream()
+                .filter(resource -> !resource.toString().equals("hotQuantities"))
+                .allMatch(resource -> resource.ramBytesUsed() > 0));
+    }
+
+    /**
+     * The recorded hot quantities must be accounted, within the configured ceiling.
+     */
+    @Test
+    public void hotQuantities() throws Exception {
+        final long initial = cut.ramBytesUsed();
+        cut.buildQuery("100 lt", params);
+        assertTrue(cut.ramBytesUsed() > initial);
+
+        final NamedList<Object> args = new NamedList<>();
+        args.add(QuantityDetector.MAX_RAM_MB_PARAM_NAME, "0.0001");
+        final QuantityDetectionBQParserPlugin bounded = newDetector(args);
+        asList("1 lt", "2 lt", "3 lt", "4 lt").forEach(query -> bounded.buildQuery(query, params));
+
+        assertEquals(
+                (long) (0.0001 * 1024 * 1024) / HotQuantities.QUANTITY_RAM_BYTES_USED,
+                bounded.hotQuantities().top(10).size());
+    }
+
+    /**
+     * The detections of the warming requests must not be recorded among the hot quantities.
+     */
+    @Test
+    public void warmingDetectionsAreNotRecorded() {
+        final SolrQueryRequest request = mock(SolrQueryRequest.class);
+        when(request.getContext()).thenReturn(Collections.singletonMap(QuantityWarmingListener.WARMING_CONTEXT_KEY, true));
+        SolrRequestInfo.setRequestInfo(new SolrRequestInfo(request, new SolrQueryResponse()));
+        try {
+            assertEquals("capacity:100", cut.buildQuery("100 lt", params));
+        } finally {
+            SolrRequestInfo.clearRequestInfo();
+        }
+
+        assertTrue(cut.hotQuantities().top(10).isEmpty());
+        assertEquals(0, cut.hotQuantities().ramBytesUsed());
+    }
+
+    /**
+     * The query keys must be accounted, so that the memory ceiling of the query cache can be enforced.
+     */
+    @Test
+    public void queryKeys() {
+        final DetectedQuantities quantities = cut.detect("100 lt and 2 cm", params, query -> new DetectedQuantities());
+        final QuantityQueryKey key = new QuantityQueryKey(cut, quantities, Collections.emptyMap());
+        final QuantityQueryKey keyWithSettings =
+                new QuantityQueryKey(cut, quantities, Collections.singletonMap("qty.boost.cm", "2"));
+
+        assertTrue(key.ramBytesUsed() > 0);
+        assertTrue(keyWithSettings.ramBytesUsed() > key.ramBytesUsed());
+    }
+
+    /**
+     * The estimated heap must be published in the metrics registry.
+     */
+    @Test
+    public void gauge() {
+        final SolrMetricManager manager = new SolrMetricManager();
+        cut.initializeMetrics(manager, "solr.core.test", "bqty");
+
+        assertEquals(
+                cut.ramBytesUsed(),
+                manager.registry("solr.core.test").getGauges().get("QUERYPARSER.bqty.ramBytesUsed").getValue());
+    }
+
+    private QuantityDetectionBQParserPlugin newDetector(final NamedList<Object> args) throws IOException {
+        final QuantityDetectionBQParserPlugin detector = new QuantityDetectionBQParserPlugin() {
+            @Override
+            JsonParser configuration(final ResourceLoader loader) throws IOException {
+                return new ObjectMapper().readTree(new File("src/test/resources/bq_units.json")).traverse();
+            }
+        };
+
+        detector.init(args);
+        detector.inform(mock(ResourceLoader.class));
+        return detector;
+    }
+}
@@ -0,0 +1,125 @@
+package io.sease.solr.qty;
+
+import org.apache.lucene.util.Accountable;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.core.SolrResourceLoader;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Binary snapshots of the units configuration test case.
+ *
+ * @author agazzarini
+ * @since 1.0
+ */
+public class SnapshotsTestCase {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final ModifiableSolrParams params = new ModifiableSolrParams();
+    private SolrResourceLoader loader;
+    private Path units;
+    private Path snapshot;
+
+    @Before
+    public void setUp() throws Exception {
+        final Path conf = folder.newFolder("conf").toPath();
+        units = Files.copy(Paths.get("src/test/resources/bq_units.json"), conf.resolve(QuantityDetector.DEFAULT_UNITS));
+        snapshot = conf.resolve(QuantityDetector.DEFAULT_UNITS + UnitDictionarySnapshot.SNAPSHOT_SUFFIX);
+        loader = new SolrResourceLoader(folder.getRoot().toPath());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        loader.close();
+    }
+
+    /**
+     * The first load must write the snapshot, the next loads must restore the same configuration from it.
+     */
+    @Test
+    public void writeAndRestore() throws Exception {
+        final String expected = newDetector(true).buildQuery("100 lt", params);
+        assertTrue(Files.exists(snapshot));
+
+        final FileTime written = FileTime.fromMillis(0);
+        Files.setLastModifiedTime(snapshot, written);
+        assertEquals(expected, newDetector(true).buildQuery("100 lt", params));
+        assertEquals(written, Files.getLastModifiedTime(snapshot));
+    }
+
+    /**
+     * A snapshot of a previous version of the configuration must be replaced.
+     */
+    @Test
+    public void staleSnapshot() throws Exception {
+        newDetector(true);
+        final byte [] written = Files.readAllBytes(snapshot);
+
+        Files.write(units, " ".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        newDetector(true);
+
+        assertFalse(Arrays.equals(written, Files.readAllBytes(snapshot)));
+    }
+
+    /**
+     * An off-heap dictionary must produce the same queries, without accounting its lookup tables in the heap.
+     */
+    @Test
+    public void offHeap() throws Exception {
+        final QuantityDetectionBQParserPlugin heap = newDetector(false);
+        final NamedList<Object> args = new NamedList<>();
+        args.add(QuantityDetector.OFF_HEAP_PARAM_NAME, "true");
+        final QuantityDetectionBQParserPlugin offHeap = newDetector(args);
+
+        assertTrue(Files.exists(snapshot));
+        assertEquals(heap.buildQuery("100 lt and 2 cm", params), offHeap.buildQuery("100 lt and 2 cm", params));
+        assertTrue(dictionaryRamBytesUsed(offHeap) < dictionaryRamBytesUsed(heap));
+    }
+
+    /**
+     * Snapshots are written only if they have been enabled.
+     */
+    @Test
+    public void disabled() throws Exception {
+        newDetector(false);
+
+        assertFalse(Files.exists(snapshot));
+    }
+
+    private long dictionaryRamBytesUsed(final QuantityDetector detector) {
+        return detector.getChildResources().stream()
+                .filter(resource -> resource.toString().equals("dictionary " + QuantityDetector.DEFAULT_PROFILE))
+                .mapToLong(Accountable::ramBytesUsed)
+                .sum();
+    }
+
+    private QuantityDetectionBQParserPlugin newDetector(final boolean snapshots) throws Exception {
+        final NamedList<Object> args = new NamedList<>();
+        args.add(QuantityDetector.SNAPSHOTS_PARAM_NAME, String.valueOf(snapshots));
+        return newDetector(args);
+    }
+
+    private QuantityDetectionBQParserPlugin newDetector(final NamedList<Object> args) throws Exception {
+        final QuantityDetectionBQParserPlugin detector = new QuantityDetectionBQParserPlugin();
+        detector.init(args);
+        detector.inform(loader);
+        return detector;
+    }
+}